@@ -0,0 +1,79 @@
+package at.ac.tuwien.sepr.assignment.individual.benchmark;
+
+import at.ac.tuwien.sepr.assignment.individual.SeprIndividualAssignmentApplication;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.simple.JdbcClient;
+
+/**
+ * The application under benchmark, started without web server on an in-memory database
+ * filled by the {@code datagen-scale} profile.
+ * The dataset is derived from a fixed seed, so every run benchmarks the same data;
+ * its size is chosen with {@code -p horses=...}, one owner is generated for every 100 horses.
+ */
+@State(Scope.Benchmark)
+public class Dataset {
+
+  /**
+   * Number of generated horses.
+   */
+  @Param({"10000"})
+  public int horses;
+
+  private ConfigurableApplicationContext context;
+  private long youngestHorseId;
+
+  /**
+   * Starts the application and generates the dataset.
+   */
+  @Setup(Level.Trial)
+  public void start() {
+    SpringApplication application = new SpringApplication(SeprIndividualAssignmentApplication.class);
+    application.setWebApplicationType(WebApplicationType.NONE);
+    application.setAdditionalProfiles("datagen-scale");
+    context = application.run(
+        "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;LAZY_QUERY_EXECUTION=TRUE",
+        "--logging.level.root=WARN",
+        "--logging.file.name=",
+        "--app.datagen.horses=" + horses,
+        "--app.datagen.owners=" + Math.max(1, horses / 100),
+        "--app.datagen.images=10");
+    // the horses with the lowest IDs belong to the last generation, which has the deepest pedigrees
+    youngestHorseId = bean(JdbcClient.class).sql("SELECT MIN(id) FROM horse").query(Long.class).single();
+  }
+
+  /**
+   * Stops the application.
+   */
+  @TearDown(Level.Trial)
+  public void stop() {
+    context.close();
+  }
+
+  /**
+   * Returns a bean of the running application.
+   *
+   * @param type the type of the bean
+   * @param <T> the type of the bean
+   * @return the bean
+   */
+  public <T> T bean(Class<T> type) {
+    return context.getBean(type);
+  }
+
+  /**
+   * Returns the ID of a horse of the last generation.
+   *
+   * @return the ID of the horse
+   */
+  public long youngestHorseId() {
+    return youngestHorseId;
+  }
+}
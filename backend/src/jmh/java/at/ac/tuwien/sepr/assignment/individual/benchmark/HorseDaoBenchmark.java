@@ -0,0 +1,82 @@
+package at.ac.tuwien.sepr.assignment.individual.benchmark;
+
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseListDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchCursor;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchDto;
+import at.ac.tuwien.sepr.assignment.individual.entity.Horse;
+import at.ac.tuwien.sepr.assignment.individual.persistence.HorseDao;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of the horse list search {@link HorseDao#searchHorseList(HorseSearchDto, HorseSearchCursor)}
+ * and its streaming variant {@link HorseDao#streamHorseList(HorseSearchDto, HorseSearchCursor, java.util.function.Consumer)}
+ * for every combination of filters,
+ * and of {@link HorseDao#getHorseFamilyById(long, int)} at several depths.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HorseDaoBenchmark {
+
+  /**
+   * The depth of the family trees of a trial.
+   */
+  @State(Scope.Benchmark)
+  public static class Family {
+    /**
+     * Number of generations of a family tree.
+     */
+    @Param({"2", "5", "10"})
+    public int depth;
+  }
+
+  /**
+   * Searches horses with the filters of the trial, together with their owners.
+   *
+   * @param dataset the application under benchmark
+   * @param search the search
+   * @return the found horses
+   */
+  @Benchmark
+  public List<HorseListDto> searchHorseList(Dataset dataset, Search search) {
+    return dataset.bean(HorseDao.class).searchHorseList(search.dto(), null);
+  }
+
+  /**
+   * Streams the horses matching the filters of the trial, together with their owners.
+   *
+   * @param dataset the application under benchmark
+   * @param search the search
+   * @param blackhole consumes the found horses
+   */
+  @Benchmark
+  public void streamHorseList(Dataset dataset, Search search, Blackhole blackhole) {
+    dataset.bean(HorseDao.class).streamHorseList(search.dto(), null, blackhole::consume);
+  }
+
+  /**
+   * Reads the family tree of a horse of the last generation.
+   *
+   * @param dataset the application under benchmark
+   * @param family the depth of the tree
+   * @return the horses of the family tree
+   */
+  @Benchmark
+  public List<Horse> getHorseFamilyById(Dataset dataset, Family family) {
+    return dataset.bean(HorseDao.class).getHorseFamilyById(dataset.youngestHorseId(), family.depth);
+  }
+}
@@ -0,0 +1,77 @@
+package at.ac.tuwien.sepr.assignment.individual.benchmark;
+
+import at.ac.tuwien.sepr.assignment.individual.dto.OwnerDto;
+import at.ac.tuwien.sepr.assignment.individual.entity.Horse;
+import at.ac.tuwien.sepr.assignment.individual.mapper.HorseMapper;
+import at.ac.tuwien.sepr.assignment.individual.type.Sex;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmark of {@link HorseMapper#entityToDetailDto}, which maps every exported horse, without starting the application.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HorseMapperBenchmark {
+
+  /**
+   * Number of horses mapped per invocation.
+   */
+  @Param({"50", "1000"})
+  public int size;
+
+  private final HorseMapper mapper = new HorseMapper();
+  private final List<Horse> page = new ArrayList<>();
+  private final Map<Long, OwnerDto> owners = new HashMap<>();
+
+  /**
+   * Generates the horses and their owners, a quarter of the horses has no owner.
+   */
+  @Setup(Level.Trial)
+  public void setup() {
+    SplittableRandom random = new SplittableRandom(42);
+    int ownerCount = Math.max(1, size / 10);
+    for (long i = 1; i <= ownerCount; i++) {
+      owners.put(i, new OwnerDto(i, "First" + i, "Last" + i, null));
+    }
+    for (long i = 1; i <= size; i++) {
+      Long ownerId = random.nextInt(4) == 0 ? null : (long) random.nextInt(1, ownerCount + 1);
+      page.add(new Horse(i, "Horse " + i, "Description " + i, LocalDate.ofEpochDay(random.nextInt(20_000)),
+          random.nextBoolean() ? Sex.FEMALE : Sex.MALE, ownerId, null, null, null));
+    }
+  }
+
+  /**
+   * Maps the page of horses to detail DTOs.
+   *
+   * @param blackhole consumes the DTOs
+   */
+  @Benchmark
+  public void entityToDetailDto(Blackhole blackhole) {
+    for (Horse horse : page) {
+      blackhole.consume(mapper.entityToDetailDto(horse, owners));
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package at.ac.tuwien.sepr.assignment.individual.benchmark;
+
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchDto;
+import at.ac.tuwien.sepr.assignment.individual.type.Sex;
+import java.time.LocalDate;
+import java.util.Set;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The horse search of a trial.
+ * The filter values match part of the dataset generated by the {@code datagen-scale} profile.
+ */
+@State(Scope.Benchmark)
+public class Search {
+
+  /**
+   * Comma-separated filters of the search, each of
+   * {@code name}, {@code description}, {@code bornBefore}, {@code sex} and {@code ownerName},
+   * or {@code none} for an unfiltered search.
+   */
+  @Param({"none", "name", "description", "bornBefore", "sex", "ownerName", "name,sex", "bornBefore,ownerName",
+      "name,description,bornBefore,sex,ownerName"})
+  public String filters;
+
+  /**
+   * Maximum number of horses returned, as requested by a page of the frontend.
+   */
+  @Param({"50"})
+  public int limit;
+
+  private HorseSearchDto dto;
+
+  /**
+   * Builds the search parameters.
+   */
+  @Setup(Level.Trial)
+  public void setup() {
+    Set<String> filter = Set.of(filters.split(","));
+    dto = new HorseSearchDto(
+        filter.contains("name") ? "Storm" : null,
+        filter.contains("description") ? "generation 3" : null,
+        filter.contains("bornBefore") ? LocalDate.of(2000, 1, 1) : null,
+        filter.contains("sex") ? Sex.FEMALE : null,
+        filter.contains("ownerName") ? "Huber" : null,
+        limit);
+  }
+
+  /**
+   * Returns the search parameters.
+   *
+   * @return the search parameters
+   */
+  public HorseSearchDto dto() {
+    return dto;
+  }
+}
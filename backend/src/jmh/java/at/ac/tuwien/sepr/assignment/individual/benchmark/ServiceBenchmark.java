@@ -0,0 +1,91 @@
+package at.ac.tuwien.sepr.assignment.individual.benchmark;
+
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseListDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.OwnerDto;
+import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
+import at.ac.tuwien.sepr.assignment.individual.exception.ValidationException;
+import at.ac.tuwien.sepr.assignment.individual.service.HorseService;
+import at.ac.tuwien.sepr.assignment.individual.service.OwnerService;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.simple.JdbcClient;
+
+/**
+ * Benchmarks of the service methods behind the horse list:
+ * {@link HorseService#searchHorses}, which enriches the found horses with their owners,
+ * and {@link OwnerService#getAllById}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceBenchmark {
+
+  /**
+   * The owners requested in a trial.
+   */
+  @State(Scope.Benchmark)
+  public static class Owners {
+    /**
+     * Number of requested owners, capped by the number of generated owners.
+     */
+    @Param({"10", "50", "100"})
+    public int count;
+
+    private List<Long> ids;
+
+    /**
+     * Picks the owners to request.
+     *
+     * @param dataset the application under benchmark
+     */
+    @Setup(Level.Trial)
+    public void setup(Dataset dataset) {
+      ids = dataset.bean(JdbcClient.class)
+          .sql("SELECT id FROM owner ORDER BY id LIMIT :count")
+          .param("count", count)
+          .query(Long.class)
+          .list();
+    }
+  }
+
+  /**
+   * Searches horses with the filters of the trial and maps them to list DTOs with their owners.
+   *
+   * @param dataset the application under benchmark
+   * @param search the search
+   * @return the found horses
+   * @throws ValidationException if the search is invalid
+   */
+  @Benchmark
+  public List<HorseListDto> searchHorses(Dataset dataset, Search search) throws ValidationException {
+    return dataset.bean(HorseService.class).searchHorses(search.dto()).toList();
+  }
+
+  /**
+   * Reads the owners of the trial.
+   *
+   * @param dataset the application under benchmark
+   * @param owners the owners to read
+   * @return the owners by their ID
+   * @throws NotFoundException if an owner does not exist
+   */
+  @Benchmark
+  public Map<Long, OwnerDto> getOwnersById(Dataset dataset, Owners owners) throws NotFoundException {
+    return dataset.bean(OwnerService.class).getAllById(owners.ids);
+  }
+}
@@ -2,6 +2,7 @@ package at.ac.tuwien.sepr.assignment.individual;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 
 /**
  * Main entry point for the SEPR Individual Assignment application.
@@ -9,12 +10,16 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  */
 @SpringBootApplication
 public class SeprIndividualAssignmentApplication {
+  private static final int STARTUP_STEP_CAPACITY = 10_000;
 
   /**
    * Starts the Spring Boot application.
+   * The startup steps are recorded for the startup report and the {@code startup} actuator endpoint.
    */
   public static void main(String[] args) {
-    SpringApplication.run(SeprIndividualAssignmentApplication.class, args);
+    SpringApplication application = new SpringApplication(SeprIndividualAssignmentApplication.class);
+    application.setApplicationStartup(new BufferingApplicationStartup(STARTUP_STEP_CAPACITY));
+    application.run(args);
   }
 
 }
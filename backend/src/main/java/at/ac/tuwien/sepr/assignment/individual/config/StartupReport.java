@@ -0,0 +1,134 @@
+package at.ac.tuwien.sepr.assignment.individual.config;
+
+import at.ac.tuwien.sepr.assignment.individual.exception.FatalException;
+import java.lang.invoke.MethodHandles;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.StreamSupport;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.ApplicationStartupAware;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.PriorityOrdered;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+
+/**
+ * Logs a startup report once the application is ready to serve requests:
+ * the JVM uptime until then, and the beans whose creation took longest.
+ * The time reported for a bean excludes the beans created as its dependencies,
+ * so slow beans like the {@code dataGeneratorBean} stand out on their own.
+ * The report needs the startup steps to be buffered, as done by {@code SeprIndividualAssignmentApplication.main};
+ * the same steps are served by the {@code startup} actuator endpoint.
+ */
+@Configuration
+public class StartupReport {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final String BEAN_INSTANTIATION = "spring.beans.instantiate";
+  private static final String APPLICATION_STEPS = "app.";
+  private static final String DATASOURCE_INIT = "app.datasource.init";
+
+  private final int maxEntries;
+
+  /**
+   * Creates the report.
+   *
+   * @param maxEntries the number of slowest steps listed, 0 disables the report
+   */
+  public StartupReport(@Value("${app.startup-report.max-entries:20}") int maxEntries) {
+    this.maxEntries = maxEntries;
+  }
+
+  /**
+   * Opens the first database connection as soon as the data source is created, recorded as its own startup step.
+   * The first connection starts the connection pool and opens the database,
+   * which would otherwise be accounted to the schema migration.
+   *
+   * @return the post processor timing the first connection
+   */
+  @Bean
+  static BeanPostProcessor dataSourceInitStep() {
+    return new DataSourceInitStep();
+  }
+
+  /**
+   * Logs the startup report.
+   *
+   * @param event the event signalling that the application is ready
+   */
+  @EventListener
+  public void report(ApplicationReadyEvent event) {
+    if (maxEntries <= 0 || !(event.getApplicationContext().getApplicationStartup() instanceof BufferingApplicationStartup startup)) {
+      return;
+    }
+    List<StartupTimeline.TimelineEvent> events = startup.getBufferedTimeline().getEvents();
+    Map<Long, Duration> nested = new HashMap<>();
+    for (StartupTimeline.TimelineEvent e : events) {
+      if (e.getStartupStep().getParentId() != null) {
+        nested.merge(e.getStartupStep().getParentId(), e.getDuration(), Duration::plus);
+      }
+    }
+    var report = new StringBuilder("Ready %.3f s after JVM start, slowest startup steps without nested beans:"
+        .formatted(ManagementFactory.getRuntimeMXBean().getUptime() / 1000.0));
+    events.stream()
+        .filter(e -> e.getStartupStep().getName().equals(BEAN_INSTANTIATION) || e.getStartupStep().getName().startsWith(APPLICATION_STEPS))
+        .map(e -> Map.entry(label(e.getStartupStep()), e.getDuration().minus(nested.getOrDefault(e.getStartupStep().getId(), Duration.ZERO))))
+        .sorted(Map.Entry.<String, Duration>comparingByValue(Comparator.reverseOrder()))
+        .limit(maxEntries)
+        .forEach(entry -> report.append("%n%8d ms  %s".formatted(entry.getValue().toMillis(), entry.getKey())));
+    LOG.info(report.toString());
+  }
+
+  private static String label(StartupStep step) {
+    String beanName = StreamSupport.stream(step.getTags().spliterator(), false)
+        .filter(tag -> tag.getKey().equals("beanName"))
+        .map(StartupStep.Tag::getValue)
+        .findFirst()
+        .orElse("?");
+    return step.getName().equals(BEAN_INSTANTIATION) ? beanName : step.getName() + " (" + beanName + ")";
+  }
+
+  private static final class DataSourceInitStep implements BeanPostProcessor, ApplicationStartupAware, PriorityOrdered {
+    private ApplicationStartup applicationStartup = ApplicationStartup.DEFAULT;
+
+    @Override
+    public void setApplicationStartup(ApplicationStartup applicationStartup) {
+      this.applicationStartup = applicationStartup;
+    }
+
+    @Override
+    public int getOrder() {
+      return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+      if (bean instanceof DataSource dataSource) {
+        StartupStep step = applicationStartup.start(DATASOURCE_INIT).tag("beanName", beanName);
+        try (Connection connection = dataSource.getConnection()) {
+          LOG.debug("Connected to {}", connection.getMetaData().getURL());
+        } catch (SQLException e) {
+          throw new FatalException("Could not connect to the database", e);
+        } finally {
+          step.end();
+        }
+      }
+      return bean;
+    }
+  }
+}
@@ -15,12 +15,15 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 public class WebConfig implements WebMvcConfigurer {
 
   /**
-   * Configures CORS to allow all origins and HTTP methods.
+   * Configures CORS to allow all origins and HTTP methods,
+   * and exposes the pagination cursor header to the frontend.
    *
    * @param registry the {@link CorsRegistry} to configure
    */
   @Override
   public void addCorsMappings(CorsRegistry registry) {
-    registry.addMapping("/**").allowedMethods("GET", "POST", "OPTIONS", "HEAD", "DELETE", "PUT", "PATCH");
+    registry.addMapping("/**")
+        .allowedMethods("GET", "POST", "OPTIONS", "HEAD", "DELETE", "PUT", "PATCH")
+        .exposedHeaders("X-Next-Cursor");
   }
 }
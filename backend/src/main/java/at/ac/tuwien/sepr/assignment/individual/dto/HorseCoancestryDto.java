@@ -0,0 +1,12 @@
+package at.ac.tuwien.sepr.assignment.individual.dto;
+
+/**
+ * Represents a Data Transfer Object (DTO) for the coancestry (kinship coefficient) of two horses,
+ * i.e. the inbreeding coefficient a foal of the two would have.
+ */
+public record HorseCoancestryDto(
+    long id,
+    long otherId,
+    double coancestry
+) {
+}
@@ -0,0 +1,20 @@
+package at.ac.tuwien.sepr.assignment.individual.dto;
+
+import at.ac.tuwien.sepr.assignment.individual.type.Sex;
+import java.time.LocalDate;
+
+/**
+ * Represents a Data Transfer Object (DTO) for a descendant of a horse.
+ * This record encapsulates the horse's essential attributes together with
+ * the generation it belongs to, relative to the horse whose descendants were requested.
+ */
+public record HorseDescendantDto(
+    Long id,
+    String name,
+    LocalDate dateOfBirth,
+    Sex sex,
+    Long motherId,
+    Long fatherId,
+    int generation
+) {
+}
@@ -12,12 +12,14 @@ public class HorseFamilyDto {
   public Long id;
   public String name;
   public LocalDate dateOfBirth;
+  public Long imageId;
   public HorseFamilyDto father;
   public HorseFamilyDto mother;
 
-  public HorseFamilyDto(Long id, String name, LocalDate dateOfBirth) {
+  public HorseFamilyDto(Long id, String name, LocalDate dateOfBirth, Long imageId) {
     this.id = id;
     this.name = name;
     this.dateOfBirth = dateOfBirth;
+    this.imageId = imageId;
   }
 }
\ No newline at end of file
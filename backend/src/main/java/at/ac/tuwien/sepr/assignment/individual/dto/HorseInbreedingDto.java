@@ -0,0 +1,11 @@
+package at.ac.tuwien.sepr.assignment.individual.dto;
+
+/**
+ * Represents a Data Transfer Object (DTO) for Wright's inbreeding coefficient of a horse,
+ * i.e. the probability that both alleles at a locus are identical by descent.
+ */
+public record HorseInbreedingDto(
+    long id,
+    double inbreedingCoefficient
+) {
+}
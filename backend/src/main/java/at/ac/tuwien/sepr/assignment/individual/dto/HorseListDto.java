@@ -15,6 +15,7 @@ public record HorseListDto(
     LocalDate dateOfBirth,
     Sex sex,
     OwnerDto owner,
+    Long imageId,
     Long motherId,
     Long fatherId
 ) {
@@ -0,0 +1,14 @@
+package at.ac.tuwien.sepr.assignment.individual.dto;
+
+/**
+ * Everything the detail view of a horse shows, assembled with a single request:
+ * the horse with its owner, the summaries of its parents and the metadata of its image.
+ * Parents and image are null if the horse has none.
+ */
+public record HorseOverviewDto(
+    HorseDetailDto horse,
+    HorseListDto mother,
+    HorseListDto father,
+    ImageInfoDto image
+) {
+}
@@ -0,0 +1,75 @@
+package at.ac.tuwien.sepr.assignment.individual.dto;
+
+import at.ac.tuwien.sepr.assignment.individual.type.HorseSort;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a sorted horse search result, after which the next page starts.
+ * Clients only ever see the encoded, opaque form of the cursor.
+ *
+ * @param sort the order the cursor was created for
+ * @param id the ID of the last horse on the previous page
+ * @param key the sort key of the last horse on the previous page, or null when sorting by ID
+ */
+public record HorseSearchCursor(
+    HorseSort sort,
+    long id,
+    String key
+) {
+  private static final String SEPARATOR = "\n";
+
+  /**
+   * Creates the cursor pointing behind the given horse in the given order.
+   *
+   * @param sort the order of the search result
+   * @param last the last horse of the current page
+   * @return the cursor for the next page
+   */
+  public static HorseSearchCursor after(HorseSort sort, HorseListDto last) {
+    return switch (sort) {
+      case ID -> new HorseSearchCursor(sort, last.id(), null);
+      case NAME -> new HorseSearchCursor(sort, last.id(), last.name());
+      case DATE_OF_BIRTH -> new HorseSearchCursor(sort, last.id(), last.dateOfBirth().toString());
+    };
+  }
+
+  /**
+   * Decodes a cursor previously created by {@link #encode()}.
+   *
+   * @param token the opaque cursor token
+   * @return the decoded cursor
+   * @throws IllegalArgumentException if {@code token} is not a valid cursor
+   */
+  public static HorseSearchCursor decode(String token) {
+    String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(SEPARATOR, 3);
+    if (parts.length != 3) {
+      throw new IllegalArgumentException("Malformed cursor");
+    }
+    var cursor = new HorseSearchCursor(HorseSort.valueOf(parts[0]), Long.parseLong(parts[1]), parts[2]);
+    return switch (cursor.sort()) {
+      case ID -> new HorseSearchCursor(cursor.sort(), cursor.id(), null);
+      case NAME -> cursor;
+      case DATE_OF_BIRTH -> {
+        try {
+          LocalDate.parse(cursor.key());
+        } catch (DateTimeParseException e) {
+          throw new IllegalArgumentException("Malformed cursor", e);
+        }
+        yield cursor;
+      }
+    };
+  }
+
+  /**
+   * Encodes this cursor into an opaque, URL-safe token.
+   *
+   * @return the token to hand out to clients
+   */
+  public String encode() {
+    String raw = sort + SEPARATOR + id + SEPARATOR + (key == null ? "" : key);
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+}
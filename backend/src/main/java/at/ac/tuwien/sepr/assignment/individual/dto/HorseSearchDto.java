@@ -1,5 +1,6 @@
 package at.ac.tuwien.sepr.assignment.individual.dto;
 
+import at.ac.tuwien.sepr.assignment.individual.type.HorseSort;
 import at.ac.tuwien.sepr.assignment.individual.type.Sex;
 import java.time.LocalDate;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -7,6 +8,8 @@ import org.springframework.format.annotation.DateTimeFormat;
 /**
  * DTO to bundle the query parameters used in searching horses.
  * Each field can be null, in which case this field is not filtered by.
+ * If {@code sort} is null, the result is ordered by ID.
+ * {@code cursor} is the opaque token returned with the previous page, if the next page is requested.
  */
 public record HorseSearchDto(
     String name,
@@ -15,6 +18,31 @@ public record HorseSearchDto(
     LocalDate bornBefore,
     Sex sex,
     String ownerName,
-    Integer limit
+    Integer limit,
+    HorseSort sort,
+    String cursor
 ) {
+
+  /**
+   * Creates search parameters for the first page in the default order.
+   *
+   * @param name substring of the horse's name
+   * @param description substring of the horse's description
+   * @param bornBefore exclusive upper bound of the date of birth
+   * @param sex sex of the horse
+   * @param ownerName substring of the owner's full name
+   * @param limit maximum number of horses to return
+   */
+  public HorseSearchDto(String name, String description, LocalDate bornBefore, Sex sex, String ownerName, Integer limit) {
+    this(name, description, bornBefore, sex, ownerName, limit, null, null);
+  }
+
+  /**
+   * Returns the order of the search result, falling back to {@link HorseSort#ID} if none is given.
+   *
+   * @return the effective sort order
+   */
+  public HorseSort sortOrDefault() {
+    return sort == null ? HorseSort.ID : sort;
+  }
 }
@@ -3,9 +3,27 @@ package at.ac.tuwien.sepr.assignment.individual.dto;
 /**
  * Represents a Data Transfer Object (DTO) for owner details.
  * This record encapsulates the essential information about an owner.
+ *
+ * @param fileType the media type of the image
+ * @param image the content of the image
+ * @param contentHash the hex encoded SHA-256 hash of the content, or null if not computed yet
  */
 public record ImageCreateDto(
     String fileType,
-    byte[] image
+    byte[] image,
+    String contentHash
 ) {
+  public ImageCreateDto(String fileType, byte[] image) {
+    this(fileType, image, null);
+  }
+
+  /**
+   * Returns a copy of this DTO with the given content hash.
+   *
+   * @param contentHash the hex encoded SHA-256 hash of the content
+   * @return the DTO including the hash
+   */
+  public ImageCreateDto withContentHash(String contentHash) {
+    return new ImageCreateDto(fileType, image, contentHash);
+  }
 }
@@ -0,0 +1,22 @@
+package at.ac.tuwien.sepr.assignment.individual.dto;
+
+import at.ac.tuwien.sepr.assignment.individual.type.ImageSize;
+
+/**
+ * Represents a Data Transfer Object (DTO) for the metadata of an image.
+ * This record describes an image without holding its content in memory.
+ *
+ * @param id the ID of the image
+ * @param variant the size variant described
+ * @param fileType the media type of the image
+ * @param size the size of the image content in bytes
+ * @param contentHash the hex encoded SHA-256 hash of the content
+ */
+public record ImageInfoDto(
+    long id,
+    ImageSize variant,
+    String fileType,
+    long size,
+    String contentHash
+) {
+}
@@ -0,0 +1,17 @@
+package at.ac.tuwien.sepr.assignment.individual.dto;
+
+import java.util.List;
+
+/**
+ * Represents the reasons why a row of a bulk import was not imported.
+ *
+ * @param row the number of the line the row starts on
+ * @param ref the ref of the row, if it has one
+ * @param errors the reasons the row was rejected
+ */
+public record ImportErrorDto(
+    int row,
+    String ref,
+    List<String> errors
+) {
+}
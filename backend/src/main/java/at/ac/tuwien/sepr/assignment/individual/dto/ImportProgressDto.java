@@ -0,0 +1,28 @@
+package at.ac.tuwien.sepr.assignment.individual.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Represents the state of a running or finished bulk import.
+ * While the import runs, only the counters are filled in;
+ * the final state, with {@code complete} set, also lists every rejected row and the IDs assigned to the rows with a ref.
+ *
+ * @param complete whether the import has finished
+ * @param rows the number of rows read
+ * @param ownersCreated the number of owners stored so far
+ * @param horsesCreated the number of horses stored so far
+ * @param failed the number of rows rejected so far
+ * @param errors the rejected rows, ordered by row
+ * @param createdIds the IDs of the stored entities by the ref of their row
+ */
+public record ImportProgressDto(
+    boolean complete,
+    int rows,
+    int ownersCreated,
+    int horsesCreated,
+    int failed,
+    List<ImportErrorDto> errors,
+    Map<String, Long> createdIds
+) {
+}
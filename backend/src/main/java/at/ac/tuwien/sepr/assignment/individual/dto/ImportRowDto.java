@@ -0,0 +1,29 @@
+package at.ac.tuwien.sepr.assignment.individual.dto;
+
+import at.ac.tuwien.sepr.assignment.individual.type.ImportRowType;
+import at.ac.tuwien.sepr.assignment.individual.type.Sex;
+import java.time.LocalDate;
+
+/**
+ * Represents a single row of a bulk import, describing either an owner or a horse.
+ * Rows may be given a {@code ref}, by which other rows of the same import refer to them:
+ * {@code owner}, {@code mother} and {@code father} name the ref of another row,
+ * while {@code ownerId}, {@code motherId} and {@code fatherId} refer to entities that are already stored.
+ */
+public record ImportRowDto(
+    ImportRowType type,
+    String ref,
+    String firstName,
+    String lastName,
+    String name,
+    String description,
+    LocalDate dateOfBirth,
+    Sex sex,
+    String owner,
+    Long ownerId,
+    String mother,
+    Long motherId,
+    String father,
+    Long fatherId
+) {
+}
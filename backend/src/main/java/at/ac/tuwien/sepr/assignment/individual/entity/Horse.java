@@ -9,13 +9,13 @@ import java.time.LocalDate;
 public record Horse(
     Long id,
     String name,
-    String breed,
-    String color,
     String description,
-    String type,
-    Integer age,
     LocalDate dateOfBirth,
-    Sex sex
+    Sex sex,
+    Long ownerId,
+    Long imageId,
+    Long motherId,
+    Long fatherId
 ) {
 
 }
@@ -0,0 +1,15 @@
+package at.ac.tuwien.sepr.assignment.individual.entity;
+
+import at.ac.tuwien.sepr.assignment.individual.type.ImageSize;
+
+/**
+ * Represents the metadata of an image, or one of its size variants, in the persistent data store, without its content.
+ */
+public record ImageInfo(
+    long id,
+    ImageSize variant,
+    String fileType,
+    long size,
+    String contentHash
+) {
+}
@@ -1,7 +1,7 @@
 package at.ac.tuwien.sepr.assignment.individual.mapper;
 
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseDescendantDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseDetailDto;
-import at.ac.tuwien.sepr.assignment.individual.dto.HorseListDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.OwnerDto;
 import at.ac.tuwien.sepr.assignment.individual.entity.Horse;
 import at.ac.tuwien.sepr.assignment.individual.exception.FatalException;
@@ -22,57 +22,55 @@ public class HorseMapper {
 
 
   /**
-   * Converts a {@link Horse} entity into a {@link HorseListDto}.
-   * The given map of owners must contain the owner referenced by the horse.
+   * Converts a {@link Horse} entity into a {@link HorseDetailDto}.
+   * The given maps must contain the owners and parents referenced by the horse.
    *
-   * @param horse  the horse entity to convert
-   * @param owners a map of horse owners by their ID
-   * @return the converted {@link HorseListDto}
+   * @param horse   the horse entity to convert
+   * @param owners  a map of horse owners by their ID
+   * @return the converted {@link HorseDetailDto}
    */
-  public HorseListDto entityToListDto(Horse horse, Map<Long, OwnerDto> owners) {
+  public HorseDetailDto entityToDetailDto(
+      Horse horse,
+      Map<Long, OwnerDto> owners) {
     LOG.trace("entityToDto({})", horse);
     if (horse == null) {
       return null;
     }
 
-    return new HorseListDto(
+    return new HorseDetailDto(
         horse.id(),
         horse.name(),
         horse.description(),
         horse.dateOfBirth(),
         horse.sex(),
         getOwner(horse, owners),
+        horse.imageId(),
         horse.motherId(),
         horse.fatherId()
     );
   }
 
   /**
-   * Converts a {@link Horse} entity into a {@link HorseDetailDto}.
-   * The given maps must contain the owners and parents referenced by the horse.
+   * Converts a {@link Horse} entity into a {@link HorseDescendantDto}.
    *
-   * @param horse   the horse entity to convert
-   * @param owners  a map of horse owners by their ID
-   * @return the converted {@link HorseDetailDto}
+   * @param horse      the horse entity to convert
+   * @param generation the generation of the horse relative to the horse whose descendants were requested
+   * @return the converted {@link HorseDescendantDto}
    */
-  public HorseDetailDto entityToDetailDto(
-      Horse horse,
-      Map<Long, OwnerDto> owners) {
-    LOG.trace("entityToDto({})", horse);
+  public HorseDescendantDto entityToDescendantDto(Horse horse, int generation) {
+    LOG.trace("entityToDescendantDto({}, {})", horse, generation);
     if (horse == null) {
       return null;
     }
 
-    return new HorseDetailDto(
+    return new HorseDescendantDto(
         horse.id(),
         horse.name(),
-        horse.description(),
         horse.dateOfBirth(),
         horse.sex(),
-        getOwner(horse, owners),
-        horse.imageId(),
         horse.motherId(),
-        horse.fatherId()
+        horse.fatherId(),
+        generation
     );
   }
 
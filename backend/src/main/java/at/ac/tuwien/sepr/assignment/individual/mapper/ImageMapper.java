@@ -1,7 +1,9 @@
 package at.ac.tuwien.sepr.assignment.individual.mapper;
 
 import at.ac.tuwien.sepr.assignment.individual.dto.ImageDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.ImageInfoDto;
 import at.ac.tuwien.sepr.assignment.individual.entity.Image;
+import at.ac.tuwien.sepr.assignment.individual.entity.ImageInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -27,4 +29,15 @@ public class ImageMapper {
     return image == null ? null : new ImageDto(image.id(), image.fileType(), image.image());
   }
 
+  /**
+   * Converts a {@link ImageInfo} entity into a {@link ImageInfoDto}.
+   *
+   * @param info the image metadata to convert
+   * @return the converted {@link ImageInfoDto}
+   */
+  public ImageInfoDto entityToInfoDto(ImageInfo info) {
+    LOG.trace("entityToInfoDto({})", info);
+    return info == null ? null : new ImageInfoDto(info.id(), info.variant(), info.fileType(), info.size(), info.contentHash());
+  }
+
 }
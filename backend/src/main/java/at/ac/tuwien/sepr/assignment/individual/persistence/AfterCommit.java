@@ -0,0 +1,55 @@
+package at.ac.tuwien.sepr.assignment.individual.persistence;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Applies changes to state kept in memory next to the database, like indexes and caches,
+ * once the change of the database they reflect is committed.
+ * Within a transaction the change is deferred until the transaction commits, and dropped if it rolls back;
+ * without a transaction the database change is already committed, so the change is applied right away.
+ * Deferred changes are applied in the order they were registered.
+ * Changes made outside the database that have to be undone if the transaction rolls back are registered with {@link #onRollback}.
+ */
+public final class AfterCommit {
+
+  private AfterCommit() {
+  }
+
+  /**
+   * Runs {@code action} once the current transaction is committed, or right away if there is none.
+   *
+   * @param action the change to apply
+   */
+  public static void run(Runnable action) {
+    if (TransactionSynchronizationManager.isActualTransactionActive() && TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          action.run();
+        }
+      });
+    } else {
+      action.run();
+    }
+  }
+
+  /**
+   * Runs {@code action} if the current transaction is rolled back.
+   * Without a transaction there is nothing to roll back, so the action is never run.
+   *
+   * @param action the change that undoes a change made outside the database
+   */
+  public static void onRollback(Runnable action) {
+    if (TransactionSynchronizationManager.isActualTransactionActive() && TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCompletion(int status) {
+          if (status == STATUS_ROLLED_BACK) {
+            action.run();
+          }
+        }
+      });
+    }
+  }
+}
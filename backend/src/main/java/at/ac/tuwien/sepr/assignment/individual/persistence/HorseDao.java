@@ -2,11 +2,18 @@ package at.ac.tuwien.sepr.assignment.individual.persistence;
 
 
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseCreateDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseListDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchCursor;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseUpdateDto;
 import at.ac.tuwien.sepr.assignment.individual.entity.Horse;
+import at.ac.tuwien.sepr.assignment.individual.entity.Owner;
 import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 /**
  * Data Access Object for horses.
@@ -29,6 +36,33 @@ public interface HorseDao {
    */
   Horse create(HorseCreateDto horse);
 
+  /**
+   * Create all horses in {@code horses} in the persistent data store with a single batch.
+   * The parents of each horse have to exist already.
+   *
+   * @param horses the horses to create
+   * @return the created horses, in the order of {@code horses}
+   */
+  List<Horse> createAll(List<HorseCreateDto> horses);
+
+  /**
+   * Get the horses with the given IDs, with a single lookup.
+   * IDs of horses that do not exist are not contained in the result.
+   *
+   * @param ids the IDs of the horses
+   * @return every existing horse by its ID
+   */
+  Map<Long, Horse> getAllById(Collection<Long> ids);
+
+  /**
+   * Get the horses with the given IDs as they are shown in the horse list, together with their owners, with a single lookup.
+   * IDs of horses that do not exist are not contained in the result.
+   *
+   * @param ids the IDs of the horses
+   * @return every existing horse with its owner by its ID
+   */
+  Map<Long, HorseListDto> getHorseListById(Collection<Long> ids);
+
 
   /**
    * Update the horse with the ID given in {@code horse}
@@ -69,11 +103,50 @@ public interface HorseDao {
   List<Horse> getHorseFamilyById(long id, int gen);
 
   /**
-   * Get the horses with given serach parameters.
+   * Get read access to the parents of all horses, for walking pedigrees horse by horse.
+   *
+   * @return a live view of the parent relation of all horses
+   */
+  PedigreeView getPedigree();
+
+  /**
+   * Get the descendants of a horse, generation by generation, i.e. first its foals, then their foals and so on.
+   * Each descendant is contained only once, in the closest generation it belongs to.
+   * The traversal stops after {@code gen} generations or as soon as {@code limit} descendants have been found.
+   *
+   * @param id id of the horse whose descendants are wanted
+   * @param gen maximum number of generations to descend
+   * @param limit maximum number of descendants to return
+   * @return the descendants grouped by generation, the first list containing the foals; each list is ordered by ID
+   */
+  List<List<Horse>> getDescendantsById(long id, int gen, int limit);
+
+  /**
+   * Get the horses with given serach parameters, that come after {@code after}
+   * in the order requested by {@code horse.sort()},
+   * as they are shown in the horse list: only the listed properties, together with the owner, read with a single query.
+   *
+   * @param horse search parameters
+   * @param after position after which the page starts, or null for the first page
+   * @return list of horses with their owners that matches the search parameters
+   */
+  List<HorseListDto> searchHorseList(HorseSearchDto horse, HorseSearchCursor after);
+
+  /**
+   * Hand the horses with given serach parameters to {@code action} one by one like {@link #searchHorseList(HorseSearchDto, HorseSearchCursor)},
+   * reading them from a database cursor instead of loading the whole result into memory.
    *
    * @param horse search parameters
-   * @return list of horses that matches the search parameters
+   * @param after position after which the result starts, or null to start at the beginning
+   * @param action callback receiving every matching horse with its owner
    */
-  List<Horse> searchHorses(HorseSearchDto horse);
+  void streamHorseList(HorseSearchDto horse, HorseSearchCursor after, Consumer<HorseListDto> action);
 
+  /**
+   * Hand every horse together with its owner to {@code action}, ordered by ID,
+   * reading the rows from a forward-only cursor instead of collecting them.
+   *
+   * @param action callback receiving every horse and its owner, which is null for horses without owner
+   */
+  void exportHorses(BiConsumer<Horse, Owner> action);
 }
@@ -3,8 +3,12 @@ package at.ac.tuwien.sepr.assignment.individual.persistence;
 
 import at.ac.tuwien.sepr.assignment.individual.dto.ImageCreateDto;
 import at.ac.tuwien.sepr.assignment.individual.entity.Image;
+import at.ac.tuwien.sepr.assignment.individual.entity.ImageInfo;
 import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
+import at.ac.tuwien.sepr.assignment.individual.type.ImageSize;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 /**
@@ -21,23 +25,30 @@ public interface ImageDao {
 
   /**
    * Create the file with the file data {@code file}
-   * in the persistent data store.
+   * in the persistent data store, holding a single reference.
    *
    * @param file the file to create
    * @return the creates file
    */
   Image create(ImageCreateDto file);
 
+  /**
+   * Take a reference to an existing file with the given content, instead of storing the content again.
+   *
+   * @param contentHash the hex encoded SHA-256 hash of the content
+   * @param fileType the media type of the file
+   * @return the ID of the file a reference was taken to, or null if no such file exists
+   */
+  Long acquire(String contentHash, String fileType);
+
 
   /**
-   * Delete the file with the ID given in {@code file}
-   * with the data given in {@code file}
-   * in the persistent data store.
+   * Release one reference to the file with the given ID.
+   * The file is deleted from the persistent data store once no references remain.
    *
-   * @param id the ID of the file to get
-   * @throws NotFoundException if the Image with the given ID does not exist in the persistent data store
+   * @param id the ID of the file to release
    */
-  void delete(long id) throws NotFoundException;
+  void release(long id);
 
 
   /**
@@ -48,4 +59,41 @@ public interface ImageDao {
    * @throws NotFoundException if the Image with the given ID does not exist in the persistent data store
    */
   Image getById(long id) throws NotFoundException;
+
+  /**
+   * Get the metadata of a file, or of one of its size variants, by its ID from the persistent data store,
+   * without reading its content.
+   *
+   * @param id the ID of the file to get
+   * @param variant the size variant to get
+   * @return the metadata of the file
+   * @throws NotFoundException if the Image with the given ID, or the requested variant of it, does not exist in the persistent data store
+   */
+  ImageInfo getInfoById(long id, ImageSize variant) throws NotFoundException;
+
+  /**
+   * Copy a part of the content of a file, or of one of its size variants, from the persistent data store to {@code out},
+   * without loading the content into memory.
+   *
+   * @param id the ID of the file to read
+   * @param variant the size variant to read
+   * @param offset the index of the first byte to copy
+   * @param length the number of bytes to copy; {@code offset + length} must not exceed the size of the file
+   * @param out the stream to copy the content to
+   * @throws NotFoundException if the Image with the given ID does not exist in the persistent data store
+   * @throws IOException if writing to {@code out} fails
+   */
+  void writeContent(long id, ImageSize variant, long offset, long length, OutputStream out) throws NotFoundException, IOException;
+
+  /**
+   * Store a size variant of a file in the persistent data store, replacing an existing one.
+   * Variants are deleted together with their file.
+   *
+   * @param id the ID of the file the variant belongs to
+   * @param variant the size of the variant, must not be {@link ImageSize#ORIGINAL}
+   * @param fileType the media type of the variant
+   * @param content the content of the variant
+   * @param contentHash the hex encoded SHA-256 hash of the content
+   */
+  void createVariant(long id, ImageSize variant, String fileType, byte[] content, String contentHash);
 }
@@ -5,6 +5,7 @@ import at.ac.tuwien.sepr.assignment.individual.dto.OwnerSearchDto;
 import at.ac.tuwien.sepr.assignment.individual.entity.Owner;
 import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
 import java.util.Collection;
+import java.util.List;
 
 /**
  * Data Access Object for owners.
@@ -34,6 +35,8 @@ public interface OwnerDao {
    * 
    * <p>
    * A owner is considered matched, if its name contains {@code searchParameters.name} as a substring.
+   * Owners whose name starts with {@code searchParameters.name} come first,
+   * followed by owners with a later word of their name starting with it, and then all other matches.
    * The returned stream of owners never contains more than {@code searchParameters.maxAmount} elements,
    *  even if there would be more matches in the persistent data store.
    * </p>
@@ -51,4 +54,12 @@ public interface OwnerDao {
    * @return the creates owner
    */
   Owner create(OwnerCreateDto owner);
+
+  /**
+   * Create all owners in {@code owners} in the persistent data store with a single batch.
+   *
+   * @param owners the owners to create
+   * @return the created owners, in the order of {@code owners}
+   */
+  List<Owner> createAll(List<OwnerCreateDto> owners);
 }
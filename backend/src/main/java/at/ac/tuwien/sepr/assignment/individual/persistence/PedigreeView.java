@@ -0,0 +1,44 @@
+package at.ac.tuwien.sepr.assignment.individual.persistence;
+
+/**
+ * Read access to the parent relation of all horses in the persistent data store,
+ * for algorithms that walk pedigrees horse by horse.
+ * Parents that are unknown, or no longer stored, are reported as {@link #NO_PARENT}.
+ */
+public interface PedigreeView {
+  /**
+   * Parent ID reported for horses without the respective parent.
+   */
+  long NO_PARENT = 0L;
+
+  /**
+   * Check whether a horse with the given ID exists.
+   *
+   * @param id the ID of the horse
+   * @return true if the horse exists
+   */
+  boolean contains(long id);
+
+  /**
+   * Get the mother of a horse.
+   *
+   * @param id the ID of the horse
+   * @return the ID of the mother, or {@link #NO_PARENT}
+   */
+  long motherOf(long id);
+
+  /**
+   * Get the father of a horse.
+   *
+   * @param id the ID of the horse
+   * @return the ID of the father, or {@link #NO_PARENT}
+   */
+  long fatherOf(long id);
+
+  /**
+   * Get the IDs of all horses.
+   *
+   * @return the IDs of all horses, in no particular order
+   */
+  long[] ids();
+}
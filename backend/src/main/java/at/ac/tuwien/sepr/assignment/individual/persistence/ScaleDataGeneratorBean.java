@@ -0,0 +1,331 @@
+package at.ac.tuwien.sepr.assignment.individual.persistence;
+
+import at.ac.tuwien.sepr.assignment.individual.dto.ImageCreateDto;
+import at.ac.tuwien.sepr.assignment.individual.service.ImageService;
+import at.ac.tuwien.sepr.assignment.individual.type.Sex;
+import jakarta.annotation.PostConstruct;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.imageio.ImageIO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * This component is only instantiated when the {@code datagen-scale} profile is active.
+ * It populates the database with a large synthetic dataset, to reproduce production load locally:
+ * {@code app.datagen.owners} owners and {@code app.datagen.horses} horses, spread over {@code app.datagen.generations}
+ * generations. Apart from the founders, most horses have a mother and a father from the previous generation;
+ * fathers are picked with a strongly skewed popularity, as a few stallions sire most foals.
+ * Every fourth horse shows one of {@code app.datagen.images} generated images.
+ *
+ * <p>The dataset is fully determined by {@code app.datagen.seed}. It is planned in memory first and then inserted
+ * with JDBC batches of {@code app.datagen.batch-size} rows, on {@code app.datagen.threads} threads in parallel,
+ * one generation after another so that parents are always stored before their foals.
+ * Generated rows get IDs from {@value #ID_OFFSET} downwards, so they neither collide with the test data
+ * nor with user-entered data. If the database already holds a dataset of the configured size, it is kept.
+ * Activate this profile by adding {@code -Dspring.profiles.active=datagen-scale} to your runtime arguments.
+ */
+@Component
+@Profile("datagen-scale")
+public class ScaleDataGeneratorBean {
+  private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  static final long ID_OFFSET = -1_000_000L;
+  private static final int FIRST_YEAR = 1980;
+  private static final int YEARS = 40;
+
+  private static final String[] FIRST_NAMES = {
+      "Anna", "Ben", "Clara", "David", "Emma", "Felix", "Greta", "Hannah", "Ivan", "Julia",
+      "Karl", "Lena", "Marko", "Nina", "Oskar", "Paula", "Quentin", "Rosa", "Stefan", "Theresa"};
+  private static final String[] LAST_NAMES = {
+      "Bauer", "Fischer", "Gruber", "Hofer", "Huber", "Koller", "Lang", "Mayer", "Moser", "Novak",
+      "Pichler", "Reiter", "Schmid", "Steiner", "Wagner", "Weber", "Wimmer", "Winkler", "Wolf", "Zach"};
+  private static final String[] NAME_PREFIXES = {
+      "Silver", "Golden", "Dark", "Wild", "Little", "Royal", "Brave", "Swift", "Lucky", "Misty",
+      "Noble", "Proud", "Quiet", "Red", "Shining", "Storm", "Sunny", "Thunder", "Velvet", "Winter"};
+  private static final String[] NAME_SUFFIXES = {
+      "Arrow", "Blaze", "Comet", "Dancer", "Dream", "Flame", "Ghost", "Heart", "Jewel", "Knight",
+      "Legend", "Moon", "Prince", "Rain", "Shadow", "Spirit", "Star", "Storm", "Wind", "Wonder"};
+
+  private static final String SQL_CREATE_OWNER =
+      "INSERT INTO owner (id, first_name, last_name, description) VALUES (?, ?, ?, ?)";
+  private static final String SQL_CREATE_HORSE =
+      "INSERT INTO horse (id, name, description, date_of_birth, sex, owner_id, image_id, mother_id, father_id)"
+          + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final ImageService imageService;
+  private final int owners;
+  private final int horses;
+  private final int generations;
+  private final int images;
+  private final long seed;
+  private final int batchSize;
+  private final int threads;
+
+  /**
+   * Constructs the {@code ScaleDataGeneratorBean}.
+   *
+   * @param jdbcTemplate the template the batches are inserted with
+   * @param transactionTemplate the template every batch is inserted in a transaction with
+   * @param imageService the service the generated images are stored with
+   * @param owners the number of owners to generate
+   * @param horses the number of horses to generate
+   * @param generations the number of generations the horses are spread over, at most {@value #YEARS}
+   * @param images the number of distinct images to generate
+   * @param seed the seed the whole dataset is derived from
+   * @param batchSize the number of rows inserted with one batch
+   * @param threads the number of threads inserting batches in parallel, or 0 for one per processor
+   */
+  public ScaleDataGeneratorBean(JdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                ImageService imageService,
+                                @Value("${app.datagen.owners:10000}") int owners,
+                                @Value("${app.datagen.horses:1000000}") int horses,
+                                @Value("${app.datagen.generations:10}") int generations,
+                                @Value("${app.datagen.images:100}") int images,
+                                @Value("${app.datagen.seed:42}") long seed,
+                                @Value("${app.datagen.batch-size:5000}") int batchSize,
+                                @Value("${app.datagen.threads:0}") int threads) {
+    if (owners < 1 || horses < 0 || generations < 1 || generations > YEARS || images < 0 || batchSize < 1 || threads < 0) {
+      throw new IllegalArgumentException("Invalid app.datagen configuration");
+    }
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = transactionTemplate;
+    this.imageService = imageService;
+    this.owners = owners;
+    this.horses = horses;
+    this.generations = generations;
+    this.images = images;
+    this.seed = seed;
+    this.batchSize = batchSize;
+    this.threads = threads == 0 ? Runtime.getRuntime().availableProcessors() : threads;
+  }
+
+  /**
+   * Generates the dataset upon bean initialization, unless a dataset of the configured size is already stored.
+   *
+   * @throws InterruptedException if interrupted while waiting for the inserting threads
+   */
+  @PostConstruct
+  public void generateData() throws InterruptedException {
+    Long storedOwners = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM owner WHERE id <= ?", Long.class, ID_OFFSET);
+    Long storedHorses = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM horse WHERE id <= ?", Long.class, ID_OFFSET);
+    if (storedOwners == owners && storedHorses == horses) {
+      LOGGER.info("Keeping generated dataset of {} owners and {} horses", owners, horses);
+      return;
+    }
+
+    LOGGER.info("Generating {} owners and {} horses in {} generations with seed {}...", owners, horses, generations, seed);
+    final long start = System.nanoTime();
+    deleteGeneratedData();
+    long[] imageIds = createImages();
+    Plan plan = new Plan(imageIds);
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      insertInBatches(executor, 0, owners, this::insertOwners);
+      for (int g = 0; g < generations; g++) {
+        insertInBatches(executor, plan.generationStart[g], plan.generationStart[g + 1], (from, to) -> insertHorses(plan, from, to));
+      }
+    } finally {
+      executor.shutdown();
+    }
+    // every horse showing an image holds a reference to it
+    jdbcTemplate.update("UPDATE image SET ref_count = (SELECT COUNT(*) FROM horse WHERE horse.image_id = image.id)"
+        + " WHERE id IN (SELECT DISTINCT image_id FROM horse WHERE id <= ?)", ID_OFFSET);
+    LOGGER.info("Finished generating {} owners and {} horses in {} ms.", owners, horses, (System.nanoTime() - start) / 1_000_000);
+  }
+
+  private void deleteGeneratedData() {
+    jdbcTemplate.update("UPDATE horse SET mother_id = NULL, father_id = NULL WHERE id <= ?", ID_OFFSET);
+    jdbcTemplate.update("DELETE FROM horse WHERE id <= ?", ID_OFFSET);
+    jdbcTemplate.update("DELETE FROM owner WHERE id <= ?", ID_OFFSET);
+  }
+
+  /**
+   * Stores the generated images, each a gradient between two colours derived from the seed.
+   * Images are stored through the image service, so they end up in the configured image store and get their variants.
+   */
+  private long[] createImages() {
+    SplittableRandom random = new SplittableRandom(seed ^ 0x1A6E5L);
+    long[] ids = new long[images];
+    for (int i = 0; i < images; i++) {
+      BufferedImage image = new BufferedImage(160, 120, BufferedImage.TYPE_INT_RGB);
+      Graphics2D graphics = image.createGraphics();
+      graphics.setPaint(new GradientPaint(0, 0, new Color(random.nextInt(0x1000000)), 160, 120, new Color(random.nextInt(0x1000000))));
+      graphics.fillRect(0, 0, 160, 120);
+      graphics.dispose();
+      ByteArrayOutputStream content = new ByteArrayOutputStream();
+      try {
+        ImageIO.write(image, "png", content);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      ids[i] = imageService.create(new ImageCreateDto("image/png", content.toByteArray())).id();
+    }
+    return ids;
+  }
+
+  /**
+   * Inserts the rows with the indexes {@code from} (inclusive) to {@code to} (exclusive) in parallel batches,
+   * and waits until all of them are stored.
+   */
+  private void insertInBatches(ExecutorService executor, int from, int to, BatchInsert insert) throws InterruptedException {
+    List<Future<?>> batches = new ArrayList<>();
+    for (int batchStart = from; batchStart < to; batchStart += batchSize) {
+      int batchFrom = batchStart;
+      int batchTo = Math.min(batchStart + batchSize, to);
+      batches.add(executor.submit(() -> transactionTemplate.executeWithoutResult(status -> insert.insert(batchFrom, batchTo))));
+    }
+    for (Future<?> batch : batches) {
+      try {
+        batch.get();
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("Inserting generated data failed", e.getCause());
+      }
+    }
+  }
+
+  private void insertOwners(int from, int to) {
+    jdbcTemplate.batchUpdate(SQL_CREATE_OWNER, new BatchPreparedStatementSetter() {
+      @Override
+      public void setValues(PreparedStatement ps, int i) throws SQLException {
+        int index = from + i;
+        ps.setLong(1, ID_OFFSET - index);
+        ps.setString(2, FIRST_NAMES[index % FIRST_NAMES.length]);
+        ps.setString(3, LAST_NAMES[index / FIRST_NAMES.length % LAST_NAMES.length]);
+        ps.setString(4, index % 3 == 0 ? "Generated owner " + index : null);
+      }
+
+      @Override
+      public int getBatchSize() {
+        return to - from;
+      }
+    });
+  }
+
+  private void insertHorses(Plan plan, int from, int to) {
+    jdbcTemplate.batchUpdate(SQL_CREATE_HORSE, new BatchPreparedStatementSetter() {
+      @Override
+      public void setValues(PreparedStatement ps, int i) throws SQLException {
+        int index = from + i;
+        ps.setLong(1, ID_OFFSET - index);
+        ps.setString(2, NAME_PREFIXES[plan.name[index] % NAME_PREFIXES.length] + " " + NAME_SUFFIXES[plan.name[index] / NAME_PREFIXES.length]);
+        ps.setString(3, index % 4 == 0 ? "Generated horse of generation " + plan.generationOf(index) : null);
+        ps.setDate(4, Date.valueOf(LocalDate.ofEpochDay(plan.dateOfBirth[index])));
+        ps.setString(5, (plan.female[index] ? Sex.FEMALE : Sex.MALE).name());
+        setReference(ps, 6, plan.owner[index] < 0 ? null : ID_OFFSET - plan.owner[index]);
+        setReference(ps, 7, plan.image[index] < 0 ? null : plan.imageIds[plan.image[index]]);
+        setReference(ps, 8, plan.mother[index] < 0 ? null : ID_OFFSET - plan.mother[index]);
+        setReference(ps, 9, plan.father[index] < 0 ? null : ID_OFFSET - plan.father[index]);
+      }
+
+      @Override
+      public int getBatchSize() {
+        return to - from;
+      }
+    });
+  }
+
+  private static void setReference(PreparedStatement ps, int parameterIndex, Long id) throws SQLException {
+    if (id == null) {
+      ps.setNull(parameterIndex, Types.BIGINT);
+    } else {
+      ps.setLong(parameterIndex, id);
+    }
+  }
+
+  @FunctionalInterface
+  private interface BatchInsert {
+    void insert(int from, int to);
+  }
+
+  /**
+   * The whole dataset, planned from the seed before anything is inserted.
+   * Horses are identified by their index; a reference of -1 stands for none.
+   */
+  private final class Plan {
+    private final long[] imageIds;
+    private final int[] generationStart = new int[generations + 1];
+    private final int[] name = new int[horses];
+    private final long[] dateOfBirth = new long[horses];
+    private final boolean[] female = new boolean[horses];
+    private final int[] owner = new int[horses];
+    private final int[] image = new int[horses];
+    private final int[] mother = new int[horses];
+    private final int[] father = new int[horses];
+
+    Plan(long[] imageIds) {
+      this.imageIds = imageIds;
+      SplittableRandom random = new SplittableRandom(seed);
+      int yearsPerGeneration = YEARS / generations;
+      int[] mares = new int[0];
+      int[] stallions = new int[0];
+      for (int g = 0; g < generations; g++) {
+        generationStart[g] = (int) ((long) horses * g / generations);
+        generationStart[g + 1] = (int) ((long) horses * (g + 1) / generations);
+        // foals are born after every horse of the previous generation
+        long firstDay = LocalDate.of(FIRST_YEAR + g * yearsPerGeneration, 1, 1).toEpochDay();
+        long days = LocalDate.of(FIRST_YEAR + (g + 1) * yearsPerGeneration, 1, 1).toEpochDay() - firstDay;
+        int mareCount = 0;
+        int stallionCount = 0;
+        int[] nextMares = new int[generationStart[g + 1] - generationStart[g]];
+        int[] nextStallions = new int[nextMares.length];
+
+        for (int i = generationStart[g]; i < generationStart[g + 1]; i++) {
+          name[i] = random.nextInt(NAME_PREFIXES.length * NAME_SUFFIXES.length);
+          dateOfBirth[i] = firstDay + random.nextLong(days);
+          female[i] = random.nextBoolean();
+          owner[i] = random.nextInt(10) == 0 ? -1 : random.nextInt(owners);
+          image[i] = imageIds.length == 0 || random.nextInt(4) != 0 ? -1 : random.nextInt(imageIds.length);
+          boolean hasParents = mares.length > 0 && stallions.length > 0 && random.nextInt(10) != 0;
+          mother[i] = hasParents ? mares[random.nextInt(mares.length)] : -1;
+          // cubing a uniform number makes low indexes far more likely: a few stallions sire most foals
+          father[i] = hasParents ? stallions[(int) (stallions.length * Math.pow(random.nextDouble(), 3))] : -1;
+          if (female[i]) {
+            nextMares[mareCount++] = i;
+          } else {
+            nextStallions[stallionCount++] = i;
+          }
+        }
+        mares = Arrays.copyOf(nextMares, mareCount);
+        stallions = Arrays.copyOf(nextStallions, stallionCount);
+      }
+    }
+
+    int generationOf(int index) {
+      int g = 0;
+      while (generationStart[g + 1] <= index) {
+        g++;
+      }
+      return g;
+    }
+  }
+}
@@ -0,0 +1,161 @@
+package at.ac.tuwien.sepr.assignment.individual.persistence;
+
+import at.ac.tuwien.sepr.assignment.individual.exception.FatalException;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.ApplicationStartupAware;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.stereotype.Component;
+
+/**
+ * Brings the database schema up to date as soon as the data source is created, before any other bean can use it.
+ * The migrations are the scripts {@code sql/migration/V<version>__<description>.sql} on the classpath.
+ * Each of them is applied once, in the order of the versions, and recorded in the {@code schema_history} table
+ * together with a checksum of its content. A recorded script that was changed afterwards stops the startup,
+ * as databases migrated before and after the change would end up with different schemas.
+ *
+ * <p>H2 commits every DDL statement on its own, so a failing migration may leave some of its changes behind.
+ * It is not recorded and runs again on the next startup, which is why the scripts only use statements
+ * that can be repeated, like {@code CREATE TABLE IF NOT EXISTS}.
+ */
+@Component
+public class SchemaMigrator implements BeanPostProcessor, ApplicationStartupAware {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final String LOCATION = "classpath*:sql/migration/*.sql";
+  private static final Pattern SCRIPT_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+
+  private static final String SQL_CREATE_HISTORY = """
+      CREATE TABLE IF NOT EXISTS schema_history
+      (
+          version INT PRIMARY KEY,
+          description VARCHAR(255) NOT NULL,
+          checksum BIGINT NOT NULL,
+          installed_on TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+          execution_time_ms BIGINT NOT NULL
+      )""";
+  private static final String SQL_SELECT_HISTORY = "SELECT version, checksum FROM schema_history";
+  private static final String SQL_INSERT_HISTORY =
+      "INSERT INTO schema_history (version, description, checksum, execution_time_ms) VALUES (?, ?, ?, ?)";
+
+  private ApplicationStartup applicationStartup = ApplicationStartup.DEFAULT;
+
+  private record Migration(int version, String description, Resource script, long checksum) {
+  }
+
+  @Override
+  public void setApplicationStartup(ApplicationStartup applicationStartup) {
+    this.applicationStartup = applicationStartup;
+  }
+
+  @Override
+  public Object postProcessAfterInitialization(Object bean, String beanName) {
+    if (bean instanceof DataSource dataSource) {
+      StartupStep step = applicationStartup.start("app.datasource.migrate").tag("beanName", beanName);
+      try {
+        step.tag("applied", String.valueOf(migrate(dataSource)));
+      } finally {
+        step.end();
+      }
+    }
+    return bean;
+  }
+
+  /**
+   * Applies all migrations that were not applied to the database yet.
+   *
+   * @param dataSource the database to migrate
+   * @return the number of migrations applied
+   * @throws FatalException if the migrations cannot be read, a recorded migration was changed, or a migration fails
+   */
+  public int migrate(DataSource dataSource) {
+    LOG.trace("migrate()");
+    List<Migration> migrations = loadMigrations();
+    try (Connection connection = dataSource.getConnection()) {
+      try (Statement statement = connection.createStatement()) {
+        statement.execute(SQL_CREATE_HISTORY);
+      }
+      Map<Integer, Long> applied = new HashMap<>();
+      try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(SQL_SELECT_HISTORY)) {
+        while (rs.next()) {
+          applied.put(rs.getInt("version"), rs.getLong("checksum"));
+        }
+      }
+
+      int count = 0;
+      for (Migration migration : migrations) {
+        Long checksum = applied.remove(migration.version());
+        if (checksum == null) {
+          apply(connection, migration);
+          count++;
+        } else if (checksum != migration.checksum()) {
+          throw new FatalException("Migration %s was changed after it had been applied to the database".formatted(migration.script().getFilename()));
+        }
+      }
+      if (!applied.isEmpty()) {
+        LOG.warn("Database has migrations {} applied that are unknown to this version of the application", applied.keySet());
+      }
+      LOG.info("Database schema is at version {}, {} migrations applied", migrations.isEmpty() ? 0 : migrations.getLast().version(), count);
+      return count;
+    } catch (SQLException e) {
+      throw new FatalException("Could not migrate the database schema", e);
+    }
+  }
+
+  private static void apply(Connection connection, Migration migration) throws SQLException {
+    LOG.info("Applying migration {}", migration.script().getFilename());
+    long start = System.nanoTime();
+    ScriptUtils.executeSqlScript(connection, migration.script());
+    try (PreparedStatement statement = connection.prepareStatement(SQL_INSERT_HISTORY)) {
+      statement.setInt(1, migration.version());
+      statement.setString(2, migration.description());
+      statement.setLong(3, migration.checksum());
+      statement.setLong(4, (System.nanoTime() - start) / 1_000_000);
+      statement.executeUpdate();
+    }
+  }
+
+  private static List<Migration> loadMigrations() {
+    try {
+      List<Migration> migrations = new ArrayList<>();
+      for (Resource script : new PathMatchingResourcePatternResolver().getResources(LOCATION)) {
+        Matcher matcher = SCRIPT_NAME.matcher(script.getFilename());
+        if (!matcher.matches()) {
+          throw new FatalException("Migration %s is not named V<version>__<description>.sql".formatted(script.getFilename()));
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(script.getContentAsByteArray());
+        migrations.add(new Migration(Integer.parseInt(matcher.group(1)), matcher.group(2).replace('_', ' '), script, checksum.getValue()));
+      }
+      migrations.sort(Comparator.comparingInt(Migration::version));
+      for (int i = 1; i < migrations.size(); i++) {
+        if (migrations.get(i).version() == migrations.get(i - 1).version()) {
+          throw new FatalException("There are several migrations with version " + migrations.get(i).version());
+        }
+      }
+      return migrations;
+    } catch (IOException e) {
+      throw new FatalException("Could not read the database migrations", e);
+    }
+  }
+}
@@ -1,20 +1,48 @@
 package at.ac.tuwien.sepr.assignment.individual.persistence.impl;
 
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseCreateDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseListDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchCursor;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseUpdateDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.OwnerDto;
 import at.ac.tuwien.sepr.assignment.individual.entity.Horse;
+import at.ac.tuwien.sepr.assignment.individual.entity.Owner;
 import at.ac.tuwien.sepr.assignment.individual.exception.FatalException;
 import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
+import at.ac.tuwien.sepr.assignment.individual.persistence.AfterCommit;
 import at.ac.tuwien.sepr.assignment.individual.persistence.HorseDao;
+import at.ac.tuwien.sepr.assignment.individual.persistence.PedigreeView;
+import at.ac.tuwien.sepr.assignment.individual.type.HorseSort;
 import at.ac.tuwien.sepr.assignment.individual.type.Sex;
+import io.micrometer.core.annotation.Timed;
 import java.lang.invoke.MethodHandles;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import javax.sql.DataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.core.simple.JdbcClient;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Repository;
@@ -23,6 +51,7 @@ import org.springframework.stereotype.Repository;
  * JDBC implementation of {@link HorseDao} for interacting with the database.
  */
 @Repository
+@Timed("dao.query")
 public class HorseJdbcDao implements HorseDao {
   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
@@ -57,54 +86,108 @@ public class HorseJdbcDao implements HorseDao {
   private static final String SQL_DELETE =
       "DELETE FROM " + TABLE_NAME + " WHERE id = :id";
 
-  private static final String SQL_FAMILY =
-      """
-      
-          WITH RECURSIVE family_tree (id, name, date_of_birth, mother_id, father_id, level) AS (
-          -- Base: Start with the root horse
-          SELECT
-              h.id,
-              h.name,
-              h.date_of_birth,
-              h.mother_id,
-              h.father_id,
-              0 AS level
-          FROM
-              horse h
-          WHERE
-              h.id = :id
-          UNION ALL
-          SELECT
-              h.id,
-              h.name,
-              h.date_of_birth,
-              h.mother_id,
-              h.father_id,
-              ft.level + 1
-          FROM
-              horse h
-          JOIN
-              family_tree ft ON h.id IN (ft.mother_id, ft.father_id)
-          WHERE
-              ft.level < :gen
-      )
-      SELECT
-          id,
-          name,
-          date_of_birth,
-          mother_id,
-          father_id
-      FROM
-          family_tree
-      ORDER BY
-          level, id;
-      """;
+  // one index lookup per parent column instead of an OR, which could not use both indexes
+  private static final String SQL_SELECT_CHILDREN =
+      "SELECT * FROM " + TABLE_NAME + " WHERE mother_id IN (:ids)"
+          + " UNION"
+          + " SELECT * FROM " + TABLE_NAME + " WHERE father_id IN (:ids)"
+          + " ORDER BY id"
+          + " LIMIT :limit";
+
+  private static final String SQL_SELECT_PEDIGREE =
+      "SELECT id, name, date_of_birth, image_id, mother_id, father_id FROM " + TABLE_NAME;
+
+  private static final String SQL_SELECT_BY_IDS =
+      "SELECT * FROM " + TABLE_NAME + " WHERE id IN (:ids)";
+
+  private static final String SQL_SELECT_TEXTS =
+      "SELECT id, name, description FROM " + TABLE_NAME;
+
+  // only the columns shown in the list; owner columns are renamed, so that the horse columns keep their names
+  private static final String SQL_LIST_COLUMNS =
+      "h.id, h.name, h.description, h.date_of_birth, h.sex, h.owner_id, h.image_id, h.mother_id, h.father_id,"
+          + " o.first_name AS owner_first_name, o.last_name AS owner_last_name, o.description AS owner_description";
+
+  // owner columns are renamed, so that the horse columns keep their names for mapRow
+  private static final String SQL_SELECT_LIST_BY_IDS =
+      "SELECT " + SQL_LIST_COLUMNS + " FROM " + TABLE_NAME + " h LEFT JOIN owner o ON o.id = h.owner_id WHERE h.id IN (:ids)";
+
+  // owner columns are renamed, so that the horse columns keep their names for mapRow
+  private static final String SQL_EXPORT =
+      "SELECT h.*, o.first_name AS owner_first_name, o.last_name AS owner_last_name, o.description AS owner_description"
+          + " FROM " + TABLE_NAME + " h LEFT JOIN owner o ON o.id = h.owner_id"
+          + " ORDER BY h.id";
 
   private final JdbcClient jdbcClient;
+  private final NamedParameterJdbcTemplate streamingJdbcTemplate;
+  private final NamedParameterJdbcTemplate batchJdbcTemplate;
+  private final PedigreeIndex pedigreeIndex;
+  private final HorseTextIndex textIndex;
+  private final int maxTextMatches;
+  private final int maxTextCandidates;
 
+  /**
+   * Creates the DAO.
+   *
+   * @param jdbcClient the client used for all regular queries
+   * @param dataSource the data source the streaming search reads its cursor from, and batches are written to
+   * @param fetchSize the number of rows the streaming search fetches from the database per round trip
+   * @param pedigreeIndex the in-memory pedigree answering family tree queries
+   * @param textIndex the in-memory trigram index answering the name and description filters of the search
+   * @param maxTextMatches the largest number of text index matches passed to the database as an ID list;
+   *                       less selective text filters are evaluated by the database instead
+   * @param maxTextCandidates the largest number of text index candidates checked against their texts;
+   *                          text filters with more candidates are evaluated by the database without checking any
+   */
   @Autowired
-  public HorseJdbcDao(JdbcClient jdbcClient) {
+  public HorseJdbcDao(JdbcClient jdbcClient,
+                      DataSource dataSource,
+                      @Value("${app.search.fetch-size:500}") int fetchSize,
+                      PedigreeIndex pedigreeIndex,
+                      HorseTextIndex textIndex,
+                      @Value("${app.search.max-text-matches:1000}") int maxTextMatches,
+                      @Value("${app.search.max-text-candidates:20000}") int maxTextCandidates) {
     this.jdbcClient = jdbcClient;
+    this.pedigreeIndex = pedigreeIndex;
+    this.textIndex = textIndex;
+    this.maxTextMatches = maxTextMatches;
+    this.maxTextCandidates = maxTextCandidates;
+    JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    jdbcTemplate.setFetchSize(fetchSize);
+    this.streamingJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    this.batchJdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+  }
+
+  /**
+   * Loads the pedigree of all horses into the {@link PedigreeIndex} once the application has started,
+   * i.e. after test data may have been generated directly in the database.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void loadPedigreeIndex() {
+    LOG.trace("loadPedigreeIndex()");
+    pedigreeIndex.load(sink -> jdbcClient
+        .sql(SQL_SELECT_PEDIGREE)
+        .query((RowCallbackHandler) result -> sink.accept(
+            result.getLong("id"),
+            result.getString("name"),
+            result.getDate("date_of_birth").toLocalDate(),
+            result.getObject("image_id", Long.class),
+            result.getObject("mother_id", Long.class),
+            result.getObject("father_id", Long.class))));
+  }
+
+  /**
+   * Loads the name and description of all horses into the {@link HorseTextIndex} once the application has started.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void loadTextIndex() {
+    LOG.trace("loadTextIndex()");
+    textIndex.load(sink -> jdbcClient
+        .sql(SQL_SELECT_TEXTS)
+        .query((RowCallbackHandler) result -> sink.accept(
+            result.getLong("id"),
+            result.getString("name"),
+            result.getString("description"))));
   }
 
   /**
@@ -168,11 +251,17 @@ public class HorseJdbcDao implements HorseDao {
             .param("image_id", horse.imageId())
             .param("mother_id", horse.motherId())
             .param("father_id", horse.fatherId())
-            .update(keyHolder);
+            .update(keyHolder, "id");
+
+    long id = keyHolder.getKey().longValue();
+    AfterCommit.run(() -> {
+      pedigreeIndex.put(id, horse.name(), horse.dateOfBirth(), horse.imageId(), horse.motherId(), horse.fatherId());
+      textIndex.put(id, horse.name(), horse.description());
+    });
 
     // Create a new Horse record instance directly
     return new Horse(
-            keyHolder.getKey().longValue(),
+            id,
             horse.name(),
             horse.description(),
             horse.dateOfBirth(),
@@ -183,6 +272,87 @@ public class HorseJdbcDao implements HorseDao {
             horse.fatherId());
   }
 
+  /**
+   * Creates several horses with a single JDBC batch and adds them to the in-memory indexes once they are committed.
+   *
+   * @param horses The data transfer objects containing the horse information to store
+   * @return The created horses with their generated IDs, in the order of {@code horses}
+   */
+  @Override
+  public List<Horse> createAll(List<HorseCreateDto> horses) {
+    LOG.trace("createAll({} horses)", horses.size());
+    if (horses.isEmpty()) {
+      return List.of();
+    }
+    SqlParameterSource[] batch = horses.stream()
+        .map(horse -> new MapSqlParameterSource()
+            .addValue("name", horse.name())
+            .addValue("description", horse.description())
+            .addValue("date_of_birth", horse.dateOfBirth())
+            .addValue("sex", horse.sex().toString())
+            .addValue("owner_id", horse.ownerId())
+            .addValue("image_id", horse.imageId())
+            .addValue("mother_id", horse.motherId())
+            .addValue("father_id", horse.fatherId()))
+        .toArray(SqlParameterSource[]::new);
+    GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+    batchJdbcTemplate.batchUpdate(SQL_CREATE, batch, keyHolder, new String[] {"id"});
+
+    List<Map<String, Object>> keys = keyHolder.getKeyList();
+    List<Horse> created = new ArrayList<>(horses.size());
+    for (int i = 0; i < horses.size(); i++) {
+      HorseCreateDto horse = horses.get(i);
+      long id = ((Number) keys.get(i).values().iterator().next()).longValue();
+      created.add(new Horse(id, horse.name(), horse.description(), horse.dateOfBirth(), horse.sex(),
+          horse.ownerId(), horse.imageId(), horse.motherId(), horse.fatherId()));
+    }
+    AfterCommit.run(() -> {
+      for (Horse horse : created) {
+        pedigreeIndex.put(horse.id(), horse.name(), horse.dateOfBirth(), horse.imageId(), horse.motherId(), horse.fatherId());
+        textIndex.put(horse.id(), horse.name(), horse.description());
+      }
+    });
+    return created;
+  }
+
+  /**
+   * Retrieves several horses with a single query.
+   *
+   * @param ids The IDs of the horses
+   * @return Every existing horse by its ID
+   */
+  @Override
+  public Map<Long, Horse> getAllById(Collection<Long> ids) {
+    LOG.trace("getAllById({} ids)", ids.size());
+    Map<Long, Horse> horses = new HashMap<>();
+    if (ids.isEmpty()) {
+      return horses;
+    }
+    jdbcClient.sql(SQL_SELECT_BY_IDS)
+        .param("ids", ids)
+        .query((RowCallbackHandler) result -> horses.put(result.getLong("id"), mapRow(result, result.getRow())));
+    return horses;
+  }
+
+  /**
+   * Retrieves several horses as list DTOs, joining their owners in the same query.
+   *
+   * @param ids The IDs of the horses
+   * @return Every existing horse with its owner by its ID
+   */
+  @Override
+  public Map<Long, HorseListDto> getHorseListById(Collection<Long> ids) {
+    LOG.trace("getHorseListById({} ids)", ids.size());
+    Map<Long, HorseListDto> horses = new HashMap<>();
+    if (ids.isEmpty()) {
+      return horses;
+    }
+    jdbcClient.sql(SQL_SELECT_LIST_BY_IDS)
+        .param("ids", ids)
+        .query((RowCallbackHandler) result -> horses.put(result.getLong("id"), mapListRow(result, result.getRow())));
+    return horses;
+  }
+
   /**
    * Updates an existing horse record in the database.
    *
@@ -211,6 +381,10 @@ public class HorseJdbcDao implements HorseDao {
           "Could not update horse with ID " + horse.id() + ", because it does not exist"
       );
     }
+    AfterCommit.run(() -> {
+      pedigreeIndex.put(horse.id(), horse.name(), horse.dateOfBirth(), horse.imageId(), horse.motherId(), horse.fatherId());
+      textIndex.put(horse.id(), horse.name(), horse.description());
+    });
 
     return new Horse(
         horse.id(),
@@ -241,10 +415,16 @@ public class HorseJdbcDao implements HorseDao {
     if (deleted == 0) {
       throw new NotFoundException("Could not delete horse with ID " + id + ", because it does not exist");
     }
+    AfterCommit.run(() -> {
+      pedigreeIndex.remove(id);
+      textIndex.remove(id);
+    });
   }
 
   /**
    * Retrieves horses in the family tree of a specific horse.
+   * The family is answered from the in-memory {@link PedigreeIndex}, which is loaded on first use
+   * if the application has not finished starting yet.
    *
    * @param id The ID of the root horse for which to retrieve the family
    * @param gen The number of generations to include in the family tree
@@ -253,92 +433,250 @@ public class HorseJdbcDao implements HorseDao {
   @Override
   public List<Horse> getHorseFamilyById(long id, int gen) {
     LOG.trace("getHorseFamilyById({})", id);
+    return getPedigreeIndex().family(id, gen);
+  }
+
+  /**
+   * Provides the parent relation of all horses through the in-memory {@link PedigreeIndex}.
+   *
+   * @return the pedigree index
+   */
+  @Override
+  public PedigreeView getPedigree() {
+    LOG.trace("getPedigree()");
+    return getPedigreeIndex();
+  }
+
+  /**
+   * Returns the {@link PedigreeIndex}, loading it first if the application has not finished starting yet.
+   *
+   * @return the loaded pedigree index
+   */
+  private PedigreeIndex getPedigreeIndex() {
+    if (!pedigreeIndex.isLoaded()) {
+      loadPedigreeIndex();
+    }
+    return pedigreeIndex;
+  }
+
+  /**
+   * Retrieves the descendants of a horse with a breadth-first traversal.
+   * Every generation is fetched with a single query over the indexed parent columns,
+   * restricted to the number of descendants still allowed by {@code limit},
+   * so neither the number of queries nor the size of the result can exceed the given bounds.
+   *
+   * @param id The ID of the horse whose descendants to retrieve
+   * @param gen The maximum number of generations to descend
+   * @param limit The maximum number of descendants to retrieve
+   * @return The descendants grouped by generation
+   */
+  @Override
+  public List<List<Horse>> getDescendantsById(long id, int gen, int limit) {
+    LOG.trace("getDescendantsById({}, {}, {})", id, gen, limit);
+    List<List<Horse>> generations = new ArrayList<>();
+    Set<Long> visited = new HashSet<>();
+    visited.add(id);
+    Set<Long> parents = Set.of(id);
+    int remaining = limit;
+
+    while (generations.size() < gen && !parents.isEmpty() && remaining > 0) {
+      // horses descending from several parents of the previous generation are returned once per query,
+      // but may already have been found in an earlier generation when parents are related
+      List<Horse> children = jdbcClient
+          .sql(SQL_SELECT_CHILDREN)
+          .param("ids", parents)
+          .param("limit", remaining + visited.size())
+          .query(this::mapRow)
+          .list()
+          .stream()
+          .filter(child -> visited.add(child.id()))
+          .limit(remaining)
+          .toList();
+      if (children.isEmpty()) {
+        break;
+      }
+      generations.add(children);
+      remaining -= children.size();
+      parents = children.stream().map(Horse::id).collect(Collectors.toSet());
+    }
+    return generations;
+  }
+
+  /**
+   * Searches for horses based on various filter criteria,
+   * selecting only the columns of the horse list and joining the owner in the same query.
+   * The result is ordered by the requested sort key with the ID as tie-breaker,
+   * and starts after {@code after} using a keyset predicate instead of an offset,
+   * so that every page costs the same regardless of its position.
+   *
+   * @param horse The search parameters to filter horses
+   * @param after The position after which the page starts, or null for the first page
+   * @return The matching horses with their owners
+   */
+  @Override
+  public List<HorseListDto> searchHorseList(HorseSearchDto horse, HorseSearchCursor after) {
+    LOG.trace("searchHorseList({}, {})", horse, after);
+    Map<String, Object> params = new HashMap<>();
+    String sql = buildSearchSql(horse, after, params);
+
     return jdbcClient
-        .sql(SQL_FAMILY)
-        .param("id", id)
-        .param("gen", gen)
-        .query(this::mapFamilyRow)
+        .sql(sql)
+        .params(params)
+        .query(this::mapListRow)
         .list();
   }
 
   /**
-   * Searches for horses based on various filter criteria.
+   * Searches for horses like {@link #searchHorseList(HorseSearchDto, HorseSearchCursor)},
+   * but hands every row to {@code action} while reading a forward-only result set
+   * with the configured fetch size, instead of collecting the result into a list.
    *
    * @param horse The search parameters to filter horses
-   * @return A list of horses matching the search criteria
+   * @param after The position after which the result starts, or null to start at the beginning
+   * @param action The callback receiving each matching horse with its owner in order
    */
   @Override
-  public List<Horse> searchHorses(HorseSearchDto horse) {
-    LOG.trace("searchHorses({})", horse);
+  public void streamHorseList(HorseSearchDto horse, HorseSearchCursor after, Consumer<HorseListDto> action) {
+    LOG.trace("streamHorseList({}, {})", horse, after);
+    Map<String, Object> params = new HashMap<>();
+    String sql = buildSearchSql(horse, after, params);
 
-    // Build the base query
-    StringBuilder sql = new StringBuilder();
-    sql.append("SELECT h.* FROM ").append(TABLE_NAME).append(" h");
+    streamingJdbcTemplate.query(sql, params, (RowCallbackHandler) result -> action.accept(mapListRow(result, result.getRow())));
+  }
 
-    // Add JOIN for owner filter if needed
-    boolean needsOwnerJoin = horse.ownerName() != null && !horse.ownerName().isBlank();
-    if (needsOwnerJoin) {
-      sql.append(" LEFT JOIN owner o ON o.id = h.owner_id");
-    }
+  /**
+   * Hands every horse with its owner to {@code action}, joining the owner in the same query,
+   * while reading a forward-only result set with the configured fetch size.
+   *
+   * @param action The callback receiving each horse and its owner, or null if it has none
+   */
+  @Override
+  public void exportHorses(BiConsumer<Horse, Owner> action) {
+    LOG.trace("exportHorses()");
+    streamingJdbcTemplate.query(SQL_EXPORT, Map.of(), (RowCallbackHandler) result -> {
+      Long ownerId = result.getObject("owner_id", Long.class);
+      Owner owner = ownerId == null ? null : new Owner(
+          ownerId,
+          result.getString("owner_first_name"),
+          result.getString("owner_last_name"),
+          result.getString("owner_description"));
+      action.accept(mapRow(result, result.getRow()), owner);
+    });
+  }
+
+  /**
+   * Builds the SQL statement for a horse search selecting {@link #SQL_LIST_COLUMNS} and collects the named parameters it uses.
+   *
+   * @param horse The search parameters to filter horses
+   * @param after The position after which the result starts, or null to start at the beginning
+   * @param params The map the named parameters of the statement are put into
+   * @return The SQL statement
+   */
+  private String buildSearchSql(HorseSearchDto horse, HorseSearchCursor after, Map<String, Object> params) {
+    // Build the base query, the owner is always joined for its columns
+    StringBuilder sql = new StringBuilder();
+    sql.append("SELECT ").append(SQL_LIST_COLUMNS).append(" FROM ").append(TABLE_NAME).append(" h");
+    sql.append(" LEFT JOIN owner o ON o.id = h.owner_id");
 
     // Start WHERE clause
     sql.append(" WHERE 1=1"); // Always true to simplify adding conditions
 
-    // Prepare for named parameters
-    if (horse.description() != null && !horse.description().isBlank()) {
-      sql.append(" AND LOWER(COALESCE(h.description, '')) LIKE LOWER(CONCAT('%', :description, '%'))");
-    }
-
-    if (horse.name() != null && !horse.name().isBlank()) {
-      sql.append(" AND LOWER(h.name) LIKE LOWER(CONCAT('%', :name, '%'))");
-    }
+    appendTextFilter(sql, horse, params);
 
     if (horse.sex() != null) {
       sql.append(" AND h.sex = :sex");
+      params.put("sex", horse.sex().toString());
     }
 
     if (horse.bornBefore() != null) {
       sql.append(" AND h.date_of_birth < :bornBefore");
+      params.put("bornBefore", horse.bornBefore());
     }
 
-    if (needsOwnerJoin) {
-      sql.append(" AND UPPER(o.first_name || ' ' || o.last_name) LIKE UPPER(CONCAT('%', :ownerName, '%'))");
+    if (horse.ownerName() != null && !horse.ownerName().isBlank()) {
+      sql.append(" AND o.full_name_lower LIKE LOWER(CONCAT('%', :ownerName, '%'))");
+      params.put("ownerName", horse.ownerName());
     }
 
-    if (horse.limit() != null && horse.limit() > 0) {
-      sql.append(" LIMIT :limit");
+    HorseSort sort = horse.sortOrDefault();
+    String sortColumn = sortColumn(sort);
+    if (after != null) {
+      sql.append(sortColumn == null
+          ? " AND h.id > :afterId"
+          : " AND (" + sortColumn + " > :afterKey OR (" + sortColumn + " = :afterKey AND h.id > :afterId))");
+      params.put("afterId", after.id());
+      if (sort == HorseSort.NAME) {
+        params.put("afterKey", after.key());
+      } else if (sort == HorseSort.DATE_OF_BIRTH) {
+        params.put("afterKey", LocalDate.parse(after.key()));
+      }
     }
 
-    // Build the query with parameters
-    var query = jdbcClient.sql(sql.toString());
-
-    // Add parameters only once
-    if (horse.description() != null && !horse.description().isBlank()) {
-      query = query.param("description", horse.description());
+    sql.append(" ORDER BY ");
+    if (sortColumn != null) {
+      sql.append(sortColumn).append(", ");
     }
+    sql.append("h.id");
 
-    if (horse.name() != null && !horse.name().isBlank()) {
-      query = query.param("name", horse.name());
+    if (horse.limit() != null && horse.limit() > 0) {
+      sql.append(" LIMIT :limit");
+      params.put("limit", horse.limit());
     }
 
-    if (horse.sex() != null) {
-      query = query.param("sex", horse.sex().toString());
-    }
+    return sql.toString();
+  }
 
-    if (horse.bornBefore() != null) {
-      query = query.param("bornBefore", horse.bornBefore());
+  /**
+   * Appends the name and description filters of a horse search.
+   * The matching horses are looked up in the {@link HorseTextIndex} and passed as an ID list,
+   * which the database resolves through the primary key.
+   * If the filters match too many horses for an ID list, or are too broad for the index to check its candidates,
+   * the substring conditions are evaluated by the database.
+   *
+   * @param sql The statement to append the filter to
+   * @param horse The search parameters to filter horses
+   * @param params The map the named parameters of the statement are put into
+   */
+  private void appendTextFilter(StringBuilder sql, HorseSearchDto horse, Map<String, Object> params) {
+    String name = horse.name() != null && !horse.name().isBlank() ? horse.name() : null;
+    String description = horse.description() != null && !horse.description().isBlank() ? horse.description() : null;
+    if (name == null && description == null) {
+      return;
     }
-
-    if (needsOwnerJoin) {
-      query = query.param("ownerName", horse.ownerName());
+    if (!textIndex.isLoaded()) {
+      loadTextIndex();
     }
 
-    if (horse.limit() != null && horse.limit() > 0) {
-      query = query.param("limit", horse.limit());
+    long[] matches = textIndex.matching(name, description, maxTextCandidates);
+    if (matches != null && matches.length == 0) {
+      sql.append(" AND 1=0");
+    } else if (matches != null && matches.length <= maxTextMatches) {
+      sql.append(" AND h.id IN (:textMatches)");
+      params.put("textMatches", Arrays.stream(matches).boxed().toList());
+    } else {
+      if (description != null) {
+        sql.append(" AND LOWER(COALESCE(h.description, '')) LIKE LOWER(CONCAT('%', :description, '%'))");
+        params.put("description", description);
+      }
+      if (name != null) {
+        sql.append(" AND h.name_lower LIKE LOWER(CONCAT('%', :name, '%'))");
+        params.put("name", name);
+      }
     }
+  }
 
-    // Execute query and return results
-    return query.query(this::mapRow).list();
+  /**
+   * Returns the column a search result is ordered by before the ID tie-breaker.
+   *
+   * @param sort The requested order
+   * @return The qualified column name, or null if the result is ordered by ID only
+   */
+  private static String sortColumn(HorseSort sort) {
+    return switch (sort) {
+      case ID -> null;
+      case NAME -> "h.name";
+      case DATE_OF_BIRTH -> "h.date_of_birth";
+    };
   }
 
   /**
@@ -363,24 +701,28 @@ public class HorseJdbcDao implements HorseDao {
   }
 
   /**
-   * Maps a database result row to a Horse entity with minimal properties for family tree.
+   * Maps a database result row selected with {@link #SQL_LIST_COLUMNS} to a list DTO including the owner.
    *
-   * @param result The database result set containing the horse data
+   * @param result The database result set containing the horse and owner data
    * @param rownum The row number in the result set
-   * @return A Horse entity populated with essential family tree data
+   * @return The horse with its owner, which is null if the horse has none
    * @throws SQLException If an error occurs while accessing the result set
    */
-  private Horse mapFamilyRow(ResultSet result, int rownum) throws SQLException {
-    return new Horse(
+  private HorseListDto mapListRow(ResultSet result, int rownum) throws SQLException {
+    Long ownerId = result.getObject("owner_id", Long.class);
+    return new HorseListDto(
         result.getLong("id"),
         result.getString("name"),
-        null,
+        result.getString("description"),
         result.getDate("date_of_birth").toLocalDate(),
-        null,
-        null,
-        null,
+        Sex.valueOf(result.getString("sex")),
+        ownerId == null ? null : new OwnerDto(
+            ownerId,
+            result.getString("owner_first_name"),
+            result.getString("owner_last_name"),
+            result.getString("owner_description")),
+        result.getLong("image_id"),
         result.getLong("mother_id"),
-        result.getLong("father_id")
-    );
+        result.getLong("father_id"));
   }
 }
@@ -0,0 +1,344 @@
+package at.ac.tuwien.sepr.assignment.individual.persistence.impl;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Resident trigram index over the name and description of all horses, used to answer the
+ * case-insensitive substring filters of the horse search without scanning the table.
+ * For every field the lowercased text of each horse is kept together with an inverted index
+ * from each trigram (three consecutive characters) to the horses whose text contains it.
+ * The posting lists are sorted arrays of primitive IDs, so the index takes little more heap than the texts themselves.
+ * A query is answered by walking the shortest posting list of its trigrams and checking the candidates' texts,
+ * so the cost depends on the number of candidates and not on the number of horses.
+ * The index is filled by {@link HorseJdbcDao} at startup and kept in sync on every create, update and delete.
+ */
+@Component
+public class HorseTextIndex {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final int GRAM = 3;
+
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  private volatile boolean loaded;
+
+  private final Field names = new Field();
+  private final Field descriptions = new Field();
+
+  /**
+   * Returns whether the index has been filled from the persistent data store.
+   *
+   * @return true once {@link #load(Loader)} has completed
+   */
+  public boolean isLoaded() {
+    return loaded;
+  }
+
+  /**
+   * Replaces the content of the index with the horses supplied by {@code loader}.
+   *
+   * @param loader supplies every horse of the persistent data store
+   */
+  public void load(Loader loader) {
+    lock.writeLock().lock();
+    try {
+      names.clear();
+      descriptions.clear();
+      loader.load((id, name, description) -> {
+        names.append(id, normalize(name));
+        descriptions.append(id, normalize(description));
+      });
+      names.finishLoad();
+      descriptions.finishLoad();
+      loaded = true;
+      LOG.info("Loaded text index with {} horses", names.texts.size());
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Adds a horse to the index, or replaces the entry of the horse with the same ID.
+   *
+   * @param id the ID of the horse
+   * @param name the name of the horse
+   * @param description the description of the horse, or null
+   */
+  public void put(long id, String name, String description) {
+    lock.writeLock().lock();
+    try {
+      putUnlocked(id, name, description);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes a horse from the index.
+   *
+   * @param id the ID of the horse to remove
+   */
+  public void remove(long id) {
+    lock.writeLock().lock();
+    try {
+      names.remove(id);
+      descriptions.remove(id);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Finds the horses whose name and description contain the given texts, ignoring case.
+   * A missing description matches like an empty one.
+   * The texts of the candidates found by the trigrams are only checked if there are at most {@code maxCandidates} of them;
+   * broader queries, like those shorter than a trigram, are left to the caller before any text is checked.
+   *
+   * @param name the text the name has to contain, or null for no restriction
+   * @param description the text the description has to contain, or null for no restriction
+   * @param maxCandidates the largest number of candidates whose texts are checked
+   * @return the IDs of all matching horses in ascending order, or null if there are more than {@code maxCandidates} candidates
+   */
+  public long[] matching(String name, String description, int maxCandidates) {
+    lock.readLock().lock();
+    try {
+      List<Filter> filters = new ArrayList<>(2);
+      if (name != null) {
+        filters.add(new Filter(names, normalize(name)));
+      }
+      if (description != null) {
+        filters.add(new Filter(descriptions, normalize(description)));
+      }
+      if (filters.isEmpty()) {
+        throw new IllegalArgumentException("At least one text to search for is required");
+      }
+
+      // drive the search by the filter with the fewest candidates, check the others on the stored texts
+      Filter driver = filters.getFirst();
+      int driverCount = driver.candidateCount();
+      for (Filter filter : filters.subList(1, filters.size())) {
+        int count = filter.candidateCount();
+        if (count < driverCount) {
+          driver = filter;
+          driverCount = count;
+        }
+      }
+      if (driverCount > maxCandidates) {
+        return null;
+      }
+
+      long[] candidates = driver.candidates();
+      int count = 0;
+      for (long id : candidates) {
+        if (allMatch(filters, id)) {
+          candidates[count++] = id;
+        }
+      }
+      long[] result = Arrays.copyOf(candidates, count);
+      Arrays.sort(result);
+      return result;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void putUnlocked(long id, String name, String description) {
+    names.put(id, normalize(name));
+    descriptions.put(id, normalize(description));
+  }
+
+  private static boolean allMatch(List<Filter> filters, long id) {
+    for (Filter filter : filters) {
+      String text = filter.field().texts.get(id);
+      if (text == null || !text.contains(filter.query())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String normalize(String text) {
+    return text == null ? "" : text.toLowerCase(Locale.ROOT);
+  }
+
+  private static long gram(String text, int start) {
+    return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+  }
+
+  /**
+   * A query on one field.
+   * Its candidates are a superset of the horses matching it: the shortest posting list among the trigrams of the query,
+   * or all horses if the query is too short to contain a trigram.
+   */
+  private record Filter(Field field, String query) {
+    int candidateCount() {
+      if (query.length() < GRAM) {
+        return field.texts.size();
+      }
+      Postings shortest = shortestPostings();
+      return shortest == null ? 0 : shortest.size;
+    }
+
+    long[] candidates() {
+      if (query.length() < GRAM) {
+        return field.texts.keySet().stream().mapToLong(Long::longValue).toArray();
+      }
+      Postings shortest = shortestPostings();
+      return shortest == null ? new long[0] : Arrays.copyOf(shortest.ids, shortest.size);
+    }
+
+    private Postings shortestPostings() {
+      Postings shortest = null;
+      for (int i = 0; i + GRAM <= query.length(); i++) {
+        Postings postings = field.postings.get(gram(query, i));
+        if (postings == null) {
+          return null;
+        }
+        if (shortest == null || postings.size < shortest.size) {
+          shortest = postings;
+        }
+      }
+      return shortest;
+    }
+  }
+
+  /**
+   * Texts and trigram postings of one indexed column.
+   */
+  private static final class Field {
+    private final Map<Long, String> texts = new HashMap<>();
+    private final Map<Long, Postings> postings = new HashMap<>();
+
+    void clear() {
+      texts.clear();
+      postings.clear();
+    }
+
+    void put(long id, String text) {
+      remove(id);
+      texts.put(id, text);
+      for (long gram : grams(text)) {
+        postings.computeIfAbsent(gram, g -> new Postings()).add(id);
+      }
+    }
+
+    /**
+     * Adds a horse that is not indexed yet without keeping the postings sorted, as done while loading.
+     * {@link #finishLoad()} has to be called once all horses are added.
+     */
+    void append(long id, String text) {
+      texts.put(id, text);
+      for (long gram : grams(text)) {
+        postings.computeIfAbsent(gram, g -> new Postings()).append(id);
+      }
+    }
+
+    void finishLoad() {
+      postings.values().forEach(Postings::sortAndTrim);
+    }
+
+    void remove(long id) {
+      String text = texts.remove(id);
+      if (text == null) {
+        return;
+      }
+      for (long gram : grams(text)) {
+        Postings ids = postings.get(gram);
+        if (ids != null) {
+          ids.remove(id);
+          if (ids.size == 0) {
+            postings.remove(gram);
+          }
+        }
+      }
+    }
+
+    private static long[] grams(String text) {
+      long[] grams = new long[Math.max(text.length() - GRAM + 1, 0)];
+      for (int i = 0; i < grams.length; i++) {
+        grams[i] = gram(text, i);
+      }
+      Arrays.sort(grams);
+      return Arrays.stream(grams).distinct().toArray();
+    }
+  }
+
+  /**
+   * IDs of the horses whose text contains one trigram, kept in ascending order in a primitive array.
+   */
+  private static final class Postings {
+    private long[] ids = new long[2];
+    private int size;
+
+    void add(long id) {
+      int position = Arrays.binarySearch(ids, 0, size, id);
+      if (position >= 0) {
+        return;
+      }
+      position = -position - 1;
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+      }
+      System.arraycopy(ids, position, ids, position + 1, size - position);
+      ids[position] = id;
+      size++;
+    }
+
+    void append(long id) {
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+      }
+      ids[size++] = id;
+    }
+
+    void sortAndTrim() {
+      Arrays.sort(ids, 0, size);
+      ids = Arrays.copyOf(ids, size);
+    }
+
+    void remove(long id) {
+      int position = Arrays.binarySearch(ids, 0, size, id);
+      if (position >= 0) {
+        System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+        size--;
+      }
+    }
+  }
+
+  /**
+   * Source of the horses the index is loaded from.
+   */
+  @FunctionalInterface
+  public interface Loader {
+    /**
+     * Hands every horse to {@code sink}.
+     *
+     * @param sink receives the texts of each horse
+     */
+    void load(Sink sink);
+  }
+
+  /**
+   * Receiver of the texts of a single horse.
+   */
+  @FunctionalInterface
+  public interface Sink {
+    /**
+     * Accepts the texts of a horse.
+     *
+     * @param id the ID of the horse
+     * @param name the name of the horse
+     * @param description the description of the horse, or null
+     */
+    void accept(long id, String name, String description);
+  }
+}
@@ -0,0 +1,359 @@
+package at.ac.tuwien.sepr.assignment.individual.persistence.impl;
+
+import at.ac.tuwien.sepr.assignment.individual.dto.ImageCreateDto;
+import at.ac.tuwien.sepr.assignment.individual.entity.Image;
+import at.ac.tuwien.sepr.assignment.individual.entity.ImageInfo;
+import at.ac.tuwien.sepr.assignment.individual.exception.FatalException;
+import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
+import at.ac.tuwien.sepr.assignment.individual.persistence.AfterCommit;
+import at.ac.tuwien.sepr.assignment.individual.persistence.ImageDao;
+import at.ac.tuwien.sepr.assignment.individual.type.ImageSize;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Repository;
+
+import io.micrometer.core.annotation.Timed;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.channels.Channels;
+import java.util.List;
+
+/**
+ * Implementation of {@link ImageDao} that keeps the content of images in the segment files of an {@link ImageSegmentStore},
+ * and only their metadata in the database.
+ * This keeps the database file small, and images are served straight from the file system instead of through JDBC.
+ * It is used instead of {@link ImageJdbcDao} if {@code app.images.store} is set to {@code files};
+ * contents still stored in the database are moved to the files at startup.
+ */
+@Repository
+@Primary
+@Timed("dao.query")
+@ConditionalOnProperty(name = "app.images.store", havingValue = "files")
+public class ImageFileDao implements ImageDao {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final String TABLE_NAME = "image";
+
+  private static final String VARIANT_TABLE_NAME = "image_variant";
+
+  private static final String SQL_SELECT_ALL =
+      "SELECT id, file_type FROM " + TABLE_NAME;
+
+  private static final String SQL_SELECT_BY_ID =
+      "SELECT id, file_type FROM " + TABLE_NAME
+          + " WHERE id = :id";
+
+  private static final String SQL_SELECT_INFO_BY_ID =
+      "SELECT id, file_type, content_hash FROM " + TABLE_NAME
+          + " WHERE id = :id";
+
+  private static final String SQL_SELECT_VARIANT_INFO_BY_ID =
+      "SELECT image_id AS id, file_type, content_hash FROM " + VARIANT_TABLE_NAME
+          + " WHERE image_id = :id AND variant = :variant";
+
+  private static final String SQL_MERGE_VARIANT =
+      "MERGE INTO " + VARIANT_TABLE_NAME + " (image_id, variant, file_type, image, content_hash)"
+          + " KEY (image_id, variant)"
+          + " VALUES (:id, :variant, :file_type, NULL, :content_hash)";
+
+  private static final String SQL_CREATE =
+      "INSERT INTO " + TABLE_NAME + " (file_type, image, content_hash, ref_count) VALUES (:file_type, NULL, :content_hash, 1)";
+
+  private static final String SQL_RELEASE =
+      "UPDATE " + TABLE_NAME + " SET ref_count = ref_count - 1 WHERE id = :id";
+
+  private static final String SQL_DELETE_UNREFERENCED =
+      "DELETE FROM " + TABLE_NAME + " WHERE id = :id AND ref_count <= 0";
+
+  private static final String SQL_DELETE =
+      "DELETE FROM " + TABLE_NAME + " WHERE id = :id";
+
+  private static final String SQL_SELECT_UNMIGRATED =
+      "SELECT id, 'ORIGINAL' AS variant FROM " + TABLE_NAME + " WHERE image IS NOT NULL"
+          + " UNION ALL SELECT image_id, variant FROM " + VARIANT_TABLE_NAME + " WHERE image IS NOT NULL";
+
+  private static final String SQL_SELECT_CONTENT =
+      "SELECT image FROM " + TABLE_NAME + " WHERE id = :id";
+
+  private static final String SQL_SELECT_VARIANT_CONTENT =
+      "SELECT image FROM " + VARIANT_TABLE_NAME + " WHERE image_id = :id AND variant = :variant";
+
+  private static final String SQL_CLEAR_CONTENT =
+      "UPDATE " + TABLE_NAME + " SET image = NULL WHERE id = :id";
+
+  private static final String SQL_CLEAR_VARIANT_CONTENT =
+      "UPDATE " + VARIANT_TABLE_NAME + " SET image = NULL WHERE image_id = :id AND variant = :variant";
+
+  private final JdbcClient jdbcClient;
+  private final ImageSegmentStore store;
+  // sharing images only touches metadata, which is the same for both stores
+  private final ImageJdbcDao metadata;
+
+  /**
+   * Creates the DAO on top of the image store holding the contents.
+   *
+   * @param jdbcClient the client used for the image metadata
+   * @param store the store holding the contents of the images
+   * @param metadata the database image DAO, used for the metadata shared by both stores
+   */
+  @Autowired
+  public ImageFileDao(JdbcClient jdbcClient, ImageSegmentStore store, ImageJdbcDao metadata) {
+    this.jdbcClient = jdbcClient;
+    this.store = store;
+    this.metadata = metadata;
+  }
+
+  /**
+   * Moves contents still stored in the database to the segment files at startup.
+   * Every content is first stored in the files and only then removed from the database,
+   * so an interrupted migration simply continues on the next start.
+   */
+  @PostConstruct
+  public void migrate() {
+    record Content(long id, ImageSize variant) {
+    }
+
+    List<Content> contents = jdbcClient.sql(SQL_SELECT_UNMIGRATED)
+        .query((result, rownum) -> new Content(result.getLong("id"), ImageSize.valueOf(result.getString("variant"))))
+        .list();
+    if (contents.isEmpty()) {
+      return;
+    }
+    LOG.info("Moving {} image contents from the database to the image store", contents.size());
+    try {
+      for (Content content : contents) {
+        boolean original = content.variant() == ImageSize.ORIGINAL;
+        jdbcClient.sql(original ? SQL_SELECT_CONTENT : SQL_SELECT_VARIANT_CONTENT)
+            .param("id", content.id())
+            .param("variant", content.variant().name())
+            .query((RowCallbackHandler) result -> {
+              try (InputStream in = result.getBinaryStream("image")) {
+                store.put(content.id(), content.variant(), in);
+              } catch (IOException e) {
+                throw new UncheckedIOException(e);
+              }
+            });
+        jdbcClient.sql(original ? SQL_CLEAR_CONTENT : SQL_CLEAR_VARIANT_CONTENT)
+            .param("id", content.id())
+            .param("variant", content.variant().name())
+            .update();
+      }
+    } catch (UncheckedIOException e) {
+      throw new FatalException("Could not move image contents to the image store", e.getCause());
+    }
+  }
+
+  /**
+   * Retrieves all images, reading their contents from the segment files.
+   *
+   * @return A list of all stored images
+   */
+  @Override
+  public List<Image> getAll() {
+    LOG.trace("getAll()");
+    return jdbcClient.sql(SQL_SELECT_ALL)
+        .query((result, rownum) -> new Image(result.getLong("id"), result.getString("file_type"), content(result.getLong("id"))))
+        .list();
+  }
+
+  /**
+   * Creates a new image: the metadata in the database and the content in the segment files.
+   * The content is removed again if the transaction creating the image rolls back.
+   *
+   * @param file The data transfer object containing the image data to store
+   * @return A new Image entity containing the created image's data, including its generated ID
+   */
+  @Override
+  public Image create(ImageCreateDto file) {
+    LOG.trace("create({})", file);
+    GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+    jdbcClient
+        .sql(SQL_CREATE)
+        .param("file_type", file.fileType())
+        .param("content_hash", file.contentHash())
+        .update(keyHolder);
+    long id = keyHolder.getKey().longValue();
+
+    try {
+      store.put(id, ImageSize.ORIGINAL, new ByteArrayInputStream(file.image()));
+    } catch (IOException e) {
+      jdbcClient.sql(SQL_DELETE)
+          .param("id", id)
+          .update();
+      throw new FatalException("Could not store content of image %d".formatted(id), e);
+    }
+    AfterCommit.onRollback(() -> removeContent(id, ImageSize.ORIGINAL));
+    return new Image(id, file.fileType(), file.image());
+  }
+
+  /**
+   * Takes a reference to the oldest image with the given content that is still referenced.
+   *
+   * @param contentHash The hex encoded SHA-256 hash of the content
+   * @param fileType The media type of the image
+   * @return The ID of the image a reference was taken to, or null if there is none
+   */
+  @Override
+  public Long acquire(String contentHash, String fileType) {
+    return metadata.acquire(contentHash, fileType);
+  }
+
+  /**
+   * Releases one reference to an image, and deletes the image and the contents of all its variants
+   * once it is no longer referenced.
+   * The contents are only removed once the deletion is committed, so a rollback still finds them.
+   *
+   * @param id The ID of the image to release
+   */
+  @Override
+  public void release(long id) {
+    LOG.trace("release({})", id);
+    jdbcClient.sql(SQL_RELEASE)
+        .param("id", id)
+        .update();
+    int deleted = jdbcClient.sql(SQL_DELETE_UNREFERENCED)
+        .param("id", id)
+        .update();
+    if (deleted > 0) {
+      AfterCommit.run(() -> removeContent(id, ImageSize.values()));
+    }
+  }
+
+  /**
+   * Retrieves a specific image by its ID, reading its content from the segment files.
+   *
+   * @param id The ID of the image to retrieve
+   * @return The image with the specified ID
+   * @throws NotFoundException If no image with the given ID exists
+   */
+  @Override
+  public Image getById(long id) throws NotFoundException {
+    LOG.trace("getById({})", id);
+    String fileType = jdbcClient.sql(SQL_SELECT_BY_ID)
+        .param("id", id)
+        .query((result, rownum) -> result.getString("file_type"))
+        .optional()
+        .orElseThrow(() -> new NotFoundException("No images with ID %d found".formatted(id)));
+    return new Image(id, fileType, content(id));
+  }
+
+  /**
+   * Retrieves the metadata of a specific image, or of one of its size variants, by its ID.
+   * The size is taken from the index of the segment files.
+   *
+   * @param id The ID of the image
+   * @param variant The size variant
+   * @return The metadata of the image with the specified ID
+   * @throws NotFoundException If no image with the given ID, or no such variant of it, exists
+   */
+  @Override
+  public ImageInfo getInfoById(long id, ImageSize variant) throws NotFoundException {
+    LOG.trace("getInfoById({}, {})", id, variant);
+    ImageSegmentStore.Location location = store.locate(id, variant);
+    List<ImageInfo> infos = location == null ? List.of() : jdbcClient
+        .sql(variant == ImageSize.ORIGINAL ? SQL_SELECT_INFO_BY_ID : SQL_SELECT_VARIANT_INFO_BY_ID)
+        .param("id", id)
+        .param("variant", variant.name())
+        .query((result, rownum) -> new ImageInfo(
+            result.getLong("id"),
+            variant,
+            result.getString("file_type"),
+            location.length(),
+            result.getString("content_hash")))
+        .list();
+
+    if (infos.isEmpty()) {
+      throw new NotFoundException("No %s images with ID %d found".formatted(variant.name().toLowerCase(), id));
+    }
+    return infos.getFirst();
+  }
+
+  /**
+   * Copies a part of the content of an image from its segment file to {@code out},
+   * with {@link java.nio.channels.FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}.
+   * The location is looked up in the index of the segment files, so the database is not queried.
+   *
+   * @param id The ID of the image
+   * @param variant The size variant to copy
+   * @param offset The index of the first byte to copy
+   * @param length The number of bytes to copy
+   * @param out The stream to copy the content to
+   * @throws NotFoundException If no image with the given ID exists
+   * @throws IOException If writing to {@code out} fails
+   */
+  @Override
+  public void writeContent(long id, ImageSize variant, long offset, long length, OutputStream out) throws NotFoundException, IOException {
+    LOG.trace("writeContent({}, {}, {}, {})", id, variant, offset, length);
+    ImageSegmentStore.Location location = store.locate(id, variant);
+    if (location == null) {
+      throw new NotFoundException("No %s images with ID %d found".formatted(variant.name().toLowerCase(), id));
+    }
+    store.transferTo(location, offset, length, Channels.newChannel(out));
+  }
+
+  /**
+   * Stores a size variant of an image, replacing an existing variant of the same size.
+   * The content is stored before the metadata, and removed again if the image has been deleted in the meantime
+   * or the transaction storing the metadata rolls back.
+   *
+   * @param id The ID of the image the variant belongs to
+   * @param variant The size of the variant
+   * @param fileType The media type of the variant
+   * @param content The content of the variant
+   * @param contentHash The hex encoded SHA-256 hash of the content
+   */
+  @Override
+  public void createVariant(long id, ImageSize variant, String fileType, byte[] content, String contentHash) {
+    LOG.trace("createVariant({}, {}, {})", id, variant, fileType);
+    try {
+      store.put(id, variant, new ByteArrayInputStream(content));
+      try {
+        jdbcClient.sql(SQL_MERGE_VARIANT)
+            .param("id", id)
+            .param("variant", variant.name())
+            .param("file_type", fileType)
+            .param("content_hash", contentHash)
+            .update();
+      } catch (RuntimeException e) {
+        store.remove(id, variant);
+        throw e;
+      }
+    } catch (IOException e) {
+      throw new FatalException("Could not store %s variant of image %d".formatted(variant, id), e);
+    }
+    AfterCommit.onRollback(() -> removeContent(id, variant));
+  }
+
+  private void removeContent(long id, ImageSize... variants) {
+    try {
+      for (ImageSize variant : variants) {
+        store.remove(id, variant);
+      }
+    } catch (IOException e) {
+      throw new FatalException("Could not remove content of image %d".formatted(id), e);
+    }
+  }
+
+  private byte[] content(long id) {
+    ImageSegmentStore.Location location = store.locate(id, ImageSize.ORIGINAL);
+    if (location == null) {
+      throw new FatalException("Content of image %d is missing from the image store".formatted(id));
+    }
+    try {
+      return store.read(location);
+    } catch (IOException e) {
+      throw new FatalException("Could not read content of image %d".formatted(id), e);
+    }
+  }
+}
@@ -2,26 +2,39 @@ package at.ac.tuwien.sepr.assignment.individual.persistence.impl;
 
 import at.ac.tuwien.sepr.assignment.individual.dto.ImageCreateDto;
 import at.ac.tuwien.sepr.assignment.individual.entity.Image;
+import at.ac.tuwien.sepr.assignment.individual.entity.ImageInfo;
 import at.ac.tuwien.sepr.assignment.individual.exception.FatalException;
 import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
 import at.ac.tuwien.sepr.assignment.individual.persistence.HorseDao;
 import at.ac.tuwien.sepr.assignment.individual.persistence.ImageDao;
+import at.ac.tuwien.sepr.assignment.individual.type.ImageSize;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.simple.JdbcClient;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Repository;
 
+import io.micrometer.core.annotation.Timed;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.lang.invoke.MethodHandles;
+import java.sql.Blob;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
 
 /**
  * JDBC implementation of {@link ImageDao} for interacting with the database.
+ * The content of images is stored in the database as well; this is the default.
+ * If {@code app.images.store} is set to {@code files}, {@link ImageFileDao} takes precedence
+ * and uses this DAO only for the metadata shared by both stores.
  */
 @Repository
+@Timed("dao.query")
 public class ImageJdbcDao implements ImageDao {
   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
@@ -34,11 +47,45 @@ public class ImageJdbcDao implements ImageDao {
       "SELECT * FROM " + TABLE_NAME
           + " WHERE ID = :id";
 
-  private static final String SQL_DELETE =
-      "DELETE FROM " + TABLE_NAME + " WHERE id = :id";
+  private static final String VARIANT_TABLE_NAME = "image_variant";
+
+  private static final String SQL_SELECT_INFO_BY_ID =
+      "SELECT id, file_type, OCTET_LENGTH(image) AS size, content_hash FROM " + TABLE_NAME
+          + " WHERE id = :id";
+
+  private static final String SQL_SELECT_VARIANT_INFO_BY_ID =
+      "SELECT image_id AS id, file_type, OCTET_LENGTH(image) AS size, content_hash FROM " + VARIANT_TABLE_NAME
+          + " WHERE image_id = :id AND variant = :variant";
+
+  private static final String SQL_SELECT_CONTENT_BY_ID =
+      "SELECT image FROM " + TABLE_NAME
+          + " WHERE id = :id";
+
+  private static final String SQL_SELECT_VARIANT_CONTENT_BY_ID =
+      "SELECT image FROM " + VARIANT_TABLE_NAME
+          + " WHERE image_id = :id AND variant = :variant";
+
+  private static final String SQL_MERGE_VARIANT =
+      "MERGE INTO " + VARIANT_TABLE_NAME + " (image_id, variant, file_type, image, content_hash)"
+          + " KEY (image_id, variant)"
+          + " VALUES (:id, :variant, :file_type, :image, :content_hash)";
+
+  private static final String SQL_SELECT_ID_BY_HASH =
+      "SELECT MIN(id) FROM " + TABLE_NAME
+          + " WHERE content_hash = :content_hash AND file_type = :file_type AND ref_count > 0";
+
+  // only images that are still referenced may be shared, one that is just being deleted has to be stored again
+  private static final String SQL_ACQUIRE =
+      "UPDATE " + TABLE_NAME + " SET ref_count = ref_count + 1 WHERE id = :id AND ref_count > 0";
+
+  private static final String SQL_RELEASE =
+      "UPDATE " + TABLE_NAME + " SET ref_count = ref_count - 1 WHERE id = :id";
+
+  private static final String SQL_DELETE_UNREFERENCED =
+      "DELETE FROM " + TABLE_NAME + " WHERE id = :id AND ref_count <= 0";
 
   private static final String SQL_CREATE =
-      "INSERT INTO " + TABLE_NAME + " (file_type, image) VALUES (:file_type, :image)";
+      "INSERT INTO " + TABLE_NAME + " (file_type, image, content_hash, ref_count) VALUES (:file_type, :image, :content_hash, 1)";
 
   private final JdbcClient jdbcClient;
 
@@ -75,6 +122,7 @@ public class ImageJdbcDao implements ImageDao {
         .sql(SQL_CREATE)
         .param("file_type", file.fileType())
         .param("image", file.image())
+        .param("content_hash", file.contentHash())
         .update(keyHolder);
 
     return new Image(
@@ -85,16 +133,45 @@ public class ImageJdbcDao implements ImageDao {
   }
 
   /**
-   * Deletes an image from the database by its ID.
+   * Takes a reference to the oldest image with the given content that is still referenced.
    *
-   * @param id The ID of the image to delete
-   * @throws NotFoundException If no image with the given ID exists
+   * @param contentHash The hex encoded SHA-256 hash of the content
+   * @param fileType The media type of the image
+   * @return The ID of the image a reference was taken to, or null if there is none
+   */
+  @Override
+  public Long acquire(String contentHash, String fileType) {
+    LOG.trace("acquire({}, {})", contentHash, fileType);
+    Long id = jdbcClient.sql(SQL_SELECT_ID_BY_HASH)
+        .param("content_hash", contentHash)
+        .param("file_type", fileType)
+        .query(Long.class)
+        .optional()
+        .orElse(null);
+    if (id == null) {
+      return null;
+    }
+    // the image may have lost its last reference since it was selected
+    int acquired = jdbcClient.sql(SQL_ACQUIRE)
+        .param("id", id)
+        .update();
+    return acquired == 1 ? id : null;
+  }
+
+  /**
+   * Releases one reference to an image, and deletes the image once it is no longer referenced.
+   *
+   * @param id The ID of the image to release
    */
   @Override
-  public void delete(long id) throws NotFoundException {
-    LOG.trace("delete({})", id);
-    jdbcClient.sql(SQL_DELETE)
-        .param("id", id).update();
+  public void release(long id) {
+    LOG.trace("release({})", id);
+    jdbcClient.sql(SQL_RELEASE)
+        .param("id", id)
+        .update();
+    jdbcClient.sql(SQL_DELETE_UNREFERENCED)
+        .param("id", id)
+        .update();
   }
 
   /**
@@ -124,6 +201,100 @@ public class ImageJdbcDao implements ImageDao {
     return images.getFirst();
   }
 
+  /**
+   * Retrieves the metadata of a specific image, or of one of its size variants, by its ID.
+   * The size is computed by the database, so the content is never transferred.
+   *
+   * @param id The ID of the image
+   * @param variant The size variant
+   * @return The metadata of the image with the specified ID
+   * @throws NotFoundException If no image with the given ID, or no such variant of it, exists
+   */
+  @Override
+  public ImageInfo getInfoById(long id, ImageSize variant) throws NotFoundException {
+    LOG.trace("getInfoById({}, {})", id, variant);
+    List<ImageInfo> infos = jdbcClient.sql(variant == ImageSize.ORIGINAL ? SQL_SELECT_INFO_BY_ID : SQL_SELECT_VARIANT_INFO_BY_ID)
+        .param("id", id)
+        .param("variant", variant.name())
+        .query((result, rownum) -> new ImageInfo(
+            result.getLong("id"),
+            variant,
+            result.getString("file_type"),
+            result.getLong("size"),
+            result.getString("content_hash")))
+        .list();
+
+    if (infos.isEmpty()) {
+      throw new NotFoundException("No %s images with ID %d found".formatted(variant.name().toLowerCase(), id));
+    }
+    return infos.getFirst();
+  }
+
+  /**
+   * Copies a part of the content of an image to {@code out}.
+   * The content is read through {@link Blob#getBinaryStream(long, long)} while the result set is open,
+   * so only a small transfer buffer is held in memory regardless of the size of the image.
+   *
+   * @param id The ID of the image
+   * @param variant The size variant to copy
+   * @param offset The index of the first byte to copy
+   * @param length The number of bytes to copy
+   * @param out The stream to copy the content to
+   * @throws NotFoundException If no image with the given ID exists
+   * @throws IOException If writing to {@code out} fails
+   */
+  @Override
+  public void writeContent(long id, ImageSize variant, long offset, long length, OutputStream out) throws NotFoundException, IOException {
+    LOG.trace("writeContent({}, {}, {}, {})", id, variant, offset, length);
+    boolean[] found = {false};
+    try {
+      jdbcClient.sql(variant == ImageSize.ORIGINAL ? SQL_SELECT_CONTENT_BY_ID : SQL_SELECT_VARIANT_CONTENT_BY_ID)
+          .param("id", id)
+          .param("variant", variant.name())
+          .query((RowCallbackHandler) result -> {
+            found[0] = true;
+            if (length == 0) {
+              return;
+            }
+            Blob blob = result.getBlob("image");
+            try (InputStream in = blob.getBinaryStream(offset + 1, length)) {
+              in.transferTo(out);
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            } finally {
+              blob.free();
+            }
+          });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+
+    if (!found[0]) {
+      throw new NotFoundException("No %s images with ID %d found".formatted(variant.name().toLowerCase(), id));
+    }
+  }
+
+  /**
+   * Stores a size variant of an image, replacing an existing variant of the same size.
+   *
+   * @param id The ID of the image the variant belongs to
+   * @param variant The size of the variant
+   * @param fileType The media type of the variant
+   * @param content The content of the variant
+   * @param contentHash The hex encoded SHA-256 hash of the content
+   */
+  @Override
+  public void createVariant(long id, ImageSize variant, String fileType, byte[] content, String contentHash) {
+    LOG.trace("createVariant({}, {}, {})", id, variant, fileType);
+    jdbcClient.sql(SQL_MERGE_VARIANT)
+        .param("id", id)
+        .param("variant", variant.name())
+        .param("file_type", fileType)
+        .param("image", content)
+        .param("content_hash", contentHash)
+        .update();
+  }
+
   /**
    * Maps a database result row to an Image entity.
    *
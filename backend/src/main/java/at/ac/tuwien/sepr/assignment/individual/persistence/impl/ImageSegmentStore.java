@@ -0,0 +1,251 @@
+package at.ac.tuwien.sepr.assignment.individual.persistence.impl;
+
+import at.ac.tuwien.sepr.assignment.individual.exception.FatalException;
+import at.ac.tuwien.sepr.assignment.individual.type.ImageSize;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Append-only file store for the content of images and their size variants, used by {@link ImageFileDao}.
+ * Contents are appended to segment files ({@code segment-000001.dat}, ...) of roughly {@code app.images.segment-size} bytes;
+ * a new segment is started once the current one has reached that size.
+ * Where each content lies is recorded in an append-only index file ({@code index.dat}) of fixed-size records,
+ * which is read into memory at startup; removing a content appends a tombstone record.
+ * Contents are forced to disk before their index record is written, so after a crash the index never points to missing data.
+ * Space of removed contents is not reclaimed.
+ */
+@Component
+@ConditionalOnProperty(name = "app.images.store", havingValue = "files")
+public class ImageSegmentStore {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final String INDEX_FILE = "index.dat";
+  // image ID, variant ordinal, segment number, offset, length
+  private static final int RECORD_SIZE = Long.BYTES + Byte.BYTES + Integer.BYTES + Long.BYTES + Long.BYTES;
+  private static final long TOMBSTONE = -1;
+
+  private final Path directory;
+  private final long segmentSize;
+  private final Map<Key, Location> locations = new ConcurrentHashMap<>();
+  private final Map<Integer, FileChannel> segments = new ConcurrentHashMap<>();
+  private final FileChannel index;
+  private int currentSegment;
+
+  /**
+   * Opens the image store, creating its directory if needed, and reads its index.
+   *
+   * @param directory the directory holding the index and segment files
+   * @param segmentSize the size in bytes after which a new segment file is started
+   * @throws FatalException if the store cannot be opened
+   */
+  public ImageSegmentStore(
+      @Value("${app.images.directory:./images}") Path directory,
+      @Value("${app.images.segment-size:67108864}") long segmentSize) {
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    try {
+      Files.createDirectories(directory);
+      this.index = FileChannel.open(directory.resolve(INDEX_FILE), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      openSegments();
+      loadIndex();
+    } catch (IOException e) {
+      throw new FatalException("Could not open image store in " + directory.toAbsolutePath(), e);
+    }
+    LOG.info("Opened image store in {} with {} contents in {} segments", directory.toAbsolutePath(), locations.size(), segments.size());
+  }
+
+  /**
+   * Returns where the content of an image is stored.
+   *
+   * @param id the ID of the image
+   * @param variant the size variant
+   * @return the location of the content, or null if it is not stored
+   */
+  public Location locate(long id, ImageSize variant) {
+    return locations.get(new Key(id, variant));
+  }
+
+  /**
+   * Stores the content of an image, replacing a content stored before for the same image and variant.
+   *
+   * @param id the ID of the image
+   * @param variant the size variant
+   * @param content the content, which is read to its end but not closed
+   * @return the location of the stored content
+   * @throws IOException if reading the content or writing the store fails
+   */
+  public synchronized Location put(long id, ImageSize variant, InputStream content) throws IOException {
+    FileChannel segment = segments.get(currentSegment);
+    if (segment.size() >= segmentSize) {
+      segment.force(false);
+      currentSegment++;
+      segment = openSegment(currentSegment);
+    }
+    long offset = segment.size();
+    long length = 0;
+    ReadableByteChannel source = Channels.newChannel(content);
+    for (long transferred; (transferred = segment.transferFrom(source, offset + length, segmentSize)) > 0; ) {
+      length += transferred;
+    }
+    segment.force(false);
+
+    Location location = new Location(currentSegment, offset, length);
+    appendRecord(id, variant, location.segment(), offset, length);
+    locations.put(new Key(id, variant), location);
+    return location;
+  }
+
+  /**
+   * Removes the content of an image, if it is stored.
+   *
+   * @param id the ID of the image
+   * @param variant the size variant
+   * @throws IOException if writing the store fails
+   */
+  public synchronized void remove(long id, ImageSize variant) throws IOException {
+    if (locations.remove(new Key(id, variant)) != null) {
+      appendRecord(id, variant, 0, 0, TOMBSTONE);
+    }
+  }
+
+  /**
+   * Reads a whole content into memory.
+   *
+   * @param location the location of the content
+   * @return the content
+   * @throws IOException if reading the store fails
+   */
+  public byte[] read(Location location) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(location.length()));
+    FileChannel segment = segments.get(location.segment());
+    while (buffer.hasRemaining()) {
+      if (segment.read(buffer, location.offset() + buffer.position()) < 0) {
+        throw new IOException("Segment %d ends within a content".formatted(location.segment()));
+      }
+    }
+    return buffer.array();
+  }
+
+  /**
+   * Copies a part of a content to {@code target} with {@link FileChannel#transferTo(long, long, WritableByteChannel)},
+   * which leaves the copying to the operating system where the target allows it.
+   *
+   * @param location the location of the content
+   * @param offset the index of the first byte of the content to copy
+   * @param length the number of bytes to copy
+   * @param target the channel to copy to
+   * @throws IOException if reading the store or writing to {@code target} fails
+   */
+  public void transferTo(Location location, long offset, long length, WritableByteChannel target) throws IOException {
+    FileChannel segment = segments.get(location.segment());
+    long start = location.offset() + offset;
+    for (long done = 0; done < length; ) {
+      long transferred = segment.transferTo(start + done, length - done, target);
+      if (transferred <= 0) {
+        throw new IOException("Segment %d ends within a content".formatted(location.segment()));
+      }
+      done += transferred;
+    }
+  }
+
+  private void openSegments() throws IOException {
+    try (var files = Files.newDirectoryStream(directory, "segment-*.dat")) {
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        int number = Integer.parseInt(name.substring("segment-".length(), name.length() - ".dat".length()));
+        openSegment(number);
+        currentSegment = Math.max(currentSegment, number);
+      }
+    }
+    if (segments.isEmpty()) {
+      currentSegment = 1;
+      openSegment(currentSegment);
+    }
+  }
+
+  private FileChannel openSegment(int number) throws IOException {
+    FileChannel channel = FileChannel.open(directory.resolve("segment-%06d.dat".formatted(number)),
+        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    segments.put(number, channel);
+    return channel;
+  }
+
+  private void loadIndex() throws IOException {
+    long records = index.size() / RECORD_SIZE;
+    if (index.size() % RECORD_SIZE != 0) {
+      // a record was torn by a crash while it was appended, its content is lost
+      LOG.warn("Dropping incomplete last record of image store index");
+      index.truncate(records * RECORD_SIZE);
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * 1024);
+    for (long position = 0; position < records * RECORD_SIZE; ) {
+      buffer.clear();
+      int read = index.read(buffer, position);
+      buffer.flip();
+      position += read;
+      while (buffer.remaining() >= RECORD_SIZE) {
+        Key key = new Key(buffer.getLong(), ImageSize.values()[buffer.get()]);
+        Location location = new Location(buffer.getInt(), buffer.getLong(), buffer.getLong());
+        if (location.length() == TOMBSTONE) {
+          locations.remove(key);
+        } else {
+          locations.put(key, location);
+        }
+      }
+      position -= buffer.remaining();
+    }
+  }
+
+  private void appendRecord(long id, ImageSize variant, int segment, long offset, long length) throws IOException {
+    ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE)
+        .putLong(id)
+        .put((byte) variant.ordinal())
+        .putInt(segment)
+        .putLong(offset)
+        .putLong(length)
+        .flip();
+    long position = index.size();
+    while (record.hasRemaining()) {
+      position += index.write(record, position);
+    }
+    index.force(false);
+  }
+
+  @PreDestroy
+  void close() throws IOException {
+    index.close();
+    for (FileChannel segment : segments.values()) {
+      segment.close();
+    }
+  }
+
+  private record Key(long id, ImageSize variant) {
+  }
+
+  /**
+   * Position of a content in the segment files.
+   *
+   * @param segment the number of the segment file
+   * @param offset the index of the first byte of the content in the segment
+   * @param length the length of the content in bytes
+   */
+  public record Location(int segment, long offset, long length) {
+  }
+}
@@ -0,0 +1,151 @@
+package at.ac.tuwien.sepr.assignment.individual.persistence.impl;
+
+import at.ac.tuwien.sepr.assignment.individual.entity.Owner;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded cache of owners by their ID.
+ * When the cache is full, the least recently used owner is evicted.
+ * Owners are never changed once stored, so cached owners stay valid as long as they are kept.
+ * It is filled by {@link OwnerJdbcDao} with the owners it reads and creates.
+ * Lookups of several owners take the lock once for the whole batch,
+ * so that the caller can fetch all misses from the database with a single query.
+ * Hits, misses and evictions are published as metrics, together with the resulting hit ratio.
+ */
+@Component
+public class OwnerCache implements MeterBinder {
+  private static final String CACHE_NAME = "owner";
+
+  private final int maxEntries;
+  private final LinkedHashMap<Long, Owner> entries;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  /**
+   * Creates the cache.
+   *
+   * @param maxEntries the maximum number of owners kept
+   */
+  public OwnerCache(@Value("${app.owner-cache.max-entries:10000}") int maxEntries) {
+    this.maxEntries = maxEntries;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /**
+   * Returns the cached owner with the given ID.
+   *
+   * @param id the ID of the owner
+   * @return the cached owner, or null if it is not cached
+   */
+  public synchronized Owner get(long id) {
+    Owner owner = entries.get(id);
+    (owner == null ? misses : hits).incrementAndGet();
+    return owner;
+  }
+
+  /**
+   * Returns all cached owners among the given IDs.
+   *
+   * @param ids the IDs of the owners, without duplicates
+   * @return the cached owners by their ID; IDs missing from the map are not cached
+   */
+  public synchronized Map<Long, Owner> getAll(Collection<Long> ids) {
+    Map<Long, Owner> found = new HashMap<>();
+    for (Long id : ids) {
+      Owner owner = entries.get(id);
+      if (owner != null) {
+        found.put(id, owner);
+      }
+    }
+    hits.addAndGet(found.size());
+    misses.addAndGet(ids.size() - found.size());
+    return found;
+  }
+
+  /**
+   * Stores an owner.
+   *
+   * @param owner the owner to store
+   */
+  public synchronized void put(Owner owner) {
+    if (maxEntries <= 0) {
+      return;
+    }
+    entries.put(owner.id(), owner);
+    while (entries.size() > maxEntries) {
+      entries.remove(entries.keySet().iterator().next());
+      evictions.incrementAndGet();
+    }
+  }
+
+  /**
+   * Stores several owners.
+   *
+   * @param owners the owners to store
+   */
+  public synchronized void putAll(Collection<Owner> owners) {
+    for (Owner owner : owners) {
+      put(owner);
+    }
+  }
+
+  /**
+   * Removes an owner, which has to be done when the owner is deleted.
+   *
+   * @param id the ID of the owner to remove
+   */
+  public synchronized void evict(long id) {
+    entries.remove(id);
+  }
+
+  /**
+   * Publishes the cache statistics to {@code registry}.
+   *
+   * @param registry the registry to bind the metrics to
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("cache.gets", hits, AtomicLong::get)
+        .tags("cache", CACHE_NAME, "result", "hit")
+        .description("Owners served from the cache")
+        .register(registry);
+    FunctionCounter.builder("cache.gets", misses, AtomicLong::get)
+        .tags("cache", CACHE_NAME, "result", "miss")
+        .description("Owners that had to be read from the database")
+        .register(registry);
+    FunctionCounter.builder("cache.evictions", evictions, AtomicLong::get)
+        .tags("cache", CACHE_NAME)
+        .description("Owners evicted because the cache was full")
+        .register(registry);
+    Gauge.builder("cache.size", this, OwnerCache::size)
+        .tags("cache", CACHE_NAME)
+        .description("Number of cached owners")
+        .register(registry);
+    Gauge.builder("cache.hit.ratio", this, OwnerCache::hitRatio)
+        .tags("cache", CACHE_NAME)
+        .description("Share of owner lookups served from the cache since startup")
+        .register(registry);
+  }
+
+  private synchronized int size() {
+    return entries.size();
+  }
+
+  private double hitRatio() {
+    long hitCount = hits.get();
+    long total = hitCount + misses.get();
+    return total == 0 ? Double.NaN : (double) hitCount / total;
+  }
+}
@@ -5,17 +5,27 @@ import at.ac.tuwien.sepr.assignment.individual.dto.OwnerSearchDto;
 import at.ac.tuwien.sepr.assignment.individual.entity.Owner;
 import at.ac.tuwien.sepr.assignment.individual.exception.FatalException;
 import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
+import at.ac.tuwien.sepr.assignment.individual.persistence.AfterCommit;
 import at.ac.tuwien.sepr.assignment.individual.persistence.OwnerDao;
+import io.micrometer.core.annotation.Timed;
 import java.lang.invoke.MethodHandles;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.core.simple.JdbcClient;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
@@ -23,8 +33,11 @@ import org.springframework.stereotype.Repository;
 
 /**
  * JDBC implementation of {@link OwnerDao} for interacting with the database.
+ * Owners looked up by ID are served from the {@link OwnerCache} where possible,
+ * and created owners are added to it once they are committed.
  */
 @Repository
+@Timed("dao.query")
 public class OwnerJdbcDao implements OwnerDao {
   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   private static final String TABLE_NAME = "owner";
@@ -36,11 +49,8 @@ public class OwnerJdbcDao implements OwnerDao {
       "SELECT * FROM " + TABLE_NAME
           + " WHERE id IN (:ids)";
 
-  private static final String SQL_SELECT_SEARCH =
-      "SELECT * FROM " + TABLE_NAME
-          + " WHERE UPPER(first_name || ' ' || last_name) LIKE UPPER('%%' || COALESCE(:name, '') || '%%')";
-
-  private static final String SQL_SELECT_SEARCH_LIMIT_CLAUSE = " LIMIT :limit";
+  private static final String SQL_SELECT_EVERY =
+      "SELECT * FROM " + TABLE_NAME;
 
   private static final String SQL_INSERT =
       "INSERT INTO " + TABLE_NAME + "(first_name, last_name, description)"
@@ -48,14 +58,41 @@ public class OwnerJdbcDao implements OwnerDao {
 
 
   private final JdbcClient jdbcClient;
+  private final NamedParameterJdbcTemplate jdbcTemplate;
+  private final OwnerNameIndex nameIndex;
+  private final OwnerCache cache;
 
+  /**
+   * Creates the DAO.
+   *
+   * @param jdbcClient the client used for single statements
+   * @param jdbcTemplate the template used for batch inserts
+   * @param nameIndex the in-memory index answering owner searches
+   * @param cache the cache of owners looked up by ID
+   */
   @Autowired
-  public OwnerJdbcDao(JdbcClient jdbcClient) {
+  public OwnerJdbcDao(JdbcClient jdbcClient, NamedParameterJdbcTemplate jdbcTemplate, OwnerNameIndex nameIndex, OwnerCache cache) {
     this.jdbcClient = jdbcClient;
+    this.jdbcTemplate = jdbcTemplate;
+    this.nameIndex = nameIndex;
+    this.cache = cache;
   }
 
   /**
-   * Retrieves an owner from the database by their ID.
+   * Loads all owners into the {@link OwnerNameIndex} once the application has started,
+   * i.e. after test data may have been generated directly in the database.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void loadNameIndex() {
+    LOG.trace("loadNameIndex()");
+    nameIndex.load(() -> jdbcClient
+        .sql(SQL_SELECT_EVERY)
+        .query(this::mapRow)
+        .list());
+  }
+
+  /**
+   * Retrieves an owner by their ID, from the {@link OwnerCache} or else from the database.
    *
    * @param id The ID of the owner to retrieve
    * @return The owner with the specified ID
@@ -65,6 +102,10 @@ public class OwnerJdbcDao implements OwnerDao {
   @Override
   public Owner getById(long id) throws NotFoundException {
     LOG.trace("getById({})", id);
+    Owner cached = cache.get(id);
+    if (cached != null) {
+      return cached;
+    }
     List<Owner> owners = jdbcClient
         .sql(SQL_SELECT_BY_ID)
         .param("id", id)
@@ -77,11 +118,13 @@ public class OwnerJdbcDao implements OwnerDao {
       // If this happens, something is wrong with either the DB or the select
       throw new FatalException("Found more than one owner with ID %d".formatted(id));
     }
+    cache.put(owners.getFirst());
     return owners.getFirst();
   }
 
   /**
    * Retrieves multiple owners by their IDs.
+   * Owners that are not cached are read with a single query.
    *
    * @param ids Collection of owner IDs to retrieve
    * @return Collection of owners matching the provided IDs
@@ -89,38 +132,36 @@ public class OwnerJdbcDao implements OwnerDao {
   @Override
   public Collection<Owner> getAllById(Collection<Long> ids) {
     LOG.trace("getAllById({})", ids);
-    return jdbcClient
-        .sql(SQL_SELECT_ALL)
-        .param("ids", ids)
-        .query(this::mapRow)
-        .list();
+    Set<Long> distinctIds = new LinkedHashSet<>(ids);
+    Map<Long, Owner> cached = cache.getAll(distinctIds);
+    List<Owner> owners = new ArrayList<>(cached.values());
+    if (cached.size() < distinctIds.size()) {
+      List<Owner> fetched = jdbcClient
+          .sql(SQL_SELECT_ALL)
+          .param("ids", distinctIds.stream().filter(id -> !cached.containsKey(id)).toList())
+          .query(this::mapRow)
+          .list();
+      cache.putAll(fetched);
+      owners.addAll(fetched);
+    }
+    return owners;
   }
 
   /**
    * Searches for owners based on search parameters.
+   * The search is answered from the in-memory {@link OwnerNameIndex}, which is loaded on first use
+   * if the application has not finished starting yet.
    *
    * @param searchParameters The search criteria for finding owners
-   * @return Collection of owners matching the search criteria
+   * @return Collection of owners matching the search criteria, best matches first
    */
   @Override
   public Collection<Owner> search(OwnerSearchDto searchParameters) {
     LOG.trace("search({})", searchParameters);
-    var query = SQL_SELECT_SEARCH;
-
-    Map<String, Object> params = new HashMap<>();
-    params.put("name", searchParameters.name());
-
-    var maxAmount = searchParameters.maxAmount();
-    if (maxAmount != null) {
-      query += SQL_SELECT_SEARCH_LIMIT_CLAUSE;
-      params.put("limit", maxAmount);
+    if (!nameIndex.isLoaded()) {
+      loadNameIndex();
     }
-
-    return jdbcClient
-        .sql(query)
-        .params(params)
-        .query(this::mapRow)
-        .list();
+    return nameIndex.search(searchParameters.name(), searchParameters.maxAmount());
   }
 
   /**
@@ -138,15 +179,57 @@ public class OwnerJdbcDao implements OwnerDao {
         .param("first_name", owner.firstName())
         .param("last_name", owner.lastName())
         .param("description", owner.description())
-        .update(keyHolder);
+        .update(keyHolder, "id");
 
 
-    return new Owner(
+    Owner created = new Owner(
         keyHolder.getKey().longValue(),
         owner.firstName(),
         owner.lastName(),
         owner.description()
     );
+    AfterCommit.run(() -> {
+      nameIndex.add(created);
+      cache.put(created);
+    });
+    return created;
+  }
+
+  /**
+   * Creates several owners with a single JDBC batch and adds them to the {@link OwnerNameIndex} and the {@link OwnerCache}
+   * together once they are committed.
+   *
+   * @param owners The data transfer objects containing the owner information
+   * @return The created owners with their generated IDs, in the order of {@code owners}
+   */
+  @Override
+  public List<Owner> createAll(List<OwnerCreateDto> owners) {
+    LOG.trace("createAll({} owners)", owners.size());
+    if (owners.isEmpty()) {
+      return List.of();
+    }
+    SqlParameterSource[] batch = owners.stream()
+        .map(owner -> new MapSqlParameterSource()
+            .addValue("first_name", owner.firstName())
+            .addValue("last_name", owner.lastName())
+            .addValue("description", owner.description()))
+        .toArray(SqlParameterSource[]::new);
+    GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+    jdbcTemplate.batchUpdate(SQL_INSERT, batch, keyHolder, new String[] {"id"});
+
+    List<Map<String, Object>> keys = keyHolder.getKeyList();
+    List<Owner> created = IntStream.range(0, owners.size())
+        .mapToObj(i -> new Owner(
+            ((Number) keys.get(i).values().iterator().next()).longValue(),
+            owners.get(i).firstName(),
+            owners.get(i).lastName(),
+            owners.get(i).description()))
+        .toList();
+    AfterCommit.run(() -> {
+      nameIndex.addAll(created);
+      cache.putAll(created);
+    });
+    return created;
   }
 
   /**
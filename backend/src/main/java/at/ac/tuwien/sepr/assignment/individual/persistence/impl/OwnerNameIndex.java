@@ -0,0 +1,168 @@
+package at.ac.tuwien.sepr.assignment.individual.persistence.impl;
+
+import at.ac.tuwien.sepr.assignment.individual.entity.Owner;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Resident index of all owners by their full name, used to answer the owner autocomplete without querying the database.
+ * Every suffix of the normalised full names ({@code "FIRST LAST"}, upper case) is kept in sorted sets,
+ * so that the owners whose name contains the query are found by a range lookup instead of a scan:
+ * one set for the whole names, one for the suffixes starting at a later word, and one for all other suffixes.
+ * The sets are concurrent skip lists, so searches never wait for a lock and an owner is added in logarithmic time.
+ * It is filled by {@link OwnerJdbcDao} at startup and extended on every create.
+ */
+@Component
+public class OwnerNameIndex {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private volatile Entries entries;
+
+  /**
+   * Returns whether the index has been filled from the persistent data store.
+   *
+   * @return true once {@link #load(Supplier)} has completed
+   */
+  public boolean isLoaded() {
+    return entries != null;
+  }
+
+  /**
+   * Replaces the content of the index with the owners supplied by {@code loader}.
+   * Owners added concurrently are applied after the load and are not lost.
+   *
+   * @param loader supplies every owner of the persistent data store
+   */
+  public synchronized void load(Supplier<Collection<Owner>> loader) {
+    Entries loaded = new Entries();
+    loader.get().forEach(loaded::add);
+    entries = loaded;
+    LOG.info("Loaded owner name index with {} owners", loaded.owners.size());
+  }
+
+  /**
+   * Adds an owner to the index, or replaces the entry of the owner with the same ID.
+   * Before the index is loaded this does nothing, as the owner will be part of the load.
+   *
+   * @param owner the owner to add
+   */
+  public synchronized void add(Owner owner) {
+    if (entries != null) {
+      entries.add(owner);
+    }
+  }
+
+  /**
+   * Adds several owners to the index, replacing the entries of owners with the same IDs.
+   * Before the index is loaded this does nothing, as the owners will be part of the load.
+   *
+   * @param owners the owners to add
+   */
+  public synchronized void addAll(Collection<Owner> owners) {
+    if (entries != null) {
+      owners.forEach(entries::add);
+    }
+  }
+
+  /**
+   * Finds the owners whose full name contains {@code name}, ignoring case, best matches first:
+   * owners whose full name starts with {@code name}, then those with a later word starting with it,
+   * then all other matches. Within each group owners are ordered by the matched part of their name.
+   *
+   * @param name the text the full name has to contain, or null to match every owner
+   * @param maxAmount the maximum number of owners to return, or null for no limit
+   * @return the matching owners, best matches first
+   */
+  public List<Owner> search(String name, Integer maxAmount) {
+    Entries current = entries;
+    String query = normalize(name);
+    int limit = maxAmount == null ? Integer.MAX_VALUE : Math.max(maxAmount, 0);
+
+    Set<Owner> result = new LinkedHashSet<>();
+    collectPrefixed(current.names, query, result, limit);
+    if (!query.isEmpty()) {
+      collectPrefixed(current.words, query, result, limit);
+      collectPrefixed(current.infixes, query, result, limit);
+    }
+    return new ArrayList<>(result);
+  }
+
+  private static void collectPrefixed(NavigableSet<Key> keys, String prefix, Set<Owner> result, int limit) {
+    for (Key key : keys.tailSet(new Key(prefix, 0, Long.MIN_VALUE, null))) {
+      if (result.size() >= limit || !key.startsWith(prefix)) {
+        return;
+      }
+      result.add(key.owner());
+    }
+  }
+
+  private static String normalize(String text) {
+    return text == null ? "" : text.toUpperCase(Locale.ROOT);
+  }
+
+  /**
+   * The suffix of a normalised full name starting at {@code offset}, of an owner.
+   * Keys are ordered by the suffix, then by the ID of the owner.
+   */
+  private record Key(String text, int offset, long ownerId, Owner owner) {
+    private static final Comparator<Key> ORDER = Key::compareSuffix;
+
+    boolean startsWith(String prefix) {
+      return text.startsWith(prefix, offset);
+    }
+
+    private static int compareSuffix(Key a, Key b) {
+      int lengthA = a.text.length() - a.offset;
+      int lengthB = b.text.length() - b.offset;
+      for (int i = 0; i < Math.min(lengthA, lengthB); i++) {
+        int difference = a.text.charAt(a.offset + i) - b.text.charAt(b.offset + i);
+        if (difference != 0) {
+          return difference;
+        }
+      }
+      return lengthA != lengthB ? lengthA - lengthB : Long.compare(a.ownerId, b.ownerId);
+    }
+  }
+
+  /**
+   * State of the index. It is only changed while holding the lock of the index, but read without it.
+   */
+  private static final class Entries {
+    private final ConcurrentHashMap<Long, Owner> owners = new ConcurrentHashMap<>();
+    private final NavigableSet<Key> names = new ConcurrentSkipListSet<>(Key.ORDER);
+    private final NavigableSet<Key> words = new ConcurrentSkipListSet<>(Key.ORDER);
+    private final NavigableSet<Key> infixes = new ConcurrentSkipListSet<>(Key.ORDER);
+
+    void add(Owner owner) {
+      Owner previous = owners.put(owner.id(), owner);
+      if (previous != null) {
+        forEachKey(previous, (set, key) -> set.remove(key));
+      }
+      forEachKey(owner, NavigableSet::add);
+    }
+
+    private void forEachKey(Owner owner, BiConsumer<NavigableSet<Key>, Key> action) {
+      String fullName = normalize(owner.firstName() + " " + owner.lastName());
+      for (int offset = 0; offset < fullName.length(); offset++) {
+        NavigableSet<Key> set = offset == 0 ? names
+            : fullName.charAt(offset - 1) == ' ' && fullName.charAt(offset) != ' ' ? words
+            : infixes;
+        action.accept(set, new Key(fullName, offset, owner.id(), owner));
+      }
+    }
+  }
+}
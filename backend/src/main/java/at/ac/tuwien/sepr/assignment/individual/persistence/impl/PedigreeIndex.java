@@ -0,0 +1,383 @@
+package at.ac.tuwien.sepr.assignment.individual.persistence.impl;
+
+import at.ac.tuwien.sepr.assignment.individual.entity.Horse;
+import at.ac.tuwien.sepr.assignment.individual.persistence.PedigreeView;
+import java.lang.invoke.MethodHandles;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Resident index of the pedigree of all horses, used to answer family tree queries without touching the database.
+ * For every horse only its parents, name, date of birth and image are kept, in parallel primitive arrays
+ * addressed through an open-addressing hash table from horse ID to array slot.
+ * The index is filled by {@link HorseJdbcDao} at startup and kept in sync on every create, update and delete.
+ */
+@Component
+public class PedigreeIndex implements PedigreeView {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final int INITIAL_CAPACITY = 1024;
+  private static final int EMPTY = -1;
+
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  private volatile boolean loaded;
+
+  // hash table from horse ID to slot, linear probing with backward-shift deletion
+  private long[] tableKeys = new long[INITIAL_CAPACITY * 2];
+  private int[] tableSlots = filled(INITIAL_CAPACITY * 2);
+  private int tableSize;
+
+  // horse data by slot
+  private long[] ids = new long[INITIAL_CAPACITY];
+  private long[] motherIds = new long[INITIAL_CAPACITY];
+  private long[] fatherIds = new long[INITIAL_CAPACITY];
+  private long[] birthDays = new long[INITIAL_CAPACITY];
+  private long[] imageIds = new long[INITIAL_CAPACITY];
+  private String[] names = new String[INITIAL_CAPACITY];
+  private int usedSlots;
+  private int[] freeSlots = new int[16];
+  private int freeCount;
+
+  /**
+   * Returns whether the index has been filled from the persistent data store.
+   *
+   * @return true once {@link #load(Loader)} has completed
+   */
+  public boolean isLoaded() {
+    return loaded;
+  }
+
+  /**
+   * Replaces the content of the index with the horses supplied by {@code loader}.
+   * Writers are blocked while loading, so changes made concurrently are applied after the load and are not lost.
+   *
+   * @param loader supplies every horse of the persistent data store
+   */
+  public void load(Loader loader) {
+    lock.writeLock().lock();
+    try {
+      clear();
+      loader.load(this::putUnlocked);
+      loaded = true;
+      LOG.info("Loaded pedigree index with {} horses", tableSize);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Adds a horse to the index, or replaces the entry of the horse with the same ID.
+   *
+   * @param id the ID of the horse
+   * @param name the name of the horse
+   * @param dateOfBirth the date of birth of the horse
+   * @param imageId the ID of the image of the horse, or null if it has none
+   * @param motherId the ID of the mother, or null if unknown
+   * @param fatherId the ID of the father, or null if unknown
+   */
+  public void put(long id, String name, LocalDate dateOfBirth, Long imageId, Long motherId, Long fatherId) {
+    lock.writeLock().lock();
+    try {
+      putUnlocked(id, name, dateOfBirth, imageId, motherId, fatherId);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes a horse from the index.
+   * References from its children are not touched; parents missing from the index are reported as unknown,
+   * which mirrors the {@code ON DELETE SET NULL} constraint of the database.
+   *
+   * @param id the ID of the horse to remove
+   */
+  public void remove(long id) {
+    lock.writeLock().lock();
+    try {
+      int slot = removeKey(id);
+      if (slot != EMPTY) {
+        names[slot] = null;
+        if (freeCount == freeSlots.length) {
+          freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Collects the family of a horse: the horse itself on level 0, its parents on level 1 and so on up to level {@code gen},
+   * ordered by level and ID. A horse reachable on several paths appears once on each level it is reached on,
+   * so a level never holds more horses than the index, however much the ancestors are inbred.
+   * The returned horses only contain ID, name, date of birth, image ID and parent IDs.
+   *
+   * @param id the ID of the root horse
+   * @param gen the number of generations above the root to include
+   * @return the horses of the family tree, or an empty list if the root horse does not exist
+   */
+  public List<Horse> family(long id, int gen) {
+    lock.readLock().lock();
+    try {
+      List<Horse> result = new ArrayList<>();
+      int rootSlot = slotOf(id);
+      if (rootSlot == EMPTY) {
+        return result;
+      }
+
+      BitSet seen = new BitSet(usedSlots);
+      int[] level = {rootSlot};
+      for (int depth = 0; level.length > 0; depth++) {
+        int[] next = new int[depth < gen ? level.length * 2 : 0];
+        int nextSize = 0;
+        seen.clear();
+        for (int slot : level) {
+          long mother = parentOf(motherIds[slot]);
+          long father = parentOf(fatherIds[slot]);
+          result.add(toHorse(slot, mother, father));
+          if (next.length > 0) {
+            nextSize = addUnseen(next, nextSize, mother, seen);
+            nextSize = addUnseen(next, nextSize, father, seen);
+          }
+        }
+        level = sortedById(next, nextSize);
+      }
+      return result;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean contains(long id) {
+    lock.readLock().lock();
+    try {
+      return slotOf(id) != EMPTY;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public long motherOf(long id) {
+    lock.readLock().lock();
+    try {
+      int slot = slotOf(id);
+      return slot == EMPTY ? NO_PARENT : parentOf(motherIds[slot]);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public long fatherOf(long id) {
+    lock.readLock().lock();
+    try {
+      int slot = slotOf(id);
+      return slot == EMPTY ? NO_PARENT : parentOf(fatherIds[slot]);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public long[] ids() {
+    lock.readLock().lock();
+    try {
+      long[] result = new long[tableSize];
+      int count = 0;
+      for (int i = 0; i < tableKeys.length; i++) {
+        if (tableSlots[i] != EMPTY) {
+          result[count++] = tableKeys[i];
+        }
+      }
+      return result;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void clear() {
+    Arrays.fill(tableSlots, EMPTY);
+    Arrays.fill(names, null);
+    tableSize = 0;
+    usedSlots = 0;
+    freeCount = 0;
+  }
+
+  private void putUnlocked(long id, String name, LocalDate dateOfBirth, Long imageId, Long motherId, Long fatherId) {
+    int slot = slotOf(id);
+    if (slot == EMPTY) {
+      slot = allocateSlot();
+      insertKey(id, slot);
+    }
+    ids[slot] = id;
+    names[slot] = name;
+    birthDays[slot] = dateOfBirth.toEpochDay();
+    imageIds[slot] = imageId == null ? 0 : imageId;
+    motherIds[slot] = motherId == null ? NO_PARENT : motherId;
+    fatherIds[slot] = fatherId == null ? NO_PARENT : fatherId;
+  }
+
+  private long parentOf(long parentId) {
+    return parentId != NO_PARENT && slotOf(parentId) != EMPTY ? parentId : NO_PARENT;
+  }
+
+  private Horse toHorse(int slot, long mother, long father) {
+    return new Horse(ids[slot], names[slot], null, LocalDate.ofEpochDay(birthDays[slot]), null, null, imageIds[slot], mother, father);
+  }
+
+  private int addUnseen(int[] slots, int size, long id, BitSet seen) {
+    if (id == NO_PARENT) {
+      return size;
+    }
+    int slot = slotOf(id);
+    if (seen.get(slot)) {
+      return size;
+    }
+    seen.set(slot);
+    slots[size] = slot;
+    return size + 1;
+  }
+
+  private int[] sortedById(int[] slots, int size) {
+    Integer[] boxed = new Integer[size];
+    for (int i = 0; i < size; i++) {
+      boxed[i] = slots[i];
+    }
+    Arrays.sort(boxed, (a, b) -> Long.compare(ids[a], ids[b]));
+    int[] sorted = new int[size];
+    for (int i = 0; i < size; i++) {
+      sorted[i] = boxed[i];
+    }
+    return sorted;
+  }
+
+  private int allocateSlot() {
+    if (freeCount > 0) {
+      return freeSlots[--freeCount];
+    }
+    if (usedSlots == ids.length) {
+      int capacity = ids.length * 2;
+      ids = Arrays.copyOf(ids, capacity);
+      motherIds = Arrays.copyOf(motherIds, capacity);
+      fatherIds = Arrays.copyOf(fatherIds, capacity);
+      birthDays = Arrays.copyOf(birthDays, capacity);
+      imageIds = Arrays.copyOf(imageIds, capacity);
+      names = Arrays.copyOf(names, capacity);
+    }
+    return usedSlots++;
+  }
+
+  private int slotOf(long id) {
+    int mask = tableKeys.length - 1;
+    for (int i = hash(id) & mask; tableSlots[i] != EMPTY; i = (i + 1) & mask) {
+      if (tableKeys[i] == id) {
+        return tableSlots[i];
+      }
+    }
+    return EMPTY;
+  }
+
+  private void insertKey(long id, int slot) {
+    if ((tableSize + 1) * 2 > tableKeys.length) {
+      rehash(tableKeys.length * 2);
+    }
+    int mask = tableKeys.length - 1;
+    int i = hash(id) & mask;
+    while (tableSlots[i] != EMPTY) {
+      i = (i + 1) & mask;
+    }
+    tableKeys[i] = id;
+    tableSlots[i] = slot;
+    tableSize++;
+  }
+
+  private int removeKey(long id) {
+    int mask = tableKeys.length - 1;
+    int i = hash(id) & mask;
+    while (tableSlots[i] != EMPTY && tableKeys[i] != id) {
+      i = (i + 1) & mask;
+    }
+    int slot = tableSlots[i];
+    if (slot == EMPTY) {
+      return EMPTY;
+    }
+    // shift following entries of the probe sequence back into the gap
+    int gap = i;
+    for (int j = (gap + 1) & mask; tableSlots[j] != EMPTY; j = (j + 1) & mask) {
+      int home = hash(tableKeys[j]) & mask;
+      if (((j - home) & mask) >= ((j - gap) & mask)) {
+        tableKeys[gap] = tableKeys[j];
+        tableSlots[gap] = tableSlots[j];
+        gap = j;
+      }
+    }
+    tableSlots[gap] = EMPTY;
+    tableSize--;
+    return slot;
+  }
+
+  private void rehash(int capacity) {
+    final long[] oldKeys = tableKeys;
+    final int[] oldSlots = tableSlots;
+    tableKeys = new long[capacity];
+    tableSlots = filled(capacity);
+    tableSize = 0;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldSlots[i] != EMPTY) {
+        insertKey(oldKeys[i], oldSlots[i]);
+      }
+    }
+  }
+
+  private static int hash(long id) {
+    long h = id * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  private static int[] filled(int length) {
+    int[] array = new int[length];
+    Arrays.fill(array, EMPTY);
+    return array;
+  }
+
+  /**
+   * Source of the horses the index is loaded from.
+   */
+  @FunctionalInterface
+  public interface Loader {
+    /**
+     * Hands every horse to {@code sink}.
+     *
+     * @param sink receives the pedigree data of each horse
+     */
+    void load(Sink sink);
+  }
+
+  /**
+   * Receiver of the pedigree data of a single horse.
+   */
+  @FunctionalInterface
+  public interface Sink {
+    /**
+     * Accepts the pedigree data of a horse.
+     *
+     * @param id the ID of the horse
+     * @param name the name of the horse
+     * @param dateOfBirth the date of birth of the horse
+     * @param imageId the ID of the image of the horse, or null if it has none
+     * @param motherId the ID of the mother, or null if unknown
+     * @param fatherId the ID of the father, or null if unknown
+     */
+    void accept(long id, String name, LocalDate dateOfBirth, Long imageId, Long motherId, Long fatherId);
+  }
+}
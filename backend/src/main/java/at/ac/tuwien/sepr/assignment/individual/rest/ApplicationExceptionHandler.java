@@ -6,9 +6,9 @@ import java.lang.invoke.MethodHandles;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
-import org.springframework.web.bind.annotation.ResponseBody;
-import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 /**
@@ -20,16 +20,17 @@ public class ApplicationExceptionHandler {
 
   /**
    * Handles {@link ValidationException} by returning a 422 Unprocessable Entity response.
+   * The body is always JSON, even if the failed request only accepted a streaming format.
    *
    * @param e the validation exception
    * @return a {@link ValidationErrorRestDto} containing validation error details
    */
   @ExceptionHandler
-  @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
-  @ResponseBody
-  public ValidationErrorRestDto handleValidationException(ValidationException e) {
+  public ResponseEntity<ValidationErrorRestDto> handleValidationException(ValidationException e) {
     LOG.warn("Terminating request processing with status 422 due to {}: {}", e.getClass().getSimpleName(), e.getMessage());
-    return new ValidationErrorRestDto(e.summary(), e.errors());
+    return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(new ValidationErrorRestDto(e.summary(), e.errors()));
   }
 
 
@@ -0,0 +1,156 @@
+package at.ac.tuwien.sepr.assignment.individual.rest;
+
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseDetailDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.OwnerDto;
+import at.ac.tuwien.sepr.assignment.individual.exception.ValidationException;
+import at.ac.tuwien.sepr.assignment.individual.service.HorseService;
+import at.ac.tuwien.sepr.assignment.individual.type.DataFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST controller for exporting the whole dataset.
+ */
+@RestController
+@RequestMapping(ExportEndpoint.BASE_PATH)
+public class ExportEndpoint {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  static final String BASE_PATH = "/export";
+
+  private static final List<String> CSV_COLUMNS = List.of(
+      "id", "name", "description", "dateOfBirth", "sex", "imageId", "motherId", "fatherId",
+      "ownerId", "ownerFirstName", "ownerLastName", "ownerDescription");
+
+  private final HorseService service;
+  private final ObjectMapper objectMapper;
+
+  /**
+   * Creates the endpoint.
+   *
+   * @param service the horse service
+   * @param objectMapper the mapper used to write exported horses as JSON
+   */
+  public ExportEndpoint(HorseService service, ObjectMapper objectMapper) {
+    this.service = service;
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * Exports every horse together with its owner, ordered by ID, as newline-delimited JSON or as CSV with a header row.
+   * Horses are written while they are read from the database, so the memory needed does not grow with the dataset.
+   * If the client accepts it, the export is compressed with gzip.
+   *
+   * @param formatParameter the format, {@code ndjson} or {@code csv}, or null for NDJSON
+   * @param acceptEncoding the value of the {@code Accept-Encoding} header, if any
+   * @param response the response the export is written to
+   * @throws ValidationException if the requested format does not exist
+   * @throws IOException if writing the response fails
+   */
+  @GetMapping
+  public void export(
+      @RequestParam(name = "format", required = false) String formatParameter,
+      @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+      HttpServletResponse response) throws ValidationException, IOException {
+    LOG.info("GET " + BASE_PATH + "?format={}", formatParameter);
+    final DataFormat format = parseFormat(formatParameter);
+    final boolean gzip = acceptEncoding != null && Arrays.stream(acceptEncoding.split(","))
+        .map(coding -> coding.strip().split(";")[0])
+        .anyMatch("gzip"::equalsIgnoreCase);
+
+    response.setContentType(format == DataFormat.CSV ? "text/csv;charset=UTF-8" : MediaType.APPLICATION_NDJSON_VALUE);
+    response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+        .filename(format == DataFormat.CSV ? "horses.csv" : "horses.ndjson")
+        .build().toString());
+    response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    OutputStream out = response.getOutputStream();
+    if (gzip) {
+      response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+      out = new GZIPOutputStream(out, 8192);
+    }
+
+    try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+      if (format == DataFormat.CSV) {
+        writeCsvRow(writer, CSV_COLUMNS);
+      }
+      ObjectWriter jsonWriter = objectMapper.writerFor(HorseDetailDto.class);
+      service.exportHorses(horse -> {
+        try {
+          if (format == DataFormat.CSV) {
+            writeCsvRow(writer, csvFields(horse));
+          } else {
+            writer.write(jsonWriter.writeValueAsString(horse));
+            writer.write('\n');
+          }
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    }
+  }
+
+  private static DataFormat parseFormat(String format) throws ValidationException {
+    try {
+      return DataFormat.fromParameter(format);
+    } catch (IllegalArgumentException e) {
+      throw new ValidationException("Invalid export format", List.of(
+          "Format must be one of " + Arrays.stream(DataFormat.values()).map(f -> f.name().toLowerCase()).toList()));
+    }
+  }
+
+  private static List<Object> csvFields(HorseDetailDto horse) {
+    OwnerDto owner = horse.owner();
+    return Arrays.asList(
+        horse.id(), horse.name(), horse.description(), horse.dateOfBirth(), horse.sex(),
+        horse.imageId(), horse.motherId(), horse.fatherId(),
+        owner == null ? null : owner.id(),
+        owner == null ? null : owner.firstName(),
+        owner == null ? null : owner.lastName(),
+        owner == null ? null : owner.description());
+  }
+
+  /**
+   * Writes a CSV record, quoting fields as described in RFC 4180 where necessary; null fields are left empty.
+   */
+  private static void writeCsvRow(Writer writer, List<?> fields) throws IOException {
+    for (int i = 0; i < fields.size(); i++) {
+      if (i > 0) {
+        writer.write(',');
+      }
+      Object field = fields.get(i);
+      if (field == null) {
+        continue;
+      }
+      String value = field.toString();
+      if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+      } else {
+        writer.write(value);
+      }
+    }
+    writer.write("\r\n");
+  }
+}
@@ -2,9 +2,14 @@ package at.ac.tuwien.sepr.assignment.individual.rest;
 
 import at.ac.tuwien.sepr.assignment.individual.dto.ImageCreateDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseCreateRestDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseCoancestryDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseDescendantDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseDetailDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseFamilyDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseInbreedingDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseListDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseOverviewDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchCursor;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseUpdateRestDto;
 import at.ac.tuwien.sepr.assignment.individual.exception.ConflictException;
@@ -13,14 +18,19 @@ import at.ac.tuwien.sepr.assignment.individual.exception.ValidationException;
 import at.ac.tuwien.sepr.assignment.individual.service.ImageService;
 import at.ac.tuwien.sepr.assignment.individual.service.HorseService;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
-import java.util.stream.Stream;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -44,27 +54,65 @@ import org.springframework.web.server.ResponseStatusException;
 public class HorseEndpoint {
   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   static final String BASE_PATH = "/horses";
+  static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
 
   private final HorseService service;
   private final ImageService imageService;
+  private final ObjectMapper objectMapper;
 
+  /**
+   * Creates the endpoint.
+   *
+   * @param service the horse service
+   * @param imageService the image service used for uploaded horse images
+   * @param objectMapper the mapper used to write streamed search results
+   */
   @Autowired
-  public HorseEndpoint(HorseService service, ImageService imageService) {
+  public HorseEndpoint(HorseService service, ImageService imageService, ObjectMapper objectMapper) {
     this.service = service;
     this.imageService = imageService;
+    this.objectMapper = objectMapper;
   }
 
   /**
    * Searches for horses based on the given search parameters.
+   * If the page is full, the cursor for the next page is returned in the {@value #NEXT_CURSOR_HEADER} header.
    *
    * @param searchParameters the parameters to filter the horse search
-   * @return a stream of {@link HorseListDto} matching the search criteria
+   * @return the list of {@link HorseListDto} matching the search criteria
+   * @throws ValidationException if the given cursor is invalid
    */
   @GetMapping
-  public Stream<HorseListDto> searchHorses(HorseSearchDto searchParameters) {
+  public ResponseEntity<List<HorseListDto>> searchHorses(HorseSearchDto searchParameters) throws ValidationException {
     LOG.info("GET " + BASE_PATH);
     LOG.debug("request parameters: {}", searchParameters);
-    return service.searchHorses(searchParameters);
+    List<HorseListDto> horses = service.searchHorses(searchParameters).toList();
+
+    var response = ResponseEntity.ok();
+    Integer limit = searchParameters.limit();
+    if (limit != null && limit > 0 && horses.size() == limit) {
+      response.header(NEXT_CURSOR_HEADER, HorseSearchCursor.after(searchParameters.sortOrDefault(), horses.getLast()).encode());
+    }
+    return response.body(horses);
+  }
+
+  /**
+   * Searches for horses based on the given search parameters and streams the result as newline-delimited JSON.
+   * Each horse is written as soon as it has been read and enriched with its owner,
+   * so the response neither has to be assembled in memory nor waits for the last row.
+   *
+   * @param searchParameters the parameters to filter the horse search
+   * @param response the response the horses are written to
+   * @throws ValidationException if the given cursor is invalid
+   * @throws IOException if writing the response fails
+   */
+  @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public void streamHorses(HorseSearchDto searchParameters, HttpServletResponse response) throws ValidationException, IOException {
+    LOG.info("GET " + BASE_PATH + " as " + MediaType.APPLICATION_NDJSON_VALUE);
+    LOG.debug("request parameters: {}", searchParameters);
+    NdjsonResponseWriter<HorseListDto> ndjson = new NdjsonResponseWriter<>(response, objectMapper.writerFor(HorseListDto.class), false);
+    service.streamHorses(searchParameters, ndjson);
+    ndjson.finish();
   }
 
   /**
@@ -86,6 +134,29 @@ public class HorseEndpoint {
     }
   }
 
+  /**
+   * Retrieves the horse with its owner, its parents and the metadata of its image.
+   *
+   * @param id the unique identifier of the horse
+   * @return the overview of the requested horse
+   * @throws ResponseStatusException if the horse is not found, or the overview could not be assembled in time
+   */
+  @GetMapping("{id}/overview")
+  public HorseOverviewDto getOverviewById(@PathVariable("id") long id) {
+    LOG.info("GET " + BASE_PATH + "/{}/overview", id);
+    try {
+      return service.getOverviewById(id);
+    } catch (NotFoundException e) {
+      HttpStatus status = HttpStatus.NOT_FOUND;
+      logClientError(status, "Horse to get overview of not found", e);
+      throw new ResponseStatusException(status, e.getMessage(), e);
+    } catch (TimeoutException e) {
+      HttpStatus status = HttpStatus.SERVICE_UNAVAILABLE;
+      LOG.warn("{} Overview of horse {} not assembled in time: {}", status.value(), id, e.getMessage());
+      throw new ResponseStatusException(status, e.getMessage(), e);
+    }
+  }
+
 
   /**
    * Updates the details of an existing horse, including an optional imageId file.
@@ -104,10 +175,14 @@ public class HorseEndpoint {
       throws ValidationException, ConflictException, IOException {
     LOG.info("PUT " + BASE_PATH + "/{}", toUpdate);
     LOG.debug("Body of request:\n{}", toUpdate);
+    Long fileId = processImageIfPresent(toUpdate.image());
     try {
-      Long fileId = processImageIfPresent(toUpdate.image());
       return service.update(toUpdate.toUpdateDtoWithId(id, fileId));
+    } catch (ValidationException | ConflictException | RuntimeException e) {
+      releaseImageIfPresent(fileId);
+      throw e;
     } catch (NotFoundException e) {
+      releaseImageIfPresent(fileId);
       HttpStatus status = HttpStatus.NOT_FOUND;
       logClientError(status, "Horse to update not found", e);
       throw new ResponseStatusException(status, e.getMessage(), e);
@@ -129,8 +204,12 @@ public class HorseEndpoint {
     LOG.info("POST " + BASE_PATH + "/{}", horse);
     LOG.debug("Body of request:\n{}", horse);
     Long fileId = processImageIfPresent(horse.image());
-    System.out.println(horse.name());
-    return service.create(horse.toHorseCreateDtoWithFile(fileId));
+    try {
+      return service.create(horse.toHorseCreateDtoWithFile(fileId));
+    } catch (ValidationException | ConflictException | RuntimeException e) {
+      releaseImageIfPresent(fileId);
+      throw e;
+    }
   }
 
   /**
@@ -172,6 +251,83 @@ public class HorseEndpoint {
   }
 
 
+  /**
+   * Retrieves the descendants of a horse by its ID.
+   *
+   * @param id The unique identifier of the horse
+   * @param gen The maximum number of generations to descend
+   * @param limit The maximum number of descendants to return
+   * @return The descendants of the specified horse, ordered by generation and ID
+   * @throws ValidationException If the generation or limit parameter is invalid
+   * @throws ResponseStatusException if the horse is not found
+   */
+  @GetMapping("{id}/descendants")
+  public List<HorseDescendantDto> getDescendantsById(
+      @PathVariable("id") long id,
+      @RequestParam(name = "gen") Integer gen,
+      @RequestParam(name = "limit", required = false) Integer limit)
+      throws ValidationException {
+    LOG.info("GET " + BASE_PATH + "/{}/descendants with gen {} and limit {}", id, gen, limit);
+    try {
+      return service.getDescendantsById(id, gen, limit);
+    } catch (NotFoundException e) {
+      HttpStatus status = HttpStatus.NOT_FOUND;
+      logClientError(status, "Horse to get descendants of not found", e);
+      throw new ResponseStatusException(status, e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Retrieves Wright's inbreeding coefficient of a horse by its ID.
+   *
+   * @param id The unique identifier of the horse
+   * @return The inbreeding coefficient of the specified horse
+   * @throws ResponseStatusException if the horse is not found
+   */
+  @GetMapping("{id}/inbreeding")
+  public HorseInbreedingDto getInbreedingById(@PathVariable("id") long id) {
+    LOG.info("GET " + BASE_PATH + "/{}/inbreeding", id);
+    try {
+      return service.getInbreedingById(id);
+    } catch (NotFoundException e) {
+      HttpStatus status = HttpStatus.NOT_FOUND;
+      logClientError(status, "Horse to get inbreeding coefficient of not found", e);
+      throw new ResponseStatusException(status, e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Retrieves the coancestry of two horses.
+   *
+   * @param id The unique identifier of the first horse
+   * @param otherId The unique identifier of the second horse
+   * @return The coancestry of the two horses
+   * @throws ResponseStatusException if one of the horses is not found
+   */
+  @GetMapping("{id}/coancestry/{otherId}")
+  public HorseCoancestryDto getCoancestry(@PathVariable("id") long id, @PathVariable("otherId") long otherId) {
+    LOG.info("GET " + BASE_PATH + "/{}/coancestry/{}", id, otherId);
+    try {
+      return service.getCoancestry(id, otherId);
+    } catch (NotFoundException e) {
+      HttpStatus status = HttpStatus.NOT_FOUND;
+      logClientError(status, "Horse to get coancestry of not found", e);
+      throw new ResponseStatusException(status, e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Retrieves the inbreeding coefficients of all horses.
+   *
+   * @return The inbreeding coefficients of all horses, ordered by ID
+   */
+  @GetMapping("inbreeding")
+  public List<HorseInbreedingDto> getAllInbreeding() {
+    LOG.info("GET " + BASE_PATH + "/inbreeding");
+    return service.getAllInbreeding();
+  }
+
+
   /**
    * Logs client-side errors with relevant details.
    *
@@ -190,4 +346,15 @@ public class HorseEndpoint {
     )).id();
   }
 
+  /**
+   * Releases the reference to an uploaded image that no horse has been stored with.
+   *
+   * @param fileId the ID returned by {@link #processImageIfPresent(MultipartFile)}
+   */
+  private void releaseImageIfPresent(Long fileId) {
+    if (fileId != null) {
+      imageService.delete(fileId);
+    }
+  }
+
 }
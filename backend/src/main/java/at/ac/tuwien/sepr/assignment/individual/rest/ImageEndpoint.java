@@ -1,20 +1,30 @@
 package at.ac.tuwien.sepr.assignment.individual.rest;
 
-import at.ac.tuwien.sepr.assignment.individual.dto.ImageDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.ImageInfoDto;
 import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
+import at.ac.tuwien.sepr.assignment.individual.exception.ValidationException;
 import at.ac.tuwien.sepr.assignment.individual.service.ImageService;
+import at.ac.tuwien.sepr.assignment.individual.type.ImageSize;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
 import java.lang.invoke.MethodHandles;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * REST controller for managing image-related operations.
@@ -26,6 +36,9 @@ public class ImageEndpoint {
   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   static final String BASE_PATH = "/images";
 
+  // an image never changes for a given ID, so clients may keep it for as long as caches allow
+  private static final String CACHE_CONTROL = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable().getHeaderValue();
+
   private final ImageService service;
 
   public ImageEndpoint(ImageService service) {
@@ -33,27 +46,130 @@ public class ImageEndpoint {
   }
 
   /**
-   * Retrieves the details of a horse by its ID.
+   * Streams the content of an image by its ID, optionally downscaled to one of the sizes of {@link ImageSize}.
+   * As long as the requested size has not been generated, the original is served without long-term caching.
+   * The content is copied from the database to the response without being held in memory.
+   * A single byte range requested with the {@code Range} header is answered with {@code 206 Partial Content},
+   * so large images can be fetched partially and resumed; requests for several ranges are answered with the whole image.
+   * Images carry the hash of their content as strong entity tag and may be cached forever;
+   * a request whose {@code If-None-Match} header contains the tag is answered with {@code 304 Not Modified}
+   * from the metadata alone, without reading the content.
    *
-   * @param id the unique identifier of the horse
-   * @return the detailed information of the requested horse
-   * @throws ResponseStatusException if the horse is not found
+   * @param id the unique identifier of the image
+   * @param sizeParameter the requested size, {@code thumb} or {@code medium}, or null for the original
+   * @param range the value of the {@code Range} header, if any
+   * @param ifNoneMatch the value of the {@code If-None-Match} header, if any
+   * @param ifRange the value of the {@code If-Range} header, if any
+   * @param response the response to write the image to
+   * @throws IOException if writing the response fails
+   * @throws ValidationException if the requested size does not exist
+   * @throws ResponseStatusException if the image is not found
    */
   @GetMapping("{id}")
-  public ResponseEntity<byte[]> getById(@PathVariable("id") long id) {
-    LOG.info("GET " + BASE_PATH + "/{}", id);
+  public void getById(
+      @PathVariable("id") long id,
+      @RequestParam(name = "size", required = false) String sizeParameter,
+      @RequestHeader(name = HttpHeaders.RANGE, required = false) String range,
+      @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+      @RequestHeader(name = HttpHeaders.IF_RANGE, required = false) String ifRange,
+      HttpServletResponse response) throws IOException, ValidationException {
+    LOG.info("GET " + BASE_PATH + "/{}?size={}", id, sizeParameter);
+    final ImageSize requestedSize = parseSize(sizeParameter);
     try {
+      ImageInfoDto info = service.getInfoById(id, requestedSize);
+      String etag = info.contentHash() == null ? null : "\"" + info.contentHash() + "\"";
+      if (etag != null) {
+        response.setHeader(HttpHeaders.ETAG, etag);
+        // a fallback to the original must be revalidated, so the variant is picked up once it exists
+        response.setHeader(HttpHeaders.CACHE_CONTROL, info.variant() == requestedSize ? CACHE_CONTROL : CacheControl.noCache().getHeaderValue());
+        if (ifNoneMatch != null && matchesAny(ifNoneMatch, etag)) {
+          response.setStatus(HttpStatus.NOT_MODIFIED.value());
+          return;
+        }
+      }
+
+      long size = info.size();
+      long offset = 0;
+      long length = size;
+      response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+      // a range is only served if the client's partial copy is still current, otherwise the whole image is sent
+      boolean rangeValid = ifRange == null || (etag != null && etag.equals(ifRange.strip()));
+      List<HttpRange> ranges = rangeValid ? parseRanges(range) : List.of();
+      if (ranges.size() == 1) {
+        offset = ranges.getFirst().getRangeStart(size);
+        if (offset >= size) {
+          response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+          response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+          return;
+        }
+        long end = ranges.getFirst().getRangeEnd(size);
+        length = end - offset + 1;
+        response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+        response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + offset + "-" + end + "/" + size);
+      }
 
-      ImageDto result = service.getById(id);
-      System.out.println("FileType: " + result.fileType() + " ID: " + result.id());
-      return ResponseEntity.ok().contentType(MediaType.parseMediaType(result.fileType())).body(result.image());
+      response.setContentType(info.fileType());
+      response.setContentLengthLong(length);
+      service.writeContent(id, info.variant(), offset, length, response.getOutputStream());
     } catch (NotFoundException e) {
       HttpStatus status = HttpStatus.NOT_FOUND;
-      logClientError(status, "Horse to get details of not found", e);
+      logClientError(status, "Image to get not found", e);
       throw new ResponseStatusException(status, e.getMessage(), e);
     }
   }
 
+  /**
+   * Parses the requested image size.
+   *
+   * @param size the value of the {@code size} parameter, or null
+   * @return the requested size
+   * @throws ValidationException if no size has the given name
+   */
+  private static ImageSize parseSize(String size) throws ValidationException {
+    try {
+      return ImageSize.fromParameter(size);
+    } catch (IllegalArgumentException e) {
+      throw new ValidationException("Invalid image size", List.of(
+          "Size must be one of " + Arrays.stream(ImageSize.values()).map(s -> s.name().toLowerCase()).toList()));
+    }
+  }
+
+  /**
+   * Checks whether an {@code If-None-Match} header matches an entity tag, using the weak comparison RFC 9110 requires.
+   *
+   * @param ifNoneMatch the value of the header
+   * @param etag the current entity tag
+   * @return true if the header is {@code *} or lists the tag
+   */
+  private static boolean matchesAny(String ifNoneMatch, String etag) {
+    for (String candidate : ifNoneMatch.split(",")) {
+      String tag = candidate.strip();
+      if (tag.equals("*") || (tag.startsWith("W/") ? tag.substring(2) : tag).equals(etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Parses a {@code Range} header. Malformed headers are ignored, as permitted by RFC 9110.
+   *
+   * @param range the value of the header, or null
+   * @return the requested ranges, empty if the whole content is requested
+   */
+  private static List<HttpRange> parseRanges(String range) {
+    if (range == null) {
+      return List.of();
+    }
+    try {
+      return HttpRange.parseRanges(range);
+    } catch (IllegalArgumentException e) {
+      LOG.debug("Ignoring malformed Range header '{}': {}", range, e.getMessage());
+      return List.of();
+    }
+  }
+
   /**
    * Logs client-side errors with relevant details.
    *
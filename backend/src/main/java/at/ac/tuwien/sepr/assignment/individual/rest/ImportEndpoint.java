@@ -0,0 +1,63 @@
+package at.ac.tuwien.sepr.assignment.individual.rest;
+
+import at.ac.tuwien.sepr.assignment.individual.dto.ImportProgressDto;
+import at.ac.tuwien.sepr.assignment.individual.exception.ValidationException;
+import at.ac.tuwien.sepr.assignment.individual.service.ImportService;
+import at.ac.tuwien.sepr.assignment.individual.type.DataFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST controller for importing many owners and horses at once.
+ */
+@RestController
+@RequestMapping(ImportEndpoint.BASE_PATH)
+public class ImportEndpoint {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  static final String BASE_PATH = "/import";
+  static final String CSV_VALUE = "text/csv";
+
+  private final ImportService service;
+  private final ObjectMapper objectMapper;
+
+  /**
+   * Creates the endpoint.
+   *
+   * @param service the import service
+   * @param objectMapper the mapper used to write the streamed progress
+   */
+  public ImportEndpoint(ImportService service, ObjectMapper objectMapper) {
+    this.service = service;
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * Imports the owners and horses in the request body, given as newline-delimited JSON or as CSV with a header row.
+   * The progress is streamed as newline-delimited JSON, one line after every stored batch;
+   * the last line is the result of the import, listing every rejected row.
+   *
+   * @param request the request holding the rows to import
+   * @param response the response the progress is written to
+   * @throws ValidationException if the import as a whole is malformed
+   * @throws IOException if reading the request or writing the response fails
+   */
+  @PostMapping(consumes = {MediaType.APPLICATION_NDJSON_VALUE, CSV_VALUE}, produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public void importData(HttpServletRequest request, HttpServletResponse response) throws ValidationException, IOException {
+    LOG.info("POST " + BASE_PATH + " as {}", request.getContentType());
+    DataFormat format = MediaType.parseMediaType(request.getContentType()).isCompatibleWith(MediaType.APPLICATION_NDJSON)
+        ? DataFormat.NDJSON
+        : DataFormat.CSV;
+    NdjsonResponseWriter<ImportProgressDto> ndjson = new NdjsonResponseWriter<>(response, objectMapper.writerFor(ImportProgressDto.class), true);
+    ndjson.accept(service.importData(request.getInputStream(), format, ndjson));
+    ndjson.finish();
+  }
+}
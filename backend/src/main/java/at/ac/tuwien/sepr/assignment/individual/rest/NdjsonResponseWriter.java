@@ -0,0 +1,73 @@
+package at.ac.tuwien.sepr.assignment.individual.rest;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+import org.springframework.http.MediaType;
+
+/**
+ * Writes values to a response as newline-delimited JSON, one line per value.
+ * The content type is only set with the first line, or when the response is finished without any,
+ * so that an error raised before the body starts is still rendered as JSON by the exception handler.
+ *
+ * @param <T> the type of the written values
+ */
+final class NdjsonResponseWriter<T> implements Consumer<T> {
+  private final HttpServletResponse response;
+  private final ObjectWriter writer;
+  private final boolean flushEachLine;
+  private OutputStream out;
+
+  /**
+   * Creates a writer for a response.
+   *
+   * @param response the response to write to
+   * @param writer the writer serializing a single value
+   * @param flushEachLine whether every line is sent right away, instead of once the buffer is full
+   */
+  NdjsonResponseWriter(HttpServletResponse response, ObjectWriter writer, boolean flushEachLine) {
+    this.response = response;
+    this.writer = writer;
+    this.flushEachLine = flushEachLine;
+  }
+
+  /**
+   * Writes {@code value} as the next line.
+   *
+   * @param value the value to write
+   * @throws UncheckedIOException if writing the response fails
+   */
+  @Override
+  public void accept(T value) {
+    try {
+      OutputStream stream = start();
+      stream.write(writer.writeValueAsBytes(value));
+      stream.write('\n');
+      if (flushEachLine) {
+        stream.flush();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Finishes the response, which stays empty if no line was written.
+   *
+   * @throws IOException if writing the response fails
+   */
+  void finish() throws IOException {
+    start().flush();
+  }
+
+  private OutputStream start() throws IOException {
+    if (out == null) {
+      response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+      out = response.getOutputStream();
+    }
+    return out;
+  }
+}
@@ -2,8 +2,12 @@ package at.ac.tuwien.sepr.assignment.individual.service;
 
 
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseCreateDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseCoancestryDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseDescendantDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseDetailDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseFamilyDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseInbreedingDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseOverviewDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseListDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseUpdateDto;
@@ -12,6 +16,8 @@ import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
 import at.ac.tuwien.sepr.assignment.individual.exception.ValidationException;
 
 import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 /**
@@ -60,6 +66,18 @@ public interface HorseService {
    */
   HorseDetailDto getById(long id) throws NotFoundException;
 
+  /**
+   * Get everything the detail view of a horse shows:
+   * the horse with its owner, the summaries of its parents and the metadata of its image.
+   * The lookups run concurrently and are bounded by a common timeout.
+   *
+   * @param id the ID of the horse to get
+   * @return the overview of the horse with ID {@code id}
+   * @throws NotFoundException if the horse with the given ID does not exist in the persistent data store
+   * @throws TimeoutException if the lookups did not complete in time
+   */
+  HorseOverviewDto getOverviewById(long id) throws NotFoundException, TimeoutException;
+
   /**
    * Deletes a horse with the given ID from the database.
    *
@@ -79,13 +97,72 @@ public interface HorseService {
    */
   HorseFamilyDto getHorseFamilyById(long id, Integer gen) throws ValidationException, NotFoundException;
 
+  /**
+   * Get the descendants of the given horse, generation by generation.
+   *
+   * @param id id of horse whose descendants are wanted
+   * @param gen maximum number of generations to descend
+   * @param limit maximum number of descendants to return, or null for the configured maximum
+   * @return the descendants, ordered by generation and ID
+   * @throws NotFoundException if the horse with given ID does not exist in the persistent data store
+   * @throws ValidationException if the number of generations or the limit is not positive, or the limit exceeds the configured maximum
+   */
+  List<HorseDescendantDto> getDescendantsById(long id, Integer gen, Integer limit) throws ValidationException, NotFoundException;
+
+  /**
+   * Get Wright's inbreeding coefficient of the given horse.
+   *
+   * @param id id of the horse
+   * @return the inbreeding coefficient of the horse
+   * @throws NotFoundException if the horse with given ID does not exist in the persistent data store
+   */
+  HorseInbreedingDto getInbreedingById(long id) throws NotFoundException;
+
+  /**
+   * Get the coancestry of the two given horses.
+   *
+   * @param id id of the first horse
+   * @param otherId id of the second horse
+   * @return the coancestry of the two horses
+   * @throws NotFoundException if one of the horses does not exist in the persistent data store
+   */
+  HorseCoancestryDto getCoancestry(long id, long otherId) throws NotFoundException;
+
+  /**
+   * Get Wright's inbreeding coefficient of every stored horse.
+   *
+   * @return the inbreeding coefficients of all horses, ordered by ID
+   */
+  List<HorseInbreedingDto> getAllInbreeding();
+
   /**
    * Get the horses with given serach parameters.
+   * If {@code horse.cursor()} is given, the result starts after the position it encodes.
    *
    * @param horse search parameters
    * @return stream of horses that matches the search parameters
+   * @throws ValidationException if the given cursor is malformed or was created for a different sort order
+   */
+  Stream<HorseListDto> searchHorses(HorseSearchDto horse) throws ValidationException;
+
+  /**
+   * Hand the horses with given serach parameters to {@code action} one by one,
+   * without holding the whole result in memory.
+   * The search parameters are validated before the first horse is handed over.
+   *
+   * @param horse search parameters
+   * @param action callback receiving every matching horse
+   * @throws ValidationException if the given cursor is malformed or was created for a different sort order
+   */
+  void streamHorses(HorseSearchDto horse, Consumer<HorseListDto> action) throws ValidationException;
+
+  /**
+   * Hand every stored horse, together with its owner, to {@code action} one by one, ordered by ID,
+   * without holding more than a single horse in memory.
+   *
+   * @param action callback receiving every horse
    */
-  Stream<HorseListDto> searchHorses(HorseSearchDto horse);
+  void exportHorses(Consumer<HorseDetailDto> action);
 
 
 }
@@ -2,9 +2,13 @@ package at.ac.tuwien.sepr.assignment.individual.service;
 
 import at.ac.tuwien.sepr.assignment.individual.dto.ImageCreateDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.ImageDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.ImageInfoDto;
 import at.ac.tuwien.sepr.assignment.individual.entity.Image;
 import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
+import at.ac.tuwien.sepr.assignment.individual.type.ImageSize;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.stream.Stream;
 
 /**
@@ -40,9 +44,35 @@ public interface ImageService {
   ImageDto getById(long id) throws NotFoundException;
 
   /**
-   * Delete the file with the given ID
+   * Get the metadata of the file with given ID in the requested size, without its content.
+   * If the variant of that size is not available (yet), the metadata of the original is returned;
+   * {@link ImageInfoDto#variant()} tells which one it is.
    *
-   * @param id the ID of the file which gets deleted
+   * @param id the ID of the file to get
+   * @param size the requested size
+   * @return the metadata of the file with ID {@code id}
+   * @throws NotFoundException if the file with the given ID does not exist in the persistent data store
+   */
+  ImageInfoDto getInfoById(long id, ImageSize size) throws NotFoundException;
+
+  /**
+   * Write a part of the content of the file with given ID to {@code out}.
+   *
+   * @param id the ID of the file to write
+   * @param variant the variant to write, as returned by {@link #getInfoById(long, ImageSize)}
+   * @param offset the index of the first byte to write
+   * @param length the number of bytes to write
+   * @param out the stream to write the content to
+   * @throws NotFoundException if the file with the given ID does not exist in the persistent data store
+   * @throws IOException if writing to {@code out} fails
+   */
+  void writeContent(long id, ImageSize variant, long offset, long length, OutputStream out) throws NotFoundException, IOException;
+
+  /**
+   * Release one reference to the file with the given ID, as obtained from {@link #create(ImageCreateDto)}.
+   * The file is deleted once no references remain.
+   *
+   * @param id the ID of the file which gets released
    */
-  void delete(long id) throws NotFoundException;
+  void delete(long id);
 }
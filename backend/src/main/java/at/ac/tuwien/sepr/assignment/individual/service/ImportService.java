@@ -0,0 +1,28 @@
+package at.ac.tuwien.sepr.assignment.individual.service;
+
+import at.ac.tuwien.sepr.assignment.individual.dto.ImportProgressDto;
+import at.ac.tuwien.sepr.assignment.individual.exception.ValidationException;
+import at.ac.tuwien.sepr.assignment.individual.type.DataFormat;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+/**
+ * Service for importing many owners and horses at once.
+ */
+public interface ImportService {
+  /**
+   * Import the owners and horses given in {@code in}.
+   * Rows may refer to other rows of the same import as owner or parent, in any order.
+   * Rows that are invalid, or refer to a row that could not be imported, are skipped and reported;
+   * all other rows are stored.
+   *
+   * @param in the rows to import
+   * @param format the format the rows are given in
+   * @param progress receives the state of the import after every stored batch
+   * @return the final state of the import, including every rejected row
+   * @throws ValidationException if the import as a whole is malformed
+   * @throws IOException if reading {@code in} fails
+   */
+  ImportProgressDto importData(InputStream in, DataFormat format, Consumer<ImportProgressDto> progress) throws ValidationException, IOException;
+}
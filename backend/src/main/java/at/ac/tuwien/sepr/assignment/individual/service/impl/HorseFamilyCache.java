@@ -0,0 +1,224 @@
+package at.ac.tuwien.sepr.assignment.individual.service.impl;
+
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseFamilyDto;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded cache of family trees by root horse and number of generations.
+ * When the cache is full, the least recently used tree is evicted.
+ * For every horse the cache remembers which cached trees contain it,
+ * so that changing or deleting a horse only invalidates the trees it actually appears in.
+ * As family trees are mutable, the cache keeps its own copy of every tree and hands out copies of it,
+ * so that callers changing a tree they got cannot corrupt the cached one.
+ * Hits, misses, evictions and invalidations are published as metrics.
+ */
+@Component
+public class HorseFamilyCache implements MeterBinder {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final String CACHE_NAME = "horseFamily";
+
+  private final int maxEntries;
+  private final LinkedHashMap<Key, Entry> entries;
+  private final Map<Long, Set<Key>> keysByMember = new HashMap<>();
+  private long version;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+  private final AtomicLong invalidations = new AtomicLong();
+
+  /**
+   * Creates the cache.
+   *
+   * @param maxEntries the maximum number of family trees kept
+   */
+  public HorseFamilyCache(@Value("${app.family-cache.max-entries:1000}") int maxEntries) {
+    this.maxEntries = maxEntries;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /**
+   * Returns the cached family tree for the given root horse and number of generations.
+   *
+   * @param id the ID of the root horse
+   * @param gen the number of generations
+   * @return a copy of the cached tree, or null if it is not cached
+   */
+  public HorseFamilyDto get(long id, int gen) {
+    Entry entry;
+    synchronized (this) {
+      entry = entries.get(new Key(id, gen));
+    }
+    if (entry == null) {
+      misses.incrementAndGet();
+      return null;
+    }
+    hits.incrementAndGet();
+    // the cached tree is never changed, so it can be copied without holding the lock
+    return copyOf(entry.tree(), new HashMap<>());
+  }
+
+  /**
+   * Returns a token identifying the current state of the cache, to be passed to {@link #put(long, int, HorseFamilyDto, long)}.
+   * Taking the token before computing a tree makes sure that a tree computed from data
+   * that has been invalidated in the meantime is never stored.
+   *
+   * @return the current version of the cache
+   */
+  public synchronized long version() {
+    return version;
+  }
+
+  /**
+   * Stores a copy of a family tree, unless a horse has been invalidated since {@code version} was obtained.
+   *
+   * @param id the ID of the root horse
+   * @param gen the number of generations
+   * @param tree the family tree to store
+   * @param version the version returned by {@link #version()} before the tree was computed
+   */
+  public synchronized void put(long id, int gen, HorseFamilyDto tree, long version) {
+    if (version != this.version || maxEntries <= 0) {
+      return;
+    }
+    Key key = new Key(id, gen);
+    Set<Long> members = membersOf(tree);
+    Entry previous = entries.put(key, new Entry(copyOf(tree, new HashMap<>()), members));
+    if (previous != null) {
+      unlink(key, previous);
+    }
+    for (Long member : members) {
+      keysByMember.computeIfAbsent(member, k -> new HashSet<>()).add(key);
+    }
+
+    while (entries.size() > maxEntries) {
+      var eldest = entries.entrySet().iterator().next();
+      entries.remove(eldest.getKey());
+      unlink(eldest.getKey(), eldest.getValue());
+      evictions.incrementAndGet();
+    }
+  }
+
+  /**
+   * Removes every cached family tree that contains the given horse.
+   *
+   * @param horseId the ID of the horse that has changed
+   */
+  public synchronized void invalidate(long horseId) {
+    version++;
+    Set<Key> keys = keysByMember.remove(horseId);
+    if (keys == null) {
+      return;
+    }
+    LOG.debug("Invalidating {} family trees containing horse {}", keys.size(), horseId);
+    for (Key key : keys) {
+      Entry entry = entries.remove(key);
+      if (entry != null) {
+        unlink(key, entry);
+        invalidations.incrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Publishes the cache statistics to {@code registry}.
+   *
+   * @param registry the registry to bind the metrics to
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("cache.gets", hits, AtomicLong::get)
+        .tags("cache", CACHE_NAME, "result", "hit")
+        .description("Family trees served from the cache")
+        .register(registry);
+    FunctionCounter.builder("cache.gets", misses, AtomicLong::get)
+        .tags("cache", CACHE_NAME, "result", "miss")
+        .description("Family trees that had to be computed")
+        .register(registry);
+    FunctionCounter.builder("cache.evictions", evictions, AtomicLong::get)
+        .tags("cache", CACHE_NAME)
+        .description("Family trees evicted because the cache was full")
+        .register(registry);
+    FunctionCounter.builder("cache.invalidations", invalidations, AtomicLong::get)
+        .tags("cache", CACHE_NAME)
+        .description("Family trees removed because a contained horse changed")
+        .register(registry);
+    Gauge.builder("cache.size", this, HorseFamilyCache::size)
+        .tags("cache", CACHE_NAME)
+        .description("Number of cached family trees")
+        .register(registry);
+  }
+
+  private synchronized int size() {
+    return entries.size();
+  }
+
+  private void unlink(Key key, Entry entry) {
+    for (Long member : entry.members()) {
+      Set<Key> keys = keysByMember.get(member);
+      if (keys != null) {
+        keys.remove(key);
+        if (keys.isEmpty()) {
+          keysByMember.remove(member);
+        }
+      }
+    }
+  }
+
+  /**
+   * Copies a tree, keeping a horse that appears on several paths a single shared node.
+   */
+  private static HorseFamilyDto copyOf(HorseFamilyDto node, Map<Long, HorseFamilyDto> copies) {
+    if (node == null) {
+      return null;
+    }
+    HorseFamilyDto copy = copies.get(node.id);
+    if (copy == null) {
+      copy = new HorseFamilyDto(node.id, node.name, node.dateOfBirth, node.imageId);
+      copies.put(node.id, copy);
+      copy.mother = copyOf(node.mother, copies);
+      copy.father = copyOf(node.father, copies);
+    }
+    return copy;
+  }
+
+  private static Set<Long> membersOf(HorseFamilyDto tree) {
+    Set<Long> members = new HashSet<>();
+    Deque<HorseFamilyDto> open = new ArrayDeque<>();
+    open.push(tree);
+    while (!open.isEmpty()) {
+      HorseFamilyDto node = open.pop();
+      if (members.add(node.id)) {
+        if (node.mother != null) {
+          open.push(node.mother);
+        }
+        if (node.father != null) {
+          open.push(node.father);
+        }
+      }
+    }
+    return members;
+  }
+
+  private record Key(long id, int gen) {
+  }
+
+  private record Entry(HorseFamilyDto tree, Set<Long> members) {
+  }
+}
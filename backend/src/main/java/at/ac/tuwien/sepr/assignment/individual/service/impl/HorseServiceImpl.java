@@ -1,12 +1,18 @@
 package at.ac.tuwien.sepr.assignment.individual.service.impl;
 
 
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchCursor;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseListDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseUpdateDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseCreateDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseCoancestryDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseDescendantDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseDetailDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseFamilyDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseInbreedingDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseOverviewDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.ImageInfoDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.OwnerDto;
 import at.ac.tuwien.sepr.assignment.individual.entity.Horse;
 import at.ac.tuwien.sepr.assignment.individual.exception.ConflictException;
@@ -14,24 +20,35 @@ import at.ac.tuwien.sepr.assignment.individual.exception.FatalException;
 import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
 import at.ac.tuwien.sepr.assignment.individual.exception.ValidationException;
 import at.ac.tuwien.sepr.assignment.individual.mapper.HorseMapper;
+import at.ac.tuwien.sepr.assignment.individual.mapper.OwnerMapper;
+import at.ac.tuwien.sepr.assignment.individual.persistence.AfterCommit;
 import at.ac.tuwien.sepr.assignment.individual.persistence.HorseDao;
-import at.ac.tuwien.sepr.assignment.individual.persistence.ImageDao;
+import at.ac.tuwien.sepr.assignment.individual.persistence.PedigreeView;
 import at.ac.tuwien.sepr.assignment.individual.service.HorseService;
+import at.ac.tuwien.sepr.assignment.individual.service.ImageService;
 import at.ac.tuwien.sepr.assignment.individual.service.OwnerService;
+import at.ac.tuwien.sepr.assignment.individual.type.ImageSize;
 
 import java.lang.invoke.MethodHandles;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Implementation of {@link HorseService} for handling imageId storage and retrieval.
@@ -40,52 +57,71 @@ import org.springframework.stereotype.Service;
 public class HorseServiceImpl implements HorseService {
   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   private final HorseDao dao;
-  private final ImageDao imageDao;
+  private final ImageService imageService;
   private final HorseMapper mapper;
+  private final OwnerMapper ownerMapper;
   private final HorseValidator validator;
   private final OwnerService ownerService;
+  private final HorseFamilyCache familyCache;
+  private final int maxDescendants;
+  private final Duration overviewTimeout;
+  private final int maxKinshipMemoEntries;
 
 
+  /**
+   * Creates the service.
+   *
+   * @param dao the horse DAO
+   * @param mapper the horse mapper
+   * @param ownerMapper the owner mapper, used for owners read together with their horses
+   * @param validator the horse validator
+   * @param ownerService the service used to resolve horse owners
+   * @param imageService the service used to release images
+   * @param familyCache the cache of computed family trees
+   * @param maxDescendants the maximum number of descendants returned for a single horse
+   * @param overviewTimeout the time all lookups for the overview of a horse may take together
+   * @param maxKinshipMemoEntries the maximum number of kinship values memoised while computing inbreeding coefficients
+   */
   @Autowired
   public HorseServiceImpl(HorseDao dao,
                           HorseMapper mapper,
+                          OwnerMapper ownerMapper,
                           HorseValidator validator,
                           OwnerService ownerService,
-                          ImageDao imageDao) {
+                          ImageService imageService,
+                          HorseFamilyCache familyCache,
+                          @Value("${app.descendants.max-limit:1000}") int maxDescendants,
+                          @Value("${app.overview.timeout:2s}") Duration overviewTimeout,
+                          @Value("${app.kinship.max-memo-entries:1000000}") int maxKinshipMemoEntries) {
     this.dao = dao;
     this.mapper = mapper;
+    this.ownerMapper = ownerMapper;
     this.validator = validator;
     this.ownerService = ownerService;
-    this.imageDao = imageDao;
+    this.imageService = imageService;
+    this.familyCache = familyCache;
+    this.maxDescendants = maxDescendants;
+    this.overviewTimeout = overviewTimeout;
+    this.maxKinshipMemoEntries = maxKinshipMemoEntries;
   }
 
   /**
-   * Retrieves all horses stored in the system.
+   * Retrieves all horses stored in the system, ordered by ID, together with their owners.
    *
    * @return a stream of all stored horses as DTOs
    */
   @Override
   public Stream<HorseListDto> allHorses() {
     LOG.trace("allHorses()");
-    var horses = dao.getAll();
-    var ownerIds = horses.stream()
-        .map(Horse::ownerId)
-        .filter(Objects::nonNull)
-        .collect(Collectors.toUnmodifiableSet());
-    Map<Long, OwnerDto> ownerMap;
-    try {
-      ownerMap = ownerService.getAllById(ownerIds);
-    } catch (NotFoundException e) {
-      throw new FatalException("Horse, that is already persisted, refers to non-existing owner", e);
-    }
-    return horses.stream()
-        .map(horse -> mapper.entityToListDto(horse, ownerMap));
+    return dao.searchHorseList(new HorseSearchDto(null, null, null, null, null, null), null).stream();
   }
 
   /**
    * Updates the horse with the ID given in {@code horse}
    * with the data given in {@code horse}
    * in the persistent data store.
+   * If the horse gets a different image, its reference to the previous image is released
+   * in the same transaction as the update, so a failed update keeps the image it still shows.
    *
    * @param horse the horse to update
    * @return the updated horse as a detailed DTO
@@ -94,11 +130,18 @@ public class HorseServiceImpl implements HorseService {
    * @throws ConflictException if the update data given for the horse is in conflict the data currently in the system (owner does not exist, …)
    */
   @Override
+  @Transactional(rollbackFor = Exception.class)
   public HorseDetailDto update(HorseUpdateDto horse) throws NotFoundException, ValidationException, ConflictException {
     LOG.trace("update({})", horse);
     validator.validateForUpdate(horse);
 
+    long previousImageId = dao.getById(horse.id()).imageId();
     var updatedHorse = dao.update(horse);
+    AfterCommit.run(() -> familyCache.invalidate(updatedHorse.id()));
+    // the reference to the new image was taken when it was uploaded
+    if (previousImageId != 0 && !Objects.equals(previousImageId, horse.imageId())) {
+      imageService.delete(previousImageId);
+    }
     return mapper.entityToDetailDto(
         updatedHorse,
         ownerMapForSingleId(updatedHorse.ownerId()));
@@ -139,27 +182,65 @@ public class HorseServiceImpl implements HorseService {
         ownerMapForSingleId(horse.ownerId()));
   }
 
+  /**
+   * Get the horse with given ID together with its owner, the summaries of its parents and the metadata of its image.
+   * The parents are taken from the resident pedigree, so they are read while the horse itself is read;
+   * owner and image are read as soon as the horse is known.
+   * All lookups run on virtual threads within one {@link LookupScope}, so the overview takes as long as the slowest chain of lookups.
+   *
+   * @param id the ID of the horse to get
+   * @return the overview of the horse with ID {@code id}
+   * @throws NotFoundException if the horse with the given ID does not exist in the persistent data store
+   * @throws TimeoutException if the lookups did not complete within the configured timeout
+   */
+  @Override
+  public HorseOverviewDto getOverviewById(long id) throws NotFoundException, TimeoutException {
+    LOG.trace("getOverviewById({})", id);
+    PedigreeView pedigree = dao.getPedigree();
+    long motherId = pedigree.motherOf(id);
+    long fatherId = pedigree.fatherOf(id);
+    try (var scope = new LookupScope(overviewTimeout)) {
+      Future<Map<Long, HorseListDto>> parents = scope.fork(() -> parentSummaries(motherId, fatherId));
+      Horse horse = scope.join(scope.fork(() -> dao.getById(id)));
+      Future<Map<Long, OwnerDto>> owner = scope.fork(() -> ownerMapForSingleId(horse.ownerId()));
+      Future<ImageInfoDto> image = scope.fork(() -> horse.imageId() == null || horse.imageId() == 0
+          ? null
+          : imageService.getInfoById(horse.imageId(), ImageSize.ORIGINAL));
+      Map<Long, HorseListDto> parentsById = scope.join(parents);
+      return new HorseOverviewDto(
+          mapper.entityToDetailDto(horse, scope.join(owner)),
+          parentsById.get(motherId),
+          parentsById.get(fatherId),
+          scope.join(image));
+    }
+  }
+
   /**
    * Deletes a horse with the given ID from the database.
-   * If the horse has an associated image, that image is also deleted.
+   * If the horse has an associated image, its reference to the image is released,
+   * which deletes the image unless other horses share it.
+   * The reference is released in the same transaction as the deletion, so a failed deletion keeps the image.
    *
    * @param id the ID of the horse to delete
    * @throws NotFoundException if the horse with the given ID does not exist
    */
   @Override
+  @Transactional(rollbackFor = Exception.class)
   public void delete(long id) throws NotFoundException {
     LOG.trace("delete({})", id);
     var imageID = dao.getById(id).imageId();
     dao.delete(id);
+    AfterCommit.run(() -> familyCache.invalidate(id));
     if (imageID != 0) {
-      LOG.trace("delete file({})", id);
-      imageDao.delete(imageID);
+      LOG.trace("release file({})", imageID);
+      imageService.delete(imageID);
     }
   }
 
 
   /**
-   * Returns the family tree for a horse
+   * Returns the family tree for a horse.
+   * Trees are served from the {@link HorseFamilyCache} if present, and stored there after being computed.
    *
    * @param id    the ID of the root horse for the tree
    * @param gen the number of generations to fetch (must be positive)
@@ -174,12 +255,19 @@ public class HorseServiceImpl implements HorseService {
       throw new ValidationException("Invalid generations parameter, must be positive", null);
     }
 
+    HorseFamilyDto cached = familyCache.get(id, gen);
+    if (cached != null) {
+      return cached;
+    }
+
+    long cacheVersion = familyCache.version();
+    List<Horse> family = dao.getHorseFamilyById(id, gen);
     var map = new HashMap<Long, HorseFamilyDto>();
-    for (Horse horse : dao.getHorseFamilyById(id, gen)) {
-      map.put(horse.id(), new HorseFamilyDto(horse.id(), horse.name(), horse.dateOfBirth()));
+    for (Horse horse : family) {
+      map.put(horse.id(), new HorseFamilyDto(horse.id(), horse.name(), horse.dateOfBirth(), horse.imageId()));
     }
 
-    for (Horse horse : dao.getHorseFamilyById(id, gen)) {
+    for (Horse horse : family) {
       if (horse.motherId() != 0) {
         map.get(horse.id()).mother = map.get(horse.motherId());
       }
@@ -188,7 +276,100 @@ public class HorseServiceImpl implements HorseService {
       }
     }
 
-    return map.get(id);
+    HorseFamilyDto tree = map.get(id);
+    if (tree != null) {
+      familyCache.put(id, gen, tree, cacheVersion);
+    }
+    return tree;
+  }
+
+  /**
+   * Returns the descendants of a horse, cut off after {@code gen} generations and {@code limit} horses.
+   *
+   * @param id the ID of the horse whose descendants to return
+   * @param gen the maximum number of generations to descend
+   * @param limit the maximum number of descendants, or null for the configured maximum
+   * @return the descendants, ordered by generation and ID
+   * @throws NotFoundException if the horse with given ID does not exist in the persistent data store
+   * @throws ValidationException if the number of generations or the limit is invalid
+   */
+  @Override
+  public List<HorseDescendantDto> getDescendantsById(long id, Integer gen, Integer limit) throws ValidationException, NotFoundException {
+    LOG.trace("getDescendantsById({}, {}, {})", id, gen, limit);
+    int effectiveLimit = limit == null ? maxDescendants : limit;
+    validator.validateForDescendants(gen, effectiveLimit, maxDescendants);
+    dao.getById(id);
+
+    List<List<Horse>> generations = dao.getDescendantsById(id, gen, effectiveLimit);
+    List<HorseDescendantDto> descendants = new ArrayList<>();
+    for (int i = 0; i < generations.size(); i++) {
+      for (Horse horse : generations.get(i)) {
+        descendants.add(mapper.entityToDescendantDto(horse, i + 1));
+      }
+    }
+    return descendants;
+  }
+
+  /**
+   * Computes the inbreeding coefficient of a horse from the resident pedigree.
+   * The kinship memo is only kept for this request.
+   *
+   * @param id the ID of the horse
+   * @return the inbreeding coefficient of the horse
+   * @throws NotFoundException if the horse with the given ID does not exist in the persistent data store
+   */
+  @Override
+  public HorseInbreedingDto getInbreedingById(long id) throws NotFoundException {
+    LOG.trace("getInbreedingById({})", id);
+    PedigreeView pedigree = existingPedigree(id);
+    return new HorseInbreedingDto(id, new KinshipCalculator(pedigree, maxKinshipMemoEntries).inbreeding(id));
+  }
+
+  /**
+   * Computes the kinship coefficient of two horses from the resident pedigree.
+   * The kinship memo is only kept for this request.
+   *
+   * @param id the ID of the first horse
+   * @param otherId the ID of the second horse
+   * @return the kinship coefficient of both horses
+   * @throws NotFoundException if one of the horses does not exist in the persistent data store
+   */
+  @Override
+  public HorseCoancestryDto getCoancestry(long id, long otherId) throws NotFoundException {
+    LOG.trace("getCoancestry({}, {})", id, otherId);
+    existingPedigree(id);
+    PedigreeView pedigree = existingPedigree(otherId);
+    return new HorseCoancestryDto(id, otherId, new KinshipCalculator(pedigree, maxKinshipMemoEntries).kinship(id, otherId));
+  }
+
+  /**
+   * Computes the inbreeding coefficients of all horses with a single, shared kinship memo, bounded by the configured size.
+   * Horses are evaluated generation by generation, founders first, so that every horse finds
+   * the kinship values of its ancestors already memoised; the horses of one generation are evaluated in parallel.
+   *
+   * @return the inbreeding coefficients of all horses, ordered by ID
+   */
+  @Override
+  public List<HorseInbreedingDto> getAllInbreeding() {
+    LOG.trace("getAllInbreeding()");
+    PedigreeView pedigree = dao.getPedigree();
+    KinshipCalculator calculator = new KinshipCalculator(pedigree, maxKinshipMemoEntries);
+    List<HorseInbreedingDto> result = new ArrayList<>();
+    for (List<Long> level : calculator.byDepth(pedigree.ids())) {
+      result.addAll(level.parallelStream()
+          .map(id -> new HorseInbreedingDto(id, calculator.inbreeding(id)))
+          .toList());
+    }
+    result.sort(Comparator.comparingLong(HorseInbreedingDto::id));
+    return result;
+  }
+
+  private PedigreeView existingPedigree(long id) throws NotFoundException {
+    PedigreeView pedigree = dao.getPedigree();
+    if (!pedigree.contains(id)) {
+      throw new NotFoundException("No horse with ID %d found".formatted(id));
+    }
+    return pedigree;
   }
 
   /**
@@ -196,31 +377,61 @@ public class HorseServiceImpl implements HorseService {
    *
    * @param horse the search parameters to filter horses
    * @return a stream of horses matching the search criteria
-   * @throws FatalException if a referenced owner is not found
+   * @throws ValidationException if the given cursor is malformed or was created for a different sort order
    */
   @Override
-  public Stream<HorseListDto> searchHorses(HorseSearchDto horse) {
+  public Stream<HorseListDto> searchHorses(HorseSearchDto horse) throws ValidationException {
     LOG.trace("searchHorses({})", horse);
+    HorseSearchCursor after = validator.validateCursor(horse);
+
+    // the owners are joined by the same query
+    return dao.searchHorseList(horse, after).stream();
+  }
 
-    // Hole alle Pferde, die den Suchkriterien entsprechen
-    List<Horse> wantedHorses = dao.searchHorses(horse);
+  /**
+   * Streams the horses matching the search criteria to {@code action}.
+   * Rows are read together with their owners from a database cursor,
+   * so memory usage does not depend on the size of the result.
+   *
+   * @param horse the search parameters to filter horses
+   * @param action the callback receiving each matching horse
+   * @throws ValidationException if the given cursor is malformed or was created for a different sort order
+   */
+  @Override
+  public void streamHorses(HorseSearchDto horse, Consumer<HorseListDto> action) throws ValidationException {
+    LOG.trace("streamHorses({})", horse);
+    HorseSearchCursor after = validator.validateCursor(horse);
 
-    // Hole die Besitzer für alle gefundenen Pferde
-    var ownerIds = wantedHorses.stream()
-        .map(Horse::ownerId)
-        .filter(Objects::nonNull)
-        .collect(Collectors.toUnmodifiableSet());
+    dao.streamHorseList(horse, after, action);
+  }
 
-    Map<Long, OwnerDto> ownerMap;
-    try {
-      ownerMap = ownerService.getAllById(ownerIds);
-    } catch (NotFoundException e) {
-      throw new FatalException("Horse, that is already persisted, refers to non-existing owner", e);
-    }
+  /**
+   * Hands every stored horse with its owner to {@code action}, ordered by ID.
+   * Horses and owners are read with a single streamed join, so owners are neither looked up separately
+   * nor taken from the owner cache, and only one horse is held in memory at a time.
+   *
+   * @param action callback receiving every horse
+   */
+  @Override
+  public void exportHorses(Consumer<HorseDetailDto> action) {
+    LOG.trace("exportHorses()");
+    dao.exportHorses((horse, owner) -> action.accept(mapper.entityToDetailDto(
+        horse, owner == null ? Map.of() : Map.of(owner.id(), ownerMapper.entityToDto(owner)))));
+  }
 
-    // Konvertiere alle Pferd-Entitäten in DTOs und gebe sie als Stream zurück
-    return wantedHorses.stream()
-        .map(h -> mapper.entityToListDto(h, ownerMap));
+  /**
+   * Reads the parents of a horse together with their owners, with a single query.
+   *
+   * @param motherId the ID of the mother, or {@link PedigreeView#NO_PARENT}
+   * @param fatherId the ID of the father, or {@link PedigreeView#NO_PARENT}
+   * @return the summaries of the parents by their ID
+   */
+  private Map<Long, HorseListDto> parentSummaries(long motherId, long fatherId) {
+    List<Long> ids = Stream.of(motherId, fatherId).filter(parentId -> parentId != PedigreeView.NO_PARENT).toList();
+    if (ids.isEmpty()) {
+      return Map.of();
+    }
+    return Collections.unmodifiableMap(dao.getHorseListById(ids));
   }
 
   /**
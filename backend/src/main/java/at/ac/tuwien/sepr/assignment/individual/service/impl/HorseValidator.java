@@ -3,17 +3,23 @@ package at.ac.tuwien.sepr.assignment.individual.service.impl;
 
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseCreateDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseDetailDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchCursor;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseUpdateDto;
 import at.ac.tuwien.sepr.assignment.individual.entity.Horse;
 import at.ac.tuwien.sepr.assignment.individual.exception.ConflictException;
-import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
 import at.ac.tuwien.sepr.assignment.individual.exception.ValidationException;
 import java.lang.invoke.MethodHandles;
 import java.time.LocalDate;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import at.ac.tuwien.sepr.assignment.individual.persistence.HorseDao;
+import at.ac.tuwien.sepr.assignment.individual.persistence.PedigreeView;
 import at.ac.tuwien.sepr.assignment.individual.type.Sex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -55,7 +61,8 @@ public class HorseValidator {
       }
     }
 
-    validateParents(horse.motherId(), horse.fatherId(), validationErrors);
+    validationErrors.addAll(parentErrors(List.of(
+        new ParentReference(horse.id(), horse.dateOfBirth(), horse.motherId(), horse.fatherId()))).getFirst());
 
     if (!validationErrors.isEmpty()) {
       throw new ValidationException("Validation of horse for update failed", validationErrors);
@@ -72,6 +79,31 @@ public class HorseValidator {
    */
   public void validateForCreate(HorseCreateDto horse) throws ValidationException, ConflictException {
     LOG.trace("validateForCreate({})", horse);
+    List<String> validationErrors = fieldErrorsForCreate(horse);
+    validationErrors.addAll(parentErrors(List.of(
+        new ParentReference(null, horse.dateOfBirth(), horse.motherId(), horse.fatherId()))).getFirst());
+
+    if (!validationErrors.isEmpty()) {
+      throw new ValidationException("Validation of horse for create failed", validationErrors);
+    }
+  }
+
+  /**
+   * Validates the fields of a horse before creating, without looking up its parents,
+   * for callers that check the parents of many horses at once.
+   *
+   * @param horse the {@link HorseCreateDto} to validate
+   * @throws ValidationException if validation fails
+   */
+  public void validateFieldsForCreate(HorseCreateDto horse) throws ValidationException {
+    LOG.trace("validateFieldsForCreate({})", horse);
+    List<String> validationErrors = fieldErrorsForCreate(horse);
+    if (!validationErrors.isEmpty()) {
+      throw new ValidationException("Validation of horse for create failed", validationErrors);
+    }
+  }
+
+  private List<String> fieldErrorsForCreate(HorseCreateDto horse) {
     List<String> validationErrors = new ArrayList<>();
 
     if (horse.name() == null) {
@@ -100,47 +132,172 @@ public class HorseValidator {
       // it should not be possible to get into this case because sex is an enum
       validationErrors.add("Horse sex is must be MALE or FEMALE");
     }
-    System.out.println("Motherid: " + horse.motherId());
-    System.out.println("Fatherid: " + horse.fatherId());
-    validateParents(horse.motherId(), horse.fatherId(), validationErrors);
+    return validationErrors;
+  }
+
+  /**
+   * Validates the bounds of a descendants query.
+   *
+   * @param gen the requested number of generations
+   * @param limit the requested maximum number of descendants
+   * @param maxLimit the largest limit that may be requested
+   * @throws ValidationException if a bound is missing, not positive or too large
+   */
+  public void validateForDescendants(Integer gen, int limit, int maxLimit) throws ValidationException {
+    LOG.trace("validateForDescendants({}, {})", gen, limit);
+    List<String> validationErrors = new ArrayList<>();
+
+    if (gen == null || gen < 1) {
+      validationErrors.add("Number of generations must be positive");
+    }
+    if (limit < 1) {
+      validationErrors.add("Limit must be positive");
+    } else if (limit > maxLimit) {
+      validationErrors.add("Limit must not be greater than " + maxLimit);
+    }
 
     if (!validationErrors.isEmpty()) {
-      throw new ValidationException("Validation of horse for create failed", validationErrors);
+      throw new ValidationException("Validation of descendants query failed", validationErrors);
     }
   }
 
   /**
-   * Validates that the parents specified for a horse exist and have the correct sex.
-   * For a mother, verifies that the horse exists and is female.
-   * For a father, verifies that the horse exists and is male.
-   * Any validation errors are added to the provided list.
+   * Decodes the cursor of a horse search and checks that it belongs to the requested sort order.
    *
-   * @param motherId the ID of the horse specified as mother, or null if none
-   * @param fatherId the ID of the horse specified as father, or null if none
-   * @param validationErrors the list to which any validation errors will be added
+   * @param search the {@link HorseSearchDto} whose cursor to validate
+   * @return the decoded cursor, or null if the first page is requested
+   * @throws ValidationException if the cursor is malformed or was created for a different sort order
    */
-  private void validateParents(Long motherId, Long fatherId, List<String> validationErrors) {
-    // Check if parents exist and have the correct sex
-    if (motherId != null) {
-      try {
-        Horse mother = dao.getById(motherId);
-        if (mother.sex() != Sex.FEMALE) {
-          validationErrors.add("Horse assigned as mother must be female");
-        }
-      } catch (NotFoundException e) {
-        validationErrors.add("Horse with ID " + motherId + " specified as mother not found");
+  public HorseSearchCursor validateCursor(HorseSearchDto search) throws ValidationException {
+    LOG.trace("validateCursor({})", search);
+    if (search.cursor() == null || search.cursor().isBlank()) {
+      return null;
+    }
+
+    HorseSearchCursor cursor;
+    try {
+      cursor = HorseSearchCursor.decode(search.cursor());
+    } catch (IllegalArgumentException e) {
+      throw new ValidationException("Validation of horse search failed", List.of("Cursor is malformed"));
+    }
+    if (cursor.sort() != search.sortOrDefault()) {
+      throw new ValidationException("Validation of horse search failed",
+          List.of("Cursor was created for sort order " + cursor.sort() + " but " + search.sortOrDefault() + " was requested"));
+    }
+    return cursor;
+  }
+
+  /**
+   * Validates the parents of many horses at once, with a single query for all referenced parents.
+   * Every parent must exist, have the sex of its role and be born before the horse.
+   * The parents of a stored horse must also not be the horse itself or one of its descendants,
+   * as that would make the horse its own ancestor; this is checked on the in-memory pedigree.
+   *
+   * @param horses the horses and the parents they are to be stored with
+   * @return the validation errors of every horse, in the order of {@code horses}
+   */
+  public List<List<String>> parentErrors(List<ParentReference> horses) {
+    LOG.trace("parentErrors({} horses)", horses.size());
+    Set<Long> parentIds = new HashSet<>();
+    for (ParentReference horse : horses) {
+      if (horse.motherId() != null) {
+        parentIds.add(horse.motherId());
+      }
+      if (horse.fatherId() != null) {
+        parentIds.add(horse.fatherId());
       }
     }
+    Map<Long, Horse> parents = dao.getAllById(parentIds);
+    PedigreeView pedigree = horses.stream().anyMatch(horse -> horse.id() != null) ? dao.getPedigree() : null;
 
-    if (fatherId != null) {
-      try {
-        Horse father = dao.getById(fatherId);
-        if (father.sex() != Sex.MALE) {
-          validationErrors.add("Horse assigned as father must be male");
-        }
-      } catch (NotFoundException e) {
-        validationErrors.add("Horse with ID " + fatherId + " specified as father not found");
+    List<List<String>> errors = new ArrayList<>(horses.size());
+    for (ParentReference horse : horses) {
+      List<String> validationErrors = new ArrayList<>();
+      validateParent(horse, horse.motherId(), Sex.FEMALE, "mother", parents, pedigree, validationErrors);
+      validateParent(horse, horse.fatherId(), Sex.MALE, "father", parents, pedigree, validationErrors);
+      errors.add(validationErrors);
+    }
+    return errors;
+  }
+
+  /**
+   * Validates one parent of a horse, adding any validation errors to the provided list.
+   *
+   * @param horse the horse whose parent to validate
+   * @param parentId the ID of the horse specified as parent, or null if none
+   * @param sex the sex the parent must have
+   * @param role the role of the parent, used in the error messages
+   * @param parents the referenced parents by their ID
+   * @param pedigree the pedigree to look for descendants in, or null if {@code horse} is not stored yet
+   * @param validationErrors the list to which any validation errors will be added
+   */
+  private void validateParent(ParentReference horse, Long parentId, Sex sex, String role,
+                              Map<Long, Horse> parents, PedigreeView pedigree, List<String> validationErrors) {
+    if (parentId == null) {
+      return;
+    }
+    if (parentId.equals(horse.id())) {
+      validationErrors.add("Horse cannot be its own " + role);
+      return;
+    }
+    Horse parent = parents.get(parentId);
+    if (parent == null) {
+      validationErrors.add("Horse with ID " + parentId + " specified as " + role + " not found");
+      return;
+    }
+    if (parent.sex() != sex) {
+      validationErrors.add("Horse assigned as " + role + " must be " + sex.name().toLowerCase());
+    }
+    if (horse.dateOfBirth() != null && !parent.dateOfBirth().isBefore(horse.dateOfBirth())) {
+      validationErrors.add("Horse assigned as " + role + " must be born before the horse");
+    }
+    if (pedigree != null && horse.id() != null && isAncestor(pedigree, horse.id(), parentId)) {
+      validationErrors.add("Horse assigned as " + role + " is a descendant of the horse");
+    }
+  }
+
+  /**
+   * Checks whether a horse is an ancestor of another, walking the pedigree upwards.
+   * Every ancestor is visited at most once, so the walk is bounded by the number of ancestors
+   * and ends even if the stored pedigree already contains a cycle.
+   *
+   * @param pedigree the pedigree to walk
+   * @param ancestorId the ID of the presumed ancestor
+   * @param id the ID of the horse whose ancestors are searched
+   * @return true if {@code ancestorId} is {@code id} or one of its ancestors
+   */
+  private static boolean isAncestor(PedigreeView pedigree, long ancestorId, long id) {
+    Set<Long> visited = new HashSet<>();
+    ArrayDeque<Long> pending = new ArrayDeque<>();
+    pending.add(id);
+    while (!pending.isEmpty()) {
+      long current = pending.poll();
+      if (current == ancestorId) {
+        return true;
+      }
+      if (!visited.add(current)) {
+        continue;
+      }
+      long mother = pedigree.motherOf(current);
+      long father = pedigree.fatherOf(current);
+      if (mother != PedigreeView.NO_PARENT) {
+        pending.add(mother);
+      }
+      if (father != PedigreeView.NO_PARENT) {
+        pending.add(father);
       }
     }
+    return false;
+  }
+
+  /**
+   * The parents a horse is to be stored with.
+   *
+   * @param id the ID of the horse, or null if it is about to be created
+   * @param dateOfBirth the date of birth of the horse, or null if not given
+   * @param motherId the ID of the horse specified as mother, or null if none
+   * @param fatherId the ID of the horse specified as father, or null if none
+   */
+  public record ParentReference(Long id, LocalDate dateOfBirth, Long motherId, Long fatherId) {
   }
 }
@@ -0,0 +1,199 @@
+package at.ac.tuwien.sepr.assignment.individual.service.impl;
+
+import at.ac.tuwien.sepr.assignment.individual.dto.ImageInfoDto;
+import at.ac.tuwien.sepr.assignment.individual.type.ImageSize;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.lang.invoke.MethodHandles;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cache of the most recently served image contents, bounded by their total size in bytes.
+ * Contents are kept in direct buffers outside of the Java heap, so a full cache does not slow down garbage collection.
+ * When the cache is full, the least recently used contents are evicted until the new one fits;
+ * contents larger than {@code app.image-cache.max-entry-bytes} are never cached.
+ * Hits, misses, evictions, invalidations and the resident bytes are published as metrics.
+ */
+@Component
+public class ImageContentCache implements MeterBinder {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final String CACHE_NAME = "imageContent";
+
+  private final long maxBytes;
+  private final long maxEntryBytes;
+  private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long residentBytes;
+  private long version;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+  private final AtomicLong invalidations = new AtomicLong();
+
+  /**
+   * Creates the cache.
+   *
+   * @param maxBytes the maximum total size of the cached contents
+   * @param maxEntryBytes the maximum size of a single cached content
+   */
+  public ImageContentCache(@Value("${app.image-cache.max-bytes:67108864}") long maxBytes,
+                           @Value("${app.image-cache.max-entry-bytes:4194304}") long maxEntryBytes) {
+    this.maxBytes = maxBytes;
+    this.maxEntryBytes = Math.min(maxBytes, maxEntryBytes);
+  }
+
+  /**
+   * Returns the metadata of a cached content, without counting it as a hit or miss.
+   *
+   * @param id the ID of the image
+   * @param variant the size variant
+   * @return the metadata, or null if the content is not cached
+   */
+  public synchronized ImageInfoDto getInfo(long id, ImageSize variant) {
+    Entry entry = entries.get(new Key(id, variant));
+    return entry == null ? null : entry.info();
+  }
+
+  /**
+   * Returns a cached content.
+   *
+   * @param id the ID of the image
+   * @param variant the size variant
+   * @return a read-only buffer holding the whole content, private to the caller, or null if the content is not cached
+   */
+  public synchronized ByteBuffer getContent(long id, ImageSize variant) {
+    Entry entry = entries.get(new Key(id, variant));
+    if (entry == null) {
+      misses.incrementAndGet();
+      return null;
+    }
+    hits.incrementAndGet();
+    return entry.content().duplicate();
+  }
+
+  /**
+   * Returns whether a content of the given size may be cached, so that it is only read into memory if it is.
+   *
+   * @param size the size of the content in bytes
+   * @return true if {@link #put(ImageInfoDto, ByteBuffer, long)} would keep a content of that size
+   */
+  public boolean accepts(long size) {
+    return size <= maxEntryBytes;
+  }
+
+  /**
+   * Returns a token identifying the current state of the cache, to be passed to {@link #put(ImageInfoDto, ByteBuffer, long)}.
+   * Taking the token before reading a content makes sure that the content of an image
+   * that has been deleted in the meantime is never stored.
+   *
+   * @return the current version of the cache
+   */
+  public synchronized long version() {
+    return version;
+  }
+
+  /**
+   * Stores a content, evicting the least recently used ones until it fits,
+   * unless an image has been invalidated since {@code version} was obtained.
+   *
+   * @param info the metadata of the content
+   * @param content a direct buffer holding the whole content, which must not be modified afterwards
+   * @param version the version returned by {@link #version()} before the content was read
+   */
+  public synchronized void put(ImageInfoDto info, ByteBuffer content, long version) {
+    if (version != this.version || !accepts(content.remaining())) {
+      return;
+    }
+    Key key = new Key(info.id(), info.variant());
+    Entry previous = entries.put(key, new Entry(info, content.asReadOnlyBuffer()));
+    residentBytes += content.remaining() - (previous == null ? 0 : previous.content().capacity());
+
+    Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+    while (residentBytes > maxBytes && eldest.hasNext()) {
+      Map.Entry<Key, Entry> evicted = eldest.next();
+      if (evicted.getKey().equals(key)) {
+        continue;
+      }
+      eldest.remove();
+      // the direct memory is released once the buffer, and every duplicate still being served, is garbage collected
+      residentBytes -= evicted.getValue().content().capacity();
+      evictions.incrementAndGet();
+    }
+  }
+
+  /**
+   * Removes the contents of all variants of an image.
+   *
+   * @param id the ID of the image that has been deleted
+   */
+  public synchronized void invalidate(long id) {
+    version++;
+    for (ImageSize variant : ImageSize.values()) {
+      Entry entry = entries.remove(new Key(id, variant));
+      if (entry != null) {
+        residentBytes -= entry.content().capacity();
+        invalidations.incrementAndGet();
+        LOG.debug("Invalidated cached {} content of image {}", variant, id);
+      }
+    }
+  }
+
+  /**
+   * Publishes the cache statistics to {@code registry}.
+   *
+   * @param registry the registry to bind the metrics to
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("cache.gets", hits, AtomicLong::get)
+        .tags("cache", CACHE_NAME, "result", "hit")
+        .description("Image contents served from the cache")
+        .register(registry);
+    FunctionCounter.builder("cache.gets", misses, AtomicLong::get)
+        .tags("cache", CACHE_NAME, "result", "miss")
+        .description("Image contents that had to be read from the image store")
+        .register(registry);
+    FunctionCounter.builder("cache.evictions", evictions, AtomicLong::get)
+        .tags("cache", CACHE_NAME)
+        .description("Image contents evicted because the byte budget was exceeded")
+        .register(registry);
+    FunctionCounter.builder("cache.invalidations", invalidations, AtomicLong::get)
+        .tags("cache", CACHE_NAME)
+        .description("Image contents removed because their image was deleted")
+        .register(registry);
+    Gauge.builder("cache.size", this, ImageContentCache::size)
+        .tags("cache", CACHE_NAME)
+        .description("Number of cached image contents")
+        .register(registry);
+    Gauge.builder("cache.resident", this, ImageContentCache::residentBytes)
+        .tags("cache", CACHE_NAME)
+        .baseUnit(BaseUnits.BYTES)
+        .description("Direct memory held by cached image contents")
+        .register(registry);
+  }
+
+  private synchronized int size() {
+    return entries.size();
+  }
+
+  private synchronized long residentBytes() {
+    return residentBytes;
+  }
+
+  private record Key(long id, ImageSize variant) {
+  }
+
+  private record Entry(ImageInfoDto info, ByteBuffer content) {
+  }
+}
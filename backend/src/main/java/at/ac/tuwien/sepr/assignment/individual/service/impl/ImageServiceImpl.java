@@ -2,17 +2,29 @@ package at.ac.tuwien.sepr.assignment.individual.service.impl;
 
 import at.ac.tuwien.sepr.assignment.individual.dto.ImageCreateDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.ImageDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.ImageInfoDto;
 import at.ac.tuwien.sepr.assignment.individual.entity.Image;
+import at.ac.tuwien.sepr.assignment.individual.exception.FatalException;
 import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
 import at.ac.tuwien.sepr.assignment.individual.mapper.ImageMapper;
+import at.ac.tuwien.sepr.assignment.individual.persistence.AfterCommit;
 import at.ac.tuwien.sepr.assignment.individual.persistence.ImageDao;
 import at.ac.tuwien.sepr.assignment.individual.service.ImageService;
+import at.ac.tuwien.sepr.assignment.individual.type.ImageSize;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.invoke.MethodHandles;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.stream.Stream;
 
 @Service
@@ -20,11 +32,15 @@ public class ImageServiceImpl implements ImageService {
   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   private final ImageDao dao;
   private final ImageMapper mapper;
+  private final ImageVariantGenerator variantGenerator;
+  private final ImageContentCache contentCache;
 
   @Autowired
-  public ImageServiceImpl(ImageDao dao, ImageMapper mapper) {
+  public ImageServiceImpl(ImageDao dao, ImageMapper mapper, ImageVariantGenerator variantGenerator, ImageContentCache contentCache) {
     this.dao = dao;
     this.mapper = mapper;
+    this.variantGenerator = variantGenerator;
+    this.contentCache = contentCache;
   }
 
   /**
@@ -41,14 +57,42 @@ public class ImageServiceImpl implements ImageService {
 
   /**
    * Creates a new image with the information given in the parameter file.
+   * The SHA-256 hash of the content is stored with the image, so that clients can revalidate
+   * their cached copy by its entity tag without the content being read again.
+   * If an image with the same content and type is already stored, a reference to it is taken
+   * and its ID is returned instead of storing the content a second time.
+   * The downscaled size variants of new images are generated in the background.
    *
    * @param file the image data to create
-   * @return the created image as a DTO
+   * @return the created or reused image as a DTO
    */
   @Override
   public ImageDto create(ImageCreateDto file) {
     LOG.trace("create({})", file.fileType());
-    return mapper.entityToFileDto(dao.create(file));
+    ImageCreateDto hashed = file.withContentHash(contentHash(file.image()));
+    Long existingId = dao.acquire(hashed.contentHash(), hashed.fileType());
+    if (existingId != null) {
+      LOG.debug("Reusing image {} with identical content", existingId);
+      return mapper.entityToFileDto(new Image(existingId, hashed.fileType(), hashed.image()));
+    }
+    Image created = dao.create(hashed);
+    variantGenerator.submit(created.id(), created.image());
+    return mapper.entityToFileDto(created);
+  }
+
+  /**
+   * Computes the hex encoded SHA-256 hash of an image.
+   *
+   * @param content the content of the image
+   * @return the hash in lower case hex digits
+   */
+  static String contentHash(byte[] content) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    } catch (NoSuchAlgorithmException e) {
+      // every Java platform is required to support SHA-256
+      throw new FatalException(e);
+    }
   }
 
   /**
@@ -65,14 +109,106 @@ public class ImageServiceImpl implements ImageService {
   }
 
   /**
-   * Deletes an image with the given ID from the database.
+   * Get the metadata of the image with the given ID in the requested size,
+   * falling back to the original while the variant has not been generated.
+   * A missing variant is scheduled for generation, so that later requests get it.
+   * Metadata of contents held by the {@link ImageContentCache} is served from there.
    *
-   * @param id the ID of the image to delete
+   * @param id the ID of the image
+   * @param size the requested size
+   * @return the metadata of the image as a DTO
    * @throws NotFoundException if the image with the given ID does not exist
    */
   @Override
-  public void delete(long id) throws NotFoundException {
+  public ImageInfoDto getInfoById(long id, ImageSize size) throws NotFoundException {
+    LOG.trace("getInfoById({}, {})", id, size);
+    ImageInfoDto cached = contentCache.getInfo(id, size);
+    if (cached != null) {
+      return cached;
+    }
+    if (size != ImageSize.ORIGINAL) {
+      try {
+        return mapper.entityToInfoDto(dao.getInfoById(id, size));
+      } catch (NotFoundException e) {
+        LOG.debug("No {} variant of image {}, serving the original", size, id);
+      }
+    }
+    ImageInfoDto original = mapper.entityToInfoDto(dao.getInfoById(id, ImageSize.ORIGINAL));
+    if (size != ImageSize.ORIGINAL) {
+      variantGenerator.request(id);
+    }
+    return original;
+  }
+
+  /**
+   * Writes a part of the content of the image with the given ID to {@code out}.
+   * Contents are served from the {@link ImageContentCache}; on a miss, contents small enough to be cached
+   * are read completely into the cache, larger ones are copied from the image store directly.
+   *
+   * @param id the ID of the image
+   * @param variant the variant to write
+   * @param offset the index of the first byte to write
+   * @param length the number of bytes to write
+   * @param out the stream to write the content to
+   * @throws NotFoundException if the image with the given ID does not exist
+   * @throws IOException if writing to {@code out} fails
+   */
+  @Override
+  public void writeContent(long id, ImageSize variant, long offset, long length, OutputStream out) throws NotFoundException, IOException {
+    LOG.trace("writeContent({}, {}, {}, {})", id, variant, offset, length);
+    ByteBuffer content = contentCache.getContent(id, variant);
+    if (content == null) {
+      ImageInfoDto info = mapper.entityToInfoDto(dao.getInfoById(id, variant));
+      if (!contentCache.accepts(info.size())) {
+        dao.writeContent(id, variant, offset, length, out);
+        return;
+      }
+      final long cacheVersion = contentCache.version();
+      content = ByteBuffer.allocateDirect(Math.toIntExact(info.size()));
+      dao.writeContent(id, variant, 0, info.size(), new ByteBufferOutputStream(content));
+      content.flip();
+      contentCache.put(info, content, cacheVersion);
+    }
+
+    ByteBuffer part = content.slice(Math.toIntExact(offset), Math.toIntExact(length));
+    WritableByteChannel channel = Channels.newChannel(out);
+    while (part.hasRemaining()) {
+      channel.write(part);
+    }
+  }
+
+  /**
+   * Releases one reference to the image with the given ID.
+   * The image is deleted from the database once it is no longer referenced,
+   * and its contents are removed from the {@link ImageContentCache} once the release is committed.
+   *
+   * @param id the ID of the image to release
+   */
+  @Override
+  public void delete(long id) {
     LOG.trace("delete({})", id);
-    dao.delete(id);
+    dao.release(id);
+    AfterCommit.run(() -> contentCache.invalidate(id));
+  }
+
+  /**
+   * Output stream filling a buffer, used to read contents into the cache.
+   */
+  private static final class ByteBufferOutputStream extends OutputStream {
+    private final ByteBuffer buffer;
+
+    ByteBufferOutputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public void write(int b) {
+      buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+      buffer.put(bytes, offset, length);
+    }
   }
 }
@@ -0,0 +1,213 @@
+package at.ac.tuwien.sepr.assignment.individual.service.impl;
+
+import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
+import at.ac.tuwien.sepr.assignment.individual.persistence.ImageDao;
+import at.ac.tuwien.sepr.assignment.individual.type.ImageSize;
+import jakarta.annotation.PreDestroy;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Generates the downscaled size variants of uploaded images in the background,
+ * so that lists and avatars do not have to transfer and decode the full-size originals.
+ * Images are decoded with {@link ImageIO}; content it cannot decode simply gets no variants
+ * and is served in its original size.
+ * Uploads never wait for the generation: if the queue is full the image is skipped,
+ * and its variants are generated once one of them is first requested.
+ * Variants keep the aspect ratio, are never larger than the original, and are stored as PNG
+ * if the original has transparency and as JPEG otherwise.
+ */
+@Component
+public class ImageVariantGenerator {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final int QUEUE_CAPACITY = 64;
+
+  private final ImageDao dao;
+  private final ThreadPoolExecutor executor;
+  // images queued or being processed, so that repeated reads of a missing variant schedule them only once
+  private final Map<Long, CompletableFuture<Void>> pending = new ConcurrentHashMap<>();
+  // images that cannot be decoded, which would otherwise be read and decoded again on every request of a variant
+  private final Set<Long> undecodable = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Creates the generator with its pool of background threads.
+   *
+   * @param dao the image store the variants are read from and written to
+   * @param threads the number of images processed concurrently
+   */
+  public ImageVariantGenerator(ImageDao dao, @Value("${app.images.variant-threads:2}") int threads) {
+    this.dao = dao;
+    AtomicInteger threadCount = new AtomicInteger();
+    this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+        runnable -> {
+          Thread thread = new Thread(runnable, "image-variants-" + threadCount.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        },
+        new ThreadPoolExecutor.AbortPolicy());
+  }
+
+  /**
+   * Schedules the generation of all size variants of a new image.
+   * If the queue is full the image is skipped; its variants are then generated by {@link #request(long)}.
+   *
+   * @param imageId the ID of the stored image
+   * @param content the content of the image
+   * @return a future completing once the variants are stored, or generation was skipped
+   */
+  public CompletableFuture<Void> submit(long imageId, byte[] content) {
+    LOG.trace("submit({})", imageId);
+    return schedule(imageId, () -> generate(imageId, content));
+  }
+
+  /**
+   * Schedules the generation of the size variants of a stored image that has none yet,
+   * reading its content from the image store in the background.
+   * For images already scheduled the pending generation is returned; images that could not be decoded before are skipped.
+   *
+   * @param imageId the ID of the stored image
+   * @return a future completing once the variants are stored, or generation was skipped
+   */
+  public CompletableFuture<Void> request(long imageId) {
+    LOG.trace("request({})", imageId);
+    if (undecodable.contains(imageId)) {
+      return CompletableFuture.completedFuture(null);
+    }
+    return schedule(imageId, () -> {
+      try {
+        generate(imageId, dao.getById(imageId).image());
+      } catch (NotFoundException e) {
+        LOG.debug("Image {} was deleted before its variants were generated", imageId);
+      }
+    });
+  }
+
+  private CompletableFuture<Void> schedule(long imageId, Runnable generation) {
+    CompletableFuture<Void> done = new CompletableFuture<>();
+    CompletableFuture<Void> scheduled = pending.putIfAbsent(imageId, done);
+    if (scheduled != null) {
+      return scheduled;
+    }
+    try {
+      executor.execute(() -> {
+        try {
+          generation.run();
+        } catch (RuntimeException e) {
+          LOG.warn("Generating size variants of image {} failed", imageId, e);
+        } finally {
+          pending.remove(imageId, done);
+          done.complete(null);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      LOG.info("Variant queue is full, generating the variants of image {} on first request", imageId);
+      pending.remove(imageId, done);
+      done.complete(null);
+    }
+    return done;
+  }
+
+  private void generate(long imageId, byte[] content) {
+    BufferedImage original;
+    try {
+      original = ImageIO.read(new ByteArrayInputStream(content));
+    } catch (IOException e) {
+      LOG.debug("Image {} could not be decoded: {}", imageId, e.getMessage());
+      undecodable.add(imageId);
+      return;
+    }
+    if (original == null) {
+      LOG.debug("Image {} has an unsupported format, serving it in original size only", imageId);
+      undecodable.add(imageId);
+      return;
+    }
+
+    boolean alpha = original.getColorModel().hasAlpha();
+    String format = alpha ? "png" : "jpeg";
+    for (ImageSize size : ImageSize.values()) {
+      if (size == ImageSize.ORIGINAL) {
+        continue;
+      }
+      byte[] encoded = encode(scaled(original, size.maxDimension(), alpha), format);
+      try {
+        dao.createVariant(imageId, size, "image/" + format, encoded, ImageServiceImpl.contentHash(encoded));
+      } catch (DataIntegrityViolationException e) {
+        LOG.debug("Image {} was deleted before its {} variant was stored", imageId, size);
+        return;
+      }
+    }
+    LOG.debug("Stored size variants of image {}", imageId);
+  }
+
+  /**
+   * Scales an image down to fit into a square, halving it repeatedly with bilinear interpolation
+   * before the last step, which gives results close to area averaging at a fraction of its cost.
+   */
+  private static BufferedImage scaled(BufferedImage source, int maxDimension, boolean alpha) {
+    double factor = Math.min(1.0, (double) maxDimension / Math.max(source.getWidth(), source.getHeight()));
+    int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * factor));
+    int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * factor));
+
+    BufferedImage current = source;
+    int width = source.getWidth();
+    int height = source.getHeight();
+    do {
+      width = Math.max(targetWidth, width / 2);
+      height = Math.max(targetHeight, height / 2);
+      current = drawn(current, width, height, alpha);
+    } while (width != targetWidth || height != targetHeight);
+    return current;
+  }
+
+  private static BufferedImage drawn(BufferedImage source, int width, int height, boolean alpha) {
+    BufferedImage target = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = target.createGraphics();
+    try {
+      graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      graphics.drawImage(source, 0, 0, width, height, null);
+    } finally {
+      graphics.dispose();
+    }
+    return target;
+  }
+
+  private static byte[] encode(BufferedImage image, String format) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      if (!ImageIO.write(image, format, out)) {
+        throw new IllegalStateException("No image writer for " + format);
+      }
+    } catch (IOException e) {
+      // writing to memory does not fail
+      throw new IllegalStateException(e);
+    }
+    return out.toByteArray();
+  }
+
+  @PreDestroy
+  void shutdown() {
+    executor.shutdownNow();
+  }
+}
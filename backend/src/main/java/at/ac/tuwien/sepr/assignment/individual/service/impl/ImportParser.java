@@ -0,0 +1,237 @@
+package at.ac.tuwien.sepr.assignment.individual.service.impl;
+
+import at.ac.tuwien.sepr.assignment.individual.dto.ImportRowDto;
+import at.ac.tuwien.sepr.assignment.individual.exception.ValidationException;
+import at.ac.tuwien.sepr.assignment.individual.type.DataFormat;
+import at.ac.tuwien.sepr.assignment.individual.type.ImportRowType;
+import at.ac.tuwien.sepr.assignment.individual.type.Sex;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Parser for the rows of a bulk import, given as newline-delimited JSON or as CSV.
+ * A row that cannot be parsed is returned with the reason instead of failing the whole import.
+ * CSV files start with a header row naming the columns, which are the properties of {@link ImportRowDto};
+ * fields may be quoted as described in RFC 4180, and empty fields are treated as missing.
+ */
+@Component
+public class ImportParser {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final Set<String> COLUMNS = Set.of(
+      "type", "ref", "firstname", "lastname", "name", "description", "dateofbirth", "sex",
+      "owner", "ownerid", "mother", "motherid", "father", "fatherid");
+
+  private final ObjectReader treeReader;
+  private final ObjectReader rowReader;
+
+  public ImportParser(ObjectMapper objectMapper) {
+    this.treeReader = objectMapper.reader();
+    this.rowReader = objectMapper.readerFor(ImportRowDto.class);
+  }
+
+  /**
+   * Reads all rows of an import.
+   *
+   * @param in the import, encoded in UTF-8
+   * @param format the format of the import
+   * @return the rows in the order they were given
+   * @throws ValidationException if the import as a whole cannot be read, e.g. a CSV header names an unknown column
+   * @throws IOException if reading {@code in} fails
+   */
+  public List<ParsedRow> parse(InputStream in, DataFormat format) throws ValidationException, IOException {
+    LOG.trace("parse({})", format);
+    BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    return switch (format) {
+      case NDJSON -> parseNdjson(reader);
+      case CSV -> parseCsv(reader);
+    };
+  }
+
+  private List<ParsedRow> parseNdjson(BufferedReader reader) throws IOException {
+    List<ParsedRow> rows = new ArrayList<>();
+    int lineNumber = 0;
+    for (String line; (line = reader.readLine()) != null; ) {
+      lineNumber++;
+      if (line.isBlank()) {
+        continue;
+      }
+      try {
+        JsonNode node = treeReader.readTree(line);
+        if (node == null || !node.isObject()) {
+          rows.add(new ParsedRow(lineNumber, null, "Row is not a JSON object"));
+          continue;
+        }
+        rows.add(new ParsedRow(lineNumber, rowReader.readValue(node), null));
+      } catch (JsonProcessingException e) {
+        rows.add(new ParsedRow(lineNumber, null, "Row is not a valid import object: " + e.getOriginalMessage()));
+      }
+    }
+    return rows;
+  }
+
+  private List<ParsedRow> parseCsv(BufferedReader reader) throws ValidationException, IOException {
+    CsvReader csv = new CsvReader(reader);
+    List<String> header = csv.next();
+    if (header == null) {
+      return List.of();
+    }
+    List<String> columns = header.stream().map(column -> column.strip().toLowerCase(Locale.ROOT)).toList();
+    List<String> unknown = columns.stream().filter(column -> !COLUMNS.contains(column)).toList();
+    if (!unknown.isEmpty() || !columns.contains("type")) {
+      List<String> errors = new ArrayList<>();
+      unknown.forEach(column -> errors.add("Unknown column '" + column + "'"));
+      if (!columns.contains("type")) {
+        errors.add("Column 'type' is missing");
+      }
+      throw new ValidationException("Validation of import header failed", errors);
+    }
+
+    List<ParsedRow> rows = new ArrayList<>();
+    for (List<String> fields; (fields = csv.next()) != null; ) {
+      int lineNumber = csv.recordLine();
+      if (fields.size() == 1 && fields.getFirst().isBlank()) {
+        continue;
+      }
+      if (fields.size() != columns.size()) {
+        rows.add(new ParsedRow(lineNumber, null, "Row has %d fields, but the header names %d columns".formatted(fields.size(), columns.size())));
+        continue;
+      }
+      Map<String, String> values = new HashMap<>();
+      for (int i = 0; i < columns.size(); i++) {
+        if (!fields.get(i).isBlank()) {
+          values.put(columns.get(i), fields.get(i).strip());
+        }
+      }
+      try {
+        rows.add(new ParsedRow(lineNumber, toRow(values), null));
+      } catch (IllegalArgumentException | DateTimeParseException e) {
+        rows.add(new ParsedRow(lineNumber, null, "Row contains an invalid value: " + e.getMessage()));
+      }
+    }
+    return rows;
+  }
+
+  private static ImportRowDto toRow(Map<String, String> values) {
+    String type = values.get("type");
+    if (type == null) {
+      throw new IllegalArgumentException("type is missing");
+    }
+    String dateOfBirth = values.get("dateofbirth");
+    String sex = values.get("sex");
+    return new ImportRowDto(
+        ImportRowType.fromValue(type),
+        values.get("ref"),
+        values.get("firstname"),
+        values.get("lastname"),
+        values.get("name"),
+        values.get("description"),
+        dateOfBirth == null ? null : LocalDate.parse(dateOfBirth),
+        sex == null ? null : Sex.valueOf(sex.toUpperCase(Locale.ROOT)),
+        values.get("owner"),
+        toLong(values.get("ownerid")),
+        values.get("mother"),
+        toLong(values.get("motherid")),
+        values.get("father"),
+        toLong(values.get("fatherid")));
+  }
+
+  private static Long toLong(String value) {
+    return value == null ? null : Long.valueOf(value);
+  }
+
+  /**
+   * A row of an import, or the reason it could not be parsed.
+   *
+   * @param row the number of the line the row starts on
+   * @param data the parsed row, or null if it could not be parsed
+   * @param error the reason the row could not be parsed, or null
+   */
+  public record ParsedRow(int row, ImportRowDto data, String error) {
+  }
+
+  /**
+   * Splits CSV text into records of fields, keeping track of the line each record starts on.
+   */
+  private static final class CsvReader {
+    private final BufferedReader reader;
+    private int line;
+    private int recordLine;
+
+    CsvReader(BufferedReader reader) {
+      this.reader = reader;
+    }
+
+    int recordLine() {
+      return recordLine;
+    }
+
+    List<String> next() throws IOException {
+      String text = reader.readLine();
+      if (text == null) {
+        return null;
+      }
+      recordLine = ++line;
+      List<String> fields = new ArrayList<>();
+      StringBuilder field = new StringBuilder();
+      boolean quoted = false;
+      int i = 0;
+      while (true) {
+        if (i == text.length()) {
+          if (!quoted) {
+            break;
+          }
+          // a quoted field continues on the next line
+          String continuation = reader.readLine();
+          if (continuation == null) {
+            break;
+          }
+          line++;
+          field.append('\n');
+          text = continuation;
+          i = 0;
+          continue;
+        }
+        char c = text.charAt(i++);
+        if (quoted) {
+          if (c == '"' && i < text.length() && text.charAt(i) == '"') {
+            field.append('"');
+            i++;
+          } else if (c == '"') {
+            quoted = false;
+          } else {
+            field.append(c);
+          }
+        } else if (c == '"') {
+          quoted = true;
+        } else if (c == ',') {
+          fields.add(field.toString());
+          field.setLength(0);
+        } else {
+          field.append(c);
+        }
+      }
+      fields.add(field.toString());
+      return fields;
+    }
+  }
+}
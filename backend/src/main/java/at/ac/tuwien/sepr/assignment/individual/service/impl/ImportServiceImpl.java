@@ -0,0 +1,400 @@
+package at.ac.tuwien.sepr.assignment.individual.service.impl;
+
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseCreateDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.ImportErrorDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.ImportProgressDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.ImportRowDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.OwnerCreateDto;
+import at.ac.tuwien.sepr.assignment.individual.entity.Horse;
+import at.ac.tuwien.sepr.assignment.individual.entity.Owner;
+import at.ac.tuwien.sepr.assignment.individual.exception.ValidationException;
+import at.ac.tuwien.sepr.assignment.individual.persistence.HorseDao;
+import at.ac.tuwien.sepr.assignment.individual.persistence.OwnerDao;
+import at.ac.tuwien.sepr.assignment.individual.service.ImportService;
+import at.ac.tuwien.sepr.assignment.individual.service.impl.HorseValidator.ParentReference;
+import at.ac.tuwien.sepr.assignment.individual.type.DataFormat;
+import at.ac.tuwien.sepr.assignment.individual.type.ImportRowType;
+import at.ac.tuwien.sepr.assignment.individual.type.Sex;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Implementation of {@link ImportService}.
+ * An import is processed in four steps:
+ * the fields of every row are validated on their own;
+ * references to stored owners and parents are checked with one lookup each for the whole import;
+ * horses are ordered by generation, so that every horse is stored after the parents it refers to,
+ * which also detects cycles of parents;
+ * finally owners and then each generation of horses are stored with JDBC batches,
+ * every batch of up to {@code app.import.batch-size} rows in its own transaction.
+ */
+@Service
+public class ImportServiceImpl implements ImportService {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final int MAX_NAME_LENGTH = 255;
+  private static final int MAX_DESCRIPTION_LENGTH = 4095;
+
+  private final ImportParser parser;
+  private final HorseDao horseDao;
+  private final OwnerDao ownerDao;
+  private final HorseValidator validator;
+  private final TransactionTemplate transactionTemplate;
+  private final int batchSize;
+
+  /**
+   * Creates the service.
+   *
+   * @param parser the parser reading the rows of an import
+   * @param horseDao the horse DAO
+   * @param ownerDao the owner DAO
+   * @param validator the validator checking the fields of imported horses
+   * @param transactionTemplate the template every batch is stored in a transaction with
+   * @param batchSize the maximum number of rows stored with one batch and transaction
+   */
+  @Autowired
+  public ImportServiceImpl(ImportParser parser,
+                           HorseDao horseDao,
+                           OwnerDao ownerDao,
+                           HorseValidator validator,
+                           TransactionTemplate transactionTemplate,
+                           @Value("${app.import.batch-size:1000}") int batchSize) {
+    this.parser = parser;
+    this.horseDao = horseDao;
+    this.ownerDao = ownerDao;
+    this.validator = validator;
+    this.transactionTemplate = transactionTemplate;
+    this.batchSize = batchSize;
+  }
+
+  @Override
+  public ImportProgressDto importData(InputStream in, DataFormat format, Consumer<ImportProgressDto> progress)
+      throws ValidationException, IOException {
+    LOG.trace("importData({})", format);
+    List<Entry> entries = parser.parse(in, format).stream()
+        .map(row -> new Entry(row.row(), row.data(), row.error()))
+        .toList();
+    return new ImportRun(entries, progress).execute();
+  }
+
+  /**
+   * State of a single import.
+   */
+  private final class ImportRun {
+    private final List<Entry> entries;
+    private final Consumer<ImportProgressDto> progress;
+    private final Map<String, Entry> byRef = new HashMap<>();
+    private int ownersCreated;
+    private int horsesCreated;
+    private int failed;
+
+    ImportRun(List<Entry> entries, Consumer<ImportProgressDto> progress) {
+      this.entries = entries;
+      this.progress = progress;
+    }
+
+    ImportProgressDto execute() {
+      List<Entry> owners = new ArrayList<>();
+      List<Entry> horses = new ArrayList<>();
+      for (Entry entry : entries) {
+        if (entry.parseError != null) {
+          fail(entry, entry.parseError);
+          continue;
+        }
+        validateFields(entry);
+        String ref = entry.data.ref();
+        if (ref != null) {
+          Entry previous = byRef.putIfAbsent(ref, entry);
+          if (previous != null) {
+            fail(entry, "Ref '%s' is already used by row %d".formatted(ref, previous.row));
+          }
+        }
+        if (entry.data.type() == ImportRowType.OWNER) {
+          owners.add(entry);
+        } else if (entry.data.type() == ImportRowType.HORSE) {
+          horses.add(entry);
+        }
+      }
+
+      resolveReferences(horses);
+      List<List<Entry>> generations = orderByGeneration(horses);
+      storeOwners(owners);
+      for (List<Entry> generation : generations) {
+        storeHorses(generation);
+      }
+
+      LOG.info("Imported {} owners and {} horses, rejected {} of {} rows", ownersCreated, horsesCreated, failed, entries.size());
+      List<ImportErrorDto> errors = entries.stream()
+          .filter(Entry::failed)
+          .map(entry -> new ImportErrorDto(entry.row, entry.data == null ? null : entry.data.ref(), List.copyOf(entry.errors)))
+          .toList();
+      Map<String, Long> createdIds = new LinkedHashMap<>();
+      for (Entry entry : entries) {
+        if (entry.id != null && entry.data.ref() != null) {
+          createdIds.put(entry.data.ref(), entry.id);
+        }
+      }
+      return new ImportProgressDto(true, entries.size(), ownersCreated, horsesCreated, failed, errors, createdIds);
+    }
+
+    private void validateFields(Entry entry) {
+      ImportRowDto data = entry.data;
+      if (data.type() == null) {
+        fail(entry, "Row type is not given");
+      } else if (data.type() == ImportRowType.OWNER) {
+        validateName(entry, data.firstName(), "first name");
+        validateName(entry, data.lastName(), "last name");
+        if (data.description() != null && data.description().length() > MAX_DESCRIPTION_LENGTH) {
+          fail(entry, "Owner description too long: longer than " + MAX_DESCRIPTION_LENGTH + " characters");
+        }
+      } else {
+        try {
+          validator.validateFieldsForCreate(new HorseCreateDto(
+              data.name(), data.description(), data.dateOfBirth(), data.sex(), null, null, null, null));
+        } catch (ValidationException e) {
+          e.errors().forEach(error -> fail(entry, error));
+        }
+        validateReferenceKind(entry, data.owner(), data.ownerId(), "Owner");
+        validateReferenceKind(entry, data.mother(), data.motherId(), "Mother");
+        validateReferenceKind(entry, data.father(), data.fatherId(), "Father");
+      }
+    }
+
+    private void validateName(Entry entry, String value, String field) {
+      if (value == null || value.isBlank()) {
+        fail(entry, "Owner " + field + " is not given");
+      } else if (value.length() > MAX_NAME_LENGTH) {
+        fail(entry, "Owner " + field + " too long: longer than " + MAX_NAME_LENGTH + " characters");
+      }
+    }
+
+    private void validateReferenceKind(Entry entry, String ref, Long id, String role) {
+      if (ref != null && id != null) {
+        fail(entry, role + " is given both as ref and as ID");
+      }
+    }
+
+    /**
+     * Resolves the owners and parents of all horses, validating those that are already stored
+     * with one query for all owners and one for all parents.
+     */
+    private void resolveReferences(List<Entry> horses) {
+      List<Entry> valid = horses.stream().filter(entry -> !entry.failed()).toList();
+      Set<Long> ownerIds = valid.stream()
+          .map(entry -> entry.data.ownerId())
+          .filter(id -> id != null)
+          .collect(Collectors.toSet());
+      Set<Long> storedOwners = ownerIds.isEmpty() ? Set.of()
+          : ownerDao.getAllById(ownerIds).stream().map(Owner::id).collect(Collectors.toSet());
+      List<List<String>> storedParentErrors = validator.parentErrors(valid.stream()
+          .map(entry -> new ParentReference(null, entry.data.dateOfBirth(), entry.data.motherId(), entry.data.fatherId()))
+          .toList());
+
+      for (int i = 0; i < valid.size(); i++) {
+        Entry entry = valid.get(i);
+        ImportRowDto data = entry.data;
+        if (data.owner() != null) {
+          entry.ownerRow = referencedRow(entry, data.owner(), ImportRowType.OWNER, "owner");
+        } else if (data.ownerId() != null && !storedOwners.contains(data.ownerId())) {
+          fail(entry, "Owner with ID %d not found".formatted(data.ownerId()));
+        }
+        storedParentErrors.get(i).forEach(error -> fail(entry, error));
+        entry.motherRow = resolveParent(entry, data.mother(), Sex.FEMALE, "mother");
+        entry.fatherRow = resolveParent(entry, data.father(), Sex.MALE, "father");
+      }
+    }
+
+    private Entry resolveParent(Entry entry, String ref, Sex sex, String role) {
+      if (ref == null) {
+        return null;
+      }
+      Entry parent = referencedRow(entry, ref, ImportRowType.HORSE, role);
+      if (parent == entry) {
+        fail(entry, "Horse cannot be its own " + role);
+        return null;
+      }
+      if (parent != null && parent.data.sex() != null && parent.data.sex() != sex) {
+        fail(entry, "Horse assigned as %s must be %s".formatted(role, sex.name().toLowerCase()));
+      }
+      if (parent != null && parent.data.dateOfBirth() != null && entry.data.dateOfBirth() != null
+          && !parent.data.dateOfBirth().isBefore(entry.data.dateOfBirth())) {
+        fail(entry, "Horse assigned as %s must be born before the horse".formatted(role));
+      }
+      return parent;
+    }
+
+    private Entry referencedRow(Entry entry, String ref, ImportRowType type, String role) {
+      Entry target = byRef.get(ref);
+      if (target == null || target.data.type() != type) {
+        fail(entry, "Ref '%s' given as %s does not name a %s row of this import".formatted(ref, role, type.name().toLowerCase()));
+        return null;
+      }
+      return target;
+    }
+
+    /**
+     * Orders horses so that every horse comes in a later generation than the parents it refers to,
+     * with Kahn's algorithm. Horses that are part of, or descend from, a cycle of parents are rejected.
+     */
+    private List<List<Entry>> orderByGeneration(List<Entry> horses) {
+      Map<Entry, List<Entry>> children = new HashMap<>();
+      Map<Entry, Integer> pendingParents = new HashMap<>();
+      List<Entry> generation = new ArrayList<>();
+      for (Entry horse : horses) {
+        int pending = 0;
+        for (Entry parent : new Entry[] {horse.motherRow, horse.fatherRow}) {
+          if (parent != null) {
+            children.computeIfAbsent(parent, p -> new ArrayList<>()).add(horse);
+            pending++;
+          }
+        }
+        pendingParents.put(horse, pending);
+        if (pending == 0) {
+          generation.add(horse);
+        }
+      }
+
+      List<List<Entry>> generations = new ArrayList<>();
+      int ordered = 0;
+      while (!generation.isEmpty()) {
+        generations.add(generation);
+        ordered += generation.size();
+        List<Entry> next = new ArrayList<>();
+        for (Entry parent : generation) {
+          for (Entry child : children.getOrDefault(parent, List.of())) {
+            if (pendingParents.merge(child, -1, Integer::sum) == 0) {
+              next.add(child);
+            }
+          }
+        }
+        generation = next;
+      }
+      if (ordered < horses.size()) {
+        for (Entry horse : horses) {
+          if (pendingParents.get(horse) > 0) {
+            fail(horse, "Horse is part of, or descends from, a cycle of parents");
+          }
+        }
+      }
+      return generations;
+    }
+
+    private void storeOwners(List<Entry> owners) {
+      List<Entry> valid = owners.stream().filter(entry -> !entry.failed()).toList();
+      storeInBatches(valid, batch -> {
+        List<Owner> created = ownerDao.createAll(batch.stream()
+            .map(entry -> new OwnerCreateDto(entry.data.firstName(), entry.data.lastName(), entry.data.description()))
+            .toList());
+        ownersCreated += created.size();
+        return created.stream().map(Owner::id).toList();
+      });
+    }
+
+    private void storeHorses(List<Entry> generation) {
+      List<Entry> valid = new ArrayList<>();
+      for (Entry entry : generation) {
+        if (entry.failed()) {
+          continue;
+        }
+        checkReferencedRow(entry, entry.ownerRow, "Owner");
+        checkReferencedRow(entry, entry.motherRow, "Mother");
+        checkReferencedRow(entry, entry.fatherRow, "Father");
+        if (!entry.failed()) {
+          valid.add(entry);
+        }
+      }
+      storeInBatches(valid, batch -> {
+        List<Horse> created = horseDao.createAll(batch.stream().map(this::toHorse).toList());
+        horsesCreated += created.size();
+        return created.stream().map(Horse::id).toList();
+      });
+    }
+
+    private void checkReferencedRow(Entry entry, Entry referenced, String role) {
+      if (referenced != null && referenced.id == null) {
+        fail(entry, "%s row %d was not imported".formatted(role, referenced.row));
+      }
+    }
+
+    private HorseCreateDto toHorse(Entry entry) {
+      ImportRowDto data = entry.data;
+      return new HorseCreateDto(
+          data.name(),
+          data.description(),
+          data.dateOfBirth(),
+          data.sex(),
+          entry.ownerRow != null ? entry.ownerRow.id : data.ownerId(),
+          null,
+          entry.motherRow != null ? entry.motherRow.id : data.motherId(),
+          entry.fatherRow != null ? entry.fatherRow.id : data.fatherId());
+    }
+
+    /**
+     * Stores rows in batches of up to {@link #batchSize}, each in its own transaction, and reports the progress after each.
+     * If storing a batch fails, all of its rows are rejected.
+     */
+    private void storeInBatches(List<Entry> rows, Function<List<Entry>, List<Long>> store) {
+      for (int start = 0; start < rows.size(); start += batchSize) {
+        List<Entry> batch = rows.subList(start, Math.min(start + batchSize, rows.size()));
+        try {
+          List<Long> ids = transactionTemplate.execute(status -> store.apply(batch));
+          for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).id = ids.get(i);
+          }
+        } catch (DataAccessException e) {
+          LOG.warn("Storing a batch of {} imported rows failed: {}", batch.size(), e.getMostSpecificCause().getMessage());
+          batch.forEach(entry -> fail(entry, "Row could not be stored: " + e.getMostSpecificCause().getMessage()));
+        }
+        progress.accept(new ImportProgressDto(false, entries.size(), ownersCreated, horsesCreated, failed, List.of(), Map.of()));
+      }
+    }
+
+    private void fail(Entry entry, String error) {
+      if (!entry.failed()) {
+        failed++;
+      }
+      entry.errors.add(error);
+    }
+  }
+
+  /**
+   * A row of an import and what has been found out about it so far.
+   */
+  private static final class Entry {
+    private final int row;
+    private final ImportRowDto data;
+    private final String parseError;
+    private final List<String> errors = new ArrayList<>();
+    private Entry ownerRow;
+    private Entry motherRow;
+    private Entry fatherRow;
+    private Long id;
+
+    Entry(int row, ImportRowDto data, String parseError) {
+      this.row = row;
+      this.data = data;
+      this.parseError = parseError;
+    }
+
+    boolean failed() {
+      return !errors.isEmpty();
+    }
+  }
+}
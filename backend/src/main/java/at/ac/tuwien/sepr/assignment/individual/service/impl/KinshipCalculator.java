@@ -0,0 +1,126 @@
+package at.ac.tuwien.sepr.assignment.individual.service.impl;
+
+import at.ac.tuwien.sepr.assignment.individual.exception.FatalException;
+import at.ac.tuwien.sepr.assignment.individual.persistence.PedigreeView;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Computes kinship and inbreeding coefficients over a pedigree with the recursive method:
+ * the kinship of a horse with itself is {@code (1 + F) / 2}, where {@code F} is its inbreeding coefficient,
+ * and the kinship of two different horses is the mean kinship of the parents of the younger one with the other.
+ * A horse is "younger" if its generation depth, the length of the longest path to a founder, is larger,
+ * which guarantees that it is not an ancestor of the other one.
+ * Intermediate kinship values are memoised, so a pair is usually evaluated only once per calculator,
+ * and a calculator may be shared by several threads.
+ * The memo is bounded: once it holds the maximum number of pairs it is cleared,
+ * so a calculator shared over many horses trades some recomputation for a fixed amount of memory.
+ */
+public class KinshipCalculator {
+  private final PedigreeView pedigree;
+  private final int maxMemoEntries;
+  private final Map<Pair, Double> kinships = new ConcurrentHashMap<>();
+  private final Map<Long, Integer> depths = new ConcurrentHashMap<>();
+
+  /**
+   * Creates a calculator working on the given pedigree.
+   *
+   * @param pedigree the parent relation of all horses
+   * @param maxMemoEntries the maximum number of kinship values memoised
+   */
+  public KinshipCalculator(PedigreeView pedigree, int maxMemoEntries) {
+    this.pedigree = pedigree;
+    this.maxMemoEntries = maxMemoEntries;
+  }
+
+  /**
+   * Returns Wright's inbreeding coefficient of a horse, which equals the kinship of its parents.
+   *
+   * @param id the ID of the horse
+   * @return the inbreeding coefficient, 0 if a parent is unknown
+   * @throws FatalException if the pedigree of the horse contains a cycle
+   */
+  public double inbreeding(long id) {
+    return kinship(pedigree.motherOf(id), pedigree.fatherOf(id));
+  }
+
+  /**
+   * Returns the kinship coefficient (coancestry) of two horses.
+   *
+   * @param a the ID of the first horse
+   * @param b the ID of the second horse
+   * @return the kinship coefficient, 0 if one of the horses is unknown
+   * @throws FatalException if the pedigree of one of the horses contains a cycle
+   */
+  public double kinship(long a, long b) {
+    if (a == PedigreeView.NO_PARENT || b == PedigreeView.NO_PARENT) {
+      return 0.0;
+    }
+    if (a == b) {
+      return (1.0 + inbreeding(a)) / 2.0;
+    }
+    Pair key = a < b ? new Pair(a, b) : new Pair(b, a);
+    Double known = kinships.get(key);
+    if (known != null) {
+      return known;
+    }
+    long younger = depth(a) >= depth(b) ? a : b;
+    long other = younger == a ? b : a;
+    double result = (kinship(pedigree.motherOf(younger), other) + kinship(pedigree.fatherOf(younger), other)) / 2.0;
+    if (kinships.size() >= maxMemoEntries) {
+      kinships.clear();
+    }
+    kinships.put(key, result);
+    return result;
+  }
+
+  /**
+   * Groups horses by generation depth, founders first.
+   * Evaluating the groups in this order lets every horse reuse the memoised values of its ancestors,
+   * and the horses of one group can be evaluated in parallel.
+   *
+   * @param ids the IDs of the horses to group
+   * @return the IDs grouped by generation depth, starting at depth 0
+   * @throws FatalException if the pedigree of one of the horses contains a cycle
+   */
+  public List<List<Long>> byDepth(long[] ids) {
+    List<List<Long>> levels = new ArrayList<>();
+    for (long id : ids) {
+      int depth = depth(id);
+      while (levels.size() <= depth) {
+        levels.add(new ArrayList<>());
+      }
+      levels.get(depth).add(id);
+    }
+    return levels;
+  }
+
+  private int depth(long id) {
+    Integer known = depths.get(id);
+    return known != null ? known : depth(id, new HashSet<>());
+  }
+
+  private int depth(long id, Set<Long> path) {
+    if (id == PedigreeView.NO_PARENT) {
+      return -1;
+    }
+    Integer known = depths.get(id);
+    if (known != null) {
+      return known;
+    }
+    if (!path.add(id)) {
+      throw new FatalException("Pedigree of horse %d contains a cycle".formatted(id));
+    }
+    int depth = 1 + Math.max(depth(pedigree.motherOf(id), path), depth(pedigree.fatherOf(id), path));
+    path.remove(id);
+    depths.put(id, depth);
+    return depth;
+  }
+
+  private record Pair(long a, long b) {
+  }
+}
@@ -0,0 +1,100 @@
+package at.ac.tuwien.sepr.assignment.individual.service.impl;
+
+import at.ac.tuwien.sepr.assignment.individual.exception.FatalException;
+import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs the independent lookups of a single request concurrently, each on its own virtual thread,
+ * bounded by a deadline common to all of them.
+ * Follows the shape of {@code StructuredTaskScope.ShutdownOnFailure}, which is only a preview API in Java 21:
+ * lookups are forked inside a try-with-resources block, the first failing lookup cancels all others,
+ * and closing the scope cancels the lookups still running and waits for them, so none outlives the request.
+ */
+final class LookupScope implements AutoCloseable {
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+  private final long deadline;
+  private final AtomicReference<Exception> failure = new AtomicReference<>();
+
+  /**
+   * Opens a scope whose lookups must complete within {@code timeout}.
+   *
+   * @param timeout the time the lookups may take, starting now
+   */
+  LookupScope(Duration timeout) {
+    this.deadline = System.nanoTime() + timeout.toNanos();
+  }
+
+  /**
+   * Starts a lookup.
+   * Once the scope has been shut down, by a failed lookup or the deadline, no lookup is started anymore;
+   * the returned result then fails with the failure that shut the scope down.
+   *
+   * @param lookup the lookup, which may fork further lookups into this scope
+   * @param <T> the type of the result
+   * @return the pending result of the lookup
+   */
+  <T> Future<T> fork(Callable<T> lookup) {
+    try {
+      return executor.submit(() -> {
+        try {
+          return lookup.call();
+        } catch (Exception e) {
+          if (failure.compareAndSet(null, e)) {
+            executor.shutdownNow();
+          }
+          throw e;
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      Exception cause = failure.get();
+      return CompletableFuture.failedFuture(cause != null ? cause : e);
+    }
+  }
+
+  /**
+   * Waits for the result of a lookup, at most until the deadline.
+   *
+   * @param lookup the pending result of a lookup forked into this scope
+   * @param <T> the type of the result
+   * @return the result of the lookup
+   * @throws NotFoundException if the lookup did not find what it was looking for
+   * @throws TimeoutException if the deadline passed before the lookup completed
+   */
+  <T> T join(Future<T> lookup) throws NotFoundException, TimeoutException {
+    try {
+      return lookup.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    } catch (ExecutionException e) {
+      // report the failure that cancelled the other lookups, not one caused by the cancellation
+      switch (failure.get()) {
+        case NotFoundException notFound -> throw notFound;
+        case RuntimeException runtime -> throw runtime;
+        case null -> throw new FatalException(e.getCause());
+        default -> throw new FatalException(failure.get());
+      }
+    } catch (TimeoutException e) {
+      executor.shutdownNow();
+      throw new TimeoutException("Lookups did not complete within the deadline");
+    } catch (InterruptedException e) {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+      throw new FatalException(e);
+    }
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+    executor.close();
+  }
+}
@@ -29,6 +29,12 @@ public class OwnerServiceImpl implements OwnerService {
   private final OwnerDao dao;
   private final OwnerMapper mapper;
 
+  /**
+   * Creates the service.
+   *
+   * @param dao the owner DAO
+   * @param mapper the owner mapper
+   */
   public OwnerServiceImpl(
       OwnerDao dao,
       OwnerMapper mapper) {
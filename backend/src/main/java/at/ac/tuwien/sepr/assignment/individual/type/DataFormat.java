@@ -0,0 +1,28 @@
+package at.ac.tuwien.sepr.assignment.individual.type;
+
+import java.util.Locale;
+
+/**
+ * Enum representing the formats bulk data is imported and exported in.
+ */
+public enum DataFormat {
+  /**
+   * Newline-delimited JSON, one object per row.
+   */
+  NDJSON,
+  /**
+   * Comma-separated values with a header row naming the columns.
+   */
+  CSV;
+
+  /**
+   * Parses the format given as request parameter, ignoring case.
+   *
+   * @param value the parameter value, or null
+   * @return the format, {@link #NDJSON} if {@code value} is null
+   * @throws IllegalArgumentException if {@code value} names no format
+   */
+  public static DataFormat fromParameter(String value) {
+    return value == null ? NDJSON : valueOf(value.strip().toUpperCase(Locale.ROOT));
+  }
+}
@@ -0,0 +1,11 @@
+package at.ac.tuwien.sepr.assignment.individual.type;
+
+/**
+ * Enum representing the order in which horse search results are returned.
+ * Every order is made stable by using the horse ID as tie-breaker.
+ */
+public enum HorseSort {
+  ID,
+  NAME,
+  DATE_OF_BIRTH
+}
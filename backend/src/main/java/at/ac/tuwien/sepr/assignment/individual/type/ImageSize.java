@@ -0,0 +1,39 @@
+package at.ac.tuwien.sepr.assignment.individual.type;
+
+import java.util.Locale;
+
+/**
+ * Enum representing the sizes an image is served in.
+ * Every size but the original is a downscaled copy fitting into a square of the given edge length.
+ */
+public enum ImageSize {
+  ORIGINAL(0),
+  THUMB(128),
+  MEDIUM(640);
+
+  private final int maxDimension;
+
+  ImageSize(int maxDimension) {
+    this.maxDimension = maxDimension;
+  }
+
+  /**
+   * Returns the maximum width and height of this size.
+   *
+   * @return the edge length in pixels, 0 for the original
+   */
+  public int maxDimension() {
+    return maxDimension;
+  }
+
+  /**
+   * Parses the size given as request parameter, ignoring case.
+   *
+   * @param value the parameter value, or null
+   * @return the size, {@link #ORIGINAL} if {@code value} is null
+   * @throws IllegalArgumentException if {@code value} names no size
+   */
+  public static ImageSize fromParameter(String value) {
+    return value == null ? ORIGINAL : valueOf(value.strip().toUpperCase(Locale.ROOT));
+  }
+}
@@ -0,0 +1,24 @@
+package at.ac.tuwien.sepr.assignment.individual.type;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import java.util.Locale;
+
+/**
+ * Enum representing the kind of entity a row of a bulk import describes.
+ */
+public enum ImportRowType {
+  OWNER,
+  HORSE;
+
+  /**
+   * Parses the type of an import row, ignoring case.
+   *
+   * @param value the type as given in the import
+   * @return the type
+   * @throws IllegalArgumentException if {@code value} names no type
+   */
+  @JsonCreator
+  public static ImportRowType fromValue(String value) {
+    return valueOf(value.strip().toUpperCase(Locale.ROOT));
+  }
+}
@@ -0,0 +1,56 @@
+-- schema as it was before versioned migrations were introduced;
+-- existing databases already have (parts of) it, so every statement is a no-op where it was applied before
+
+CREATE TABLE IF NOT EXISTS owner
+(
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    first_name VARCHAR(255) NOT NULL,
+    last_name VARCHAR(255) NOT NULL,
+    description VARCHAR(4095)
+    );
+
+CREATE TABLE IF NOT EXISTS image
+(
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    file_type VARCHAR(255) NOT NULL,
+    image BLOB,
+    content_hash VARCHAR(64),
+    ref_count INT DEFAULT 1 NOT NULL
+    );
+
+-- SHA-256 of the content, used as ETag; databases created before the column existed get it added and filled in
+ALTER TABLE image ADD COLUMN IF NOT EXISTS content_hash VARCHAR(64);
+UPDATE image SET content_hash = LOWER(RAWTOHEX(HASH('SHA-256', image))) WHERE content_hash IS NULL;
+-- identical uploads share one row; every existing row is referenced by at most one horse
+ALTER TABLE image ADD COLUMN IF NOT EXISTS ref_count INT DEFAULT 1 NOT NULL;
+CREATE INDEX IF NOT EXISTS image_content_hash_idx ON image (content_hash);
+-- with app.images.store=files the content is kept in segment files and the column is NULL
+ALTER TABLE image ALTER COLUMN image SET NULL;
+
+-- downscaled copies of images, generated in the background after an image is created
+CREATE TABLE IF NOT EXISTS image_variant
+(
+    image_id BIGINT NOT NULL REFERENCES image (id) ON DELETE CASCADE,
+    variant VARCHAR(16) NOT NULL,
+    file_type VARCHAR(255) NOT NULL,
+    image BLOB,
+    content_hash VARCHAR(64) NOT NULL,
+    PRIMARY KEY (image_id, variant)
+    );
+ALTER TABLE image_variant ALTER COLUMN image SET NULL;
+
+CREATE TABLE IF NOT EXISTS horse
+(
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    description VARCHAR(4095),
+    date_of_birth DATE NOT NULL,
+    sex ENUM('MALE', 'FEMALE') NOT NULL,
+    owner_id BIGINT REFERENCES owner (id),
+    image_id BIGINT REFERENCES image (id),
+    mother_id BIGINT REFERENCES horse(id) ON DELETE SET NULL,
+    father_id BIGINT REFERENCES horse(id) ON DELETE SET NULL
+);
+
+CREATE INDEX IF NOT EXISTS horse_name_id_idx ON horse (name, id);
+CREATE INDEX IF NOT EXISTS horse_date_of_birth_id_idx ON horse (date_of_birth, id);
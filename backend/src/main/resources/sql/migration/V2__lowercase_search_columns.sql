@@ -0,0 +1,4 @@
+-- lowercase copies of the names matched by the substring filters of the searches, computed by the database on write,
+-- so that the filters compare stored values instead of lowercasing (and concatenating) the names of every row
+ALTER TABLE horse ADD COLUMN IF NOT EXISTS name_lower VARCHAR(255) GENERATED ALWAYS AS (LOWER(name));
+ALTER TABLE owner ADD COLUMN IF NOT EXISTS full_name_lower VARCHAR(511) GENERATED ALWAYS AS (LOWER(first_name || ' ' || last_name));
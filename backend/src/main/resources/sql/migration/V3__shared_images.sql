@@ -0,0 +1,7 @@
+-- horses may share an image since identical images are stored once, but databases created before still have the
+-- unique constraint on horse.image_id; it was declared inline, so its generated name has to be looked up
+EXECUTE IMMEDIATE 'ALTER TABLE horse DROP CONSTRAINT IF EXISTS ' || QUOTE_IDENT(COALESCE((
+    SELECT MIN(tc.constraint_name) FROM information_schema.table_constraints tc
+    JOIN information_schema.key_column_usage k
+    ON k.constraint_schema = tc.constraint_schema AND k.constraint_name = tc.constraint_name
+    WHERE tc.table_name = 'HORSE' AND tc.constraint_type = 'UNIQUE' AND k.column_name = 'IMAGE_ID'), 'NO_SINGLE_IMAGE_CONSTRAINT'));
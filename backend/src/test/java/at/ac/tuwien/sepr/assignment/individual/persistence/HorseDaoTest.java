@@ -3,19 +3,26 @@ package at.ac.tuwien.sepr.assignment.individual.persistence;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.tuple;
 
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseCreateDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseListDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchCursor;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchDto;
 import at.ac.tuwien.sepr.assignment.individual.entity.Horse;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
+import at.ac.tuwien.sepr.assignment.individual.type.HorseSort;
 import at.ac.tuwien.sepr.assignment.individual.type.Sex;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /**
  * Integration test for {@link HorseDao}, ensuring database operations function correctly.
@@ -27,6 +34,9 @@ public class HorseDaoTest {
   @Autowired
   HorseDao horseDao;
 
+  @Autowired
+  TransactionTemplate transactionTemplate;
+
   /**
    * Tests that retrieving all stored horses returns at least one entry
    * and verifies that a specific horse exists in the test dataset.
@@ -42,6 +52,34 @@ public class HorseDaoTest {
         );
   }
 
+  /**
+   * Tests that name and description filters shorter than a trigram match the same horses as longer ones.
+   */
+  @Test
+  public void searchHorseListMatchesShortTextFilters() {
+    assertThat(horseDao.searchHorseList(new HorseSearchDto("uc", null, null, null, null, null), null))
+        .extracting(HorseListDto::name)
+        .allMatch(name -> name.toLowerCase().contains("uc"))
+        .contains("Lucky", "Lucas");
+    assertThat(horseDao.searchHorseList(new HorseSearchDto("uck", "lu", null, null, null, null), null))
+        .extracting(HorseListDto::id)
+        .containsExactly(-2L);
+  }
+
+  /**
+   * Tests that the in-memory pedigree and text index only take over horses whose transaction is committed.
+   */
+  @Test
+  public void rolledBackHorseIsNotIndexed() {
+    HorseCreateDto ghost = new HorseCreateDto("Rolled Back Ghost", null, LocalDate.of(2020, 1, 1), Sex.MALE, null, null, -1L, -2L);
+    Horse created = transactionTemplate.execute(status -> {
+      status.setRollbackOnly();
+      return horseDao.createAll(List.of(ghost)).getFirst();
+    });
+    assertThat(horseDao.getPedigree().contains(created.id())).isFalse();
+    assertThat(horseDao.searchHorseList(new HorseSearchDto("Rolled Back Ghost", null, null, null, null, null), null)).isEmpty();
+  }
+
   /**
    * Tests that retrieving recursive with parents returns only root with 1 generation
    */
@@ -57,20 +95,19 @@ public class HorseDaoTest {
   }
 
   /**
-   * Tests that retrieving recursive with parents returns expected data with 3 generations
+   * Tests that retrieving recursive with parents returns expected data with 3 generations,
+   * listing grandparents reachable through both parents only once
    */
   @Test
   public void getWithParentsRecursiveWith3GenerationsReturnsExpectedList() {
     List<Horse> horses = horseDao.getHorseFamilyById(-10L, 3);
-    assertThat(horses.size()).isEqualTo(7);
+    assertThat(horses.size()).isEqualTo(5);
     assertThat(horses)
         .extracting(Horse::id, Horse::name, Horse::motherId, Horse::fatherId)
         .containsAll(List.of(tuple(-10L, "Larry", -6L, -7L),
             tuple(-7L, "Steve", -1L, -2L),
             tuple(-6L, "Linda", -1L, -2L),
             tuple(-2L, "Lucky", 0L, 0L),
-            tuple(-2L, "Lucky", 0L, 0L),
-            tuple(-1L, "Wendy", 0L, 0L),
             tuple(-1L, "Wendy", 0L, 0L)
         ));
   }
@@ -80,14 +117,102 @@ public class HorseDaoTest {
    */
   @Test
   public void searchReturnsExpectedList() {
-    List<Horse> horses = horseDao.searchHorses(new HorseSearchDto("L", null, null, Sex.FEMALE, null, 3));
+    List<HorseListDto> horses = horseDao.searchHorseList(new HorseSearchDto("L", null, null, Sex.FEMALE, null, 3), null);
     assertThat(horses.size()).isEqualTo(3);
     assertThat(horses)
-        .extracting(Horse::id, Horse::name, Horse::motherId, Horse::fatherId)
+        .extracting(HorseListDto::id, HorseListDto::name, HorseListDto::motherId, HorseListDto::fatherId)
         .containsAll(List.of(
             tuple(-22L, "Willow Jr", -20L, -17L),
             tuple(-16L, "Bella", -12L, -11L),
             tuple(-14L, "Willow", 0L, 0L)
         ));
   }
+
+  /**
+   * Tests that name and description filters match substrings ignoring case, also for texts changed after startup
+   */
+  @Test
+  public void searchByTextReflectsCreateAndDelete() throws NotFoundException {
+    assertThat(horseDao.searchHorseList(new HorseSearchDto("LOW", "grace", null, null, null, null), null))
+        .extracting(HorseListDto::id)
+        .containsExactly(-14L);
+    assertThat(horseDao.searchHorseList(new HorseSearchDto("jr", null, null, null, null, null), null))
+        .extracting(HorseListDto::id)
+        .containsExactly(-22L);
+
+    HorseSearchDto search = new HorseSearchDto("ful run", null, null, null, null, null);
+    Horse runner = horseDao.create(new HorseCreateDto("Graceful Runner", "Swift", LocalDate.of(2023, 5, 1), Sex.MALE, null, null, null, null));
+    try {
+      assertThat(horseDao.searchHorseList(search, null))
+          .extracting(HorseListDto::id)
+          .containsExactly(runner.id());
+    } finally {
+      horseDao.delete(runner.id());
+    }
+    assertThat(horseDao.searchHorseList(search, null)).isEmpty();
+  }
+
+  /**
+   * Tests that the list projection joins the owners of the found horses, and that streaming returns the same horses
+   */
+  @Test
+  public void searchHorseListJoinsOwnersOfSearchedHorses() {
+    for (HorseSearchDto search : List.of(
+        new HorseSearchDto(null, null, null, null, null, null, HorseSort.NAME, null),
+        new HorseSearchDto("L", null, null, Sex.FEMALE, "lazarevic", 5))) {
+      List<HorseListDto> list = horseDao.searchHorseList(search, null);
+      Map<Long, Horse> horses = horseDao.getAllById(list.stream().map(HorseListDto::id).toList());
+      assertThat(list)
+          .extracting(HorseListDto::id, HorseListDto::name, HorseListDto::motherId, horse -> horse.owner() == null ? null : horse.owner().id())
+          .containsExactlyElementsOf(list.stream()
+              .map(horse -> horses.get(horse.id()))
+              .map(horse -> tuple(horse.id(), horse.name(), horse.motherId(), horse.ownerId()))
+              .toList());
+      List<HorseListDto> streamed = new ArrayList<>();
+      horseDao.streamHorseList(search, null, streamed::add);
+      assertThat(streamed).isEqualTo(list);
+      assertThat(list)
+          .filteredOn(horse -> horse.owner() != null)
+          .allMatch(horse -> horse.owner().lastName() != null)
+          .isNotEmpty();
+    }
+  }
+
+  /**
+   * Tests that paging by name with a cursor continues exactly after the last horse of the previous page
+   */
+  @Test
+  public void searchByNameWithCursorReturnsNextPage() {
+    HorseSearchDto firstPage = new HorseSearchDto(null, null, null, null, null, 3, HorseSort.NAME, null);
+    List<HorseListDto> first = horseDao.searchHorseList(firstPage, null);
+    assertThat(first)
+        .extracting(HorseListDto::name)
+        .containsExactly("Apollo", "Aurora", "Bella");
+
+    HorseListDto last = first.getLast();
+    HorseSearchCursor after = new HorseSearchCursor(HorseSort.NAME, last.id(), last.name());
+    List<HorseListDto> second = horseDao.searchHorseList(firstPage, after);
+    assertThat(second)
+        .extracting(HorseListDto::name)
+        .containsExactly("Bernie", "Cinnamon", "Daisy");
+  }
+
+  /**
+   * Tests that the family tree reflects created and deleted horses without reloading
+   */
+  @Test
+  public void getWithParentsRecursiveReflectsCreateAndDelete() throws NotFoundException {
+    Horse foal = horseDao.create(new HorseCreateDto("Foal", null, LocalDate.of(2023, 5, 1), Sex.MALE, null, null, -22L, -21L));
+    try {
+      assertThat(horseDao.getHorseFamilyById(foal.id(), 1))
+          .extracting(Horse::id, Horse::motherId, Horse::fatherId)
+          .containsExactly(
+              tuple(foal.id(), -22L, -21L),
+              tuple(-22L, -20L, -17L),
+              tuple(-21L, -18L, -19L));
+    } finally {
+      horseDao.delete(foal.id());
+    }
+    assertThat(horseDao.getHorseFamilyById(foal.id(), 1)).isEmpty();
+  }
 }
@@ -0,0 +1,118 @@
+package at.ac.tuwien.sepr.assignment.individual.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import at.ac.tuwien.sepr.assignment.individual.dto.ImageCreateDto;
+import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
+import at.ac.tuwien.sepr.assignment.individual.persistence.impl.ImageFileDao;
+import at.ac.tuwien.sepr.assignment.individual.persistence.impl.ImageSegmentStore;
+import at.ac.tuwien.sepr.assignment.individual.type.ImageSize;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Integration test for {@link ImageFileDao}, the image store keeping contents in segment files.
+ * Uses its own in-memory database, as the migration moves every content out of the database.
+ */
+@ActiveProfiles({"test", "datagen"}) // Enables "test" Spring profile to load test data
+@SpringBootTest(properties = {
+    "app.images.store=files",
+    "spring.datasource.url=jdbc:h2:mem:imagefiles;LAZY_QUERY_EXECUTION=TRUE"
+})
+public class ImageFileDaoTest {
+
+  private static final byte[] CONTENT = "0123456789".getBytes(StandardCharsets.US_ASCII);
+
+  @TempDir
+  static Path imageDirectory;
+
+  @Autowired
+  ImageDao imageDao;
+
+  @Autowired
+  JdbcClient jdbcClient;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  @DynamicPropertySource
+  static void imageDirectory(DynamicPropertyRegistry registry) {
+    registry.add("app.images.directory", () -> imageDirectory.toString());
+  }
+
+  /**
+   * Tests that contents are stored in the segment files, survive reopening the store, and are removed with their image.
+   *
+   * @throws Exception if reading the content fails
+   */
+  @Test
+  public void contentIsStoredInSegmentFiles() throws Exception {
+    assertThat(imageDao).isInstanceOf(ImageFileDao.class);
+    long id = imageDao.create(new ImageCreateDto("image/png", CONTENT, "hash")).id();
+
+    assertThat(imageDao.getInfoById(id, ImageSize.ORIGINAL).size()).isEqualTo(CONTENT.length);
+    assertThat(imageDao.getById(id).image()).isEqualTo(CONTENT);
+    ByteArrayOutputStream part = new ByteArrayOutputStream();
+    imageDao.writeContent(id, ImageSize.ORIGINAL, 2, 4, part);
+    assertThat(part.toString(StandardCharsets.US_ASCII)).isEqualTo("2345");
+    assertThat(new ImageSegmentStore(imageDirectory, 1024).locate(id, ImageSize.ORIGINAL).length()).isEqualTo(CONTENT.length);
+
+    imageDao.release(id);
+    Assertions.assertThrows(NotFoundException.class, () -> imageDao.getInfoById(id, ImageSize.ORIGINAL));
+    assertThat(new ImageSegmentStore(imageDirectory, 1024).locate(id, ImageSize.ORIGINAL)).isNull();
+  }
+
+  /**
+   * Tests that rolling back a transaction keeps the content of a released image, and removes the content of a created one.
+   *
+   * @throws Exception if reading the content fails
+   */
+  @Test
+  public void rollbackKeepsContentsConsistentWithDatabase() throws Exception {
+    long released = imageDao.create(new ImageCreateDto("image/png", CONTENT, "released")).id();
+    TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+    long created = transaction.execute(status -> {
+      imageDao.release(released);
+      status.setRollbackOnly();
+      return imageDao.create(new ImageCreateDto("image/png", CONTENT, "created")).id();
+    });
+
+    assertThat(imageDao.getById(released).image()).isEqualTo(CONTENT);
+    assertThat(new ImageSegmentStore(imageDirectory, 1024).locate(created, ImageSize.ORIGINAL)).isNull();
+    imageDao.release(released);
+  }
+
+  /**
+   * Tests that contents still stored in the database are moved to the segment files.
+   *
+   * @throws Exception if reading the content fails
+   */
+  @Test
+  public void migrationMovesContentOutOfDatabase() throws Exception {
+    jdbcClient.sql("INSERT INTO image (id, file_type, image, content_hash) VALUES (-100, 'image/png', :image, 'legacy')")
+        .param("image", CONTENT)
+        .update();
+
+    ((ImageFileDao) imageDao).migrate();
+
+    assertThat(jdbcClient.sql("SELECT COUNT(*) FROM image WHERE image IS NOT NULL").query(Long.class).single()).isZero();
+    ByteArrayOutputStream content = new ByteArrayOutputStream();
+    imageDao.writeContent(-100, ImageSize.ORIGINAL, 0, CONTENT.length, content);
+    assertThat(content.toByteArray()).isEqualTo(CONTENT);
+  }
+}
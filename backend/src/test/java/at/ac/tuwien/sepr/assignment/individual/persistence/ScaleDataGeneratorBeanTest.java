@@ -0,0 +1,69 @@
+package at.ac.tuwien.sepr.assignment.individual.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Integration test for {@link ScaleDataGeneratorBean}, generating a small dataset into its own in-memory database.
+ */
+@ActiveProfiles({"test", "datagen-scale"})
+@SpringBootTest(properties = {
+    "app.datagen.owners=40",
+    "app.datagen.horses=3000",
+    "app.datagen.generations=5",
+    "app.datagen.images=2",
+    "app.datagen.batch-size=400",
+    "app.datagen.threads=3",
+    "spring.datasource.url=jdbc:h2:mem:scale;LAZY_QUERY_EXECUTION=TRUE"
+})
+public class ScaleDataGeneratorBeanTest {
+
+  private static final String SQL_SNAPSHOT =
+      "SELECT id, name, date_of_birth, sex, owner_id, mother_id, father_id FROM horse ORDER BY id";
+
+  @Autowired
+  ScaleDataGeneratorBean generator;
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  /**
+   * Tests that the generated pedigree is consistent, and that generating again with the same seed yields the same dataset.
+   *
+   * @throws Exception if generating is interrupted
+   */
+  @Test
+  public void generatedPedigreeIsConsistentAndDeterministic() throws Exception {
+    assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM owner", Long.class)).isEqualTo(40);
+    assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM horse", Long.class)).isEqualTo(3000);
+    assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM horse WHERE mother_id IS NOT NULL", Long.class))
+        .isGreaterThan(2000);
+    assertThat(jdbcTemplate.queryForObject("""
+        SELECT COUNT(*) FROM horse h
+          LEFT JOIN horse m ON m.id = h.mother_id
+          LEFT JOIN horse f ON f.id = h.father_id
+        WHERE m.sex <> 'FEMALE' OR f.sex <> 'MALE'
+          OR m.date_of_birth >= h.date_of_birth OR f.date_of_birth >= h.date_of_birth
+        """, Long.class)).isZero();
+    // a few popular stallions sire most foals
+    List<Long> foalsPerSire = jdbcTemplate.queryForList(
+        "SELECT COUNT(*) AS foals FROM horse WHERE father_id IS NOT NULL GROUP BY father_id ORDER BY foals DESC", Long.class);
+    assertThat(foalsPerSire.getFirst()).isGreaterThan(10 * foalsPerSire.get(foalsPerSire.size() / 2));
+    assertThat(jdbcTemplate.queryForObject("SELECT SUM(ref_count) FROM image", Long.class))
+        .isEqualTo(jdbcTemplate.queryForObject("SELECT COUNT(image_id) FROM horse", Long.class));
+
+    List<Map<String, Object>> first = jdbcTemplate.queryForList(SQL_SNAPSHOT);
+    // the horse with the lowest ID is of the last generation, so it has no foals
+    jdbcTemplate.update("DELETE FROM horse WHERE id = (SELECT MIN(id) FROM horse)");
+    generator.generateData();
+    assertThat(jdbcTemplate.queryForList(SQL_SNAPSHOT)).isEqualTo(first);
+  }
+}
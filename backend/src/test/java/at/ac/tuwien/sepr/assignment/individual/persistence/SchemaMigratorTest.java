@@ -0,0 +1,75 @@
+package at.ac.tuwien.sepr.assignment.individual.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import at.ac.tuwien.sepr.assignment.individual.exception.FatalException;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Integration test for {@link SchemaMigrator}.
+ */
+@ActiveProfiles({"test", "datagen"}) // Enables "test" Spring profile during test execution
+@SpringBootTest
+public class SchemaMigratorTest {
+
+  @Autowired
+  SchemaMigrator migrator;
+
+  @Autowired
+  DataSource dataSource;
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  /**
+   * Tests that all migrations were applied once at startup, and that migrating again applies nothing.
+   */
+  @Test
+  public void migrationsAreAppliedOnceInOrder() {
+    assertThat(jdbcTemplate.queryForList("SELECT version FROM schema_history ORDER BY installed_on, version", Integer.class))
+        .containsExactly(1, 2, 3);
+    assertThat(migrator.migrate(dataSource)).isZero();
+
+    assertThat(jdbcTemplate.queryForObject("SELECT name_lower FROM horse WHERE id = -1", String.class)).isEqualTo("wendy");
+    assertThat(jdbcTemplate.queryForObject("SELECT full_name_lower FROM owner WHERE id = -5", String.class))
+        .isEqualTo("jan guenther giefing");
+  }
+
+  /**
+   * Tests that a migration whose script no longer matches the recorded checksum stops the migration.
+   */
+  @Test
+  public void changedMigrationIsRejected() {
+    long checksum = jdbcTemplate.queryForObject("SELECT checksum FROM schema_history WHERE version = 2", Long.class);
+    jdbcTemplate.update("UPDATE schema_history SET checksum = ? WHERE version = 2", checksum + 1);
+    try {
+      FatalException e = Assertions.assertThrows(FatalException.class, () -> migrator.migrate(dataSource));
+      assertThat(e.getMessage()).contains("V2__lowercase_search_columns.sql");
+    } finally {
+      jdbcTemplate.update("UPDATE schema_history SET checksum = ? WHERE version = 2", checksum);
+    }
+  }
+
+  /**
+   * Tests that the shared images migration drops the unique constraint on the image of a horse,
+   * which databases created before images were shared still have under a generated name.
+   */
+  @Test
+  public void sharedImagesMigrationDropsLegacyConstraint() {
+    String constraints = "SELECT COUNT(*) FROM information_schema.table_constraints WHERE table_name = 'HORSE' AND constraint_type = 'UNIQUE'";
+    jdbcTemplate.update("ALTER TABLE horse ADD UNIQUE (image_id)");
+    assertThat(jdbcTemplate.queryForObject(constraints, Integer.class)).isOne();
+
+    new ResourceDatabasePopulator(new ClassPathResource("sql/migration/V3__shared_images.sql")).execute(dataSource);
+
+    assertThat(jdbcTemplate.queryForObject(constraints, Integer.class)).isZero();
+  }
+}
@@ -0,0 +1,98 @@
+package at.ac.tuwien.sepr.assignment.individual.rest;
+
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseDetailDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ActiveProfiles({"test", "datagen"}) // enable "test" spring profile during test execution in order to pick up configuration from application-test.yml
+@SpringBootTest
+@EnableWebMvc
+@WebAppConfiguration
+public class ExportEndpointTest {
+
+  @Autowired
+  private WebApplicationContext webAppContext;
+  private MockMvc mockMvc;
+
+  @Autowired
+  ObjectMapper objectMapper;
+
+  @Autowired
+  JdbcClient jdbcClient;
+
+  @BeforeEach
+  public void setup() {
+    this.mockMvc = MockMvcBuilders.webAppContextSetup(webAppContext).build();
+  }
+
+  /**
+   * Tests that the NDJSON export contains every horse, ordered by ID and joined with its owner.
+   *
+   * @throws Exception if the request fails
+   */
+  @Test
+  public void exportingNdjsonContainsEveryHorseWithOwner() throws Exception {
+    byte[] body = mockMvc
+        .perform(MockMvcRequestBuilders.get("/export"))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/x-ndjson"))
+        .andReturn().getResponse().getContentAsByteArray();
+
+    List<HorseDetailDto> horses = objectMapper.readerFor(HorseDetailDto.class).<HorseDetailDto>readValues(body).readAll();
+    long count = jdbcClient.sql("SELECT COUNT(*) FROM horse").query(Long.class).single();
+    assertThat(horses).hasSize((int) count);
+    assertThat(horses).extracting(HorseDetailDto::id).isSorted();
+    HorseDetailDto wendy = horses.stream().filter(horse -> horse.id() == -1L).findFirst().orElseThrow();
+    assertThat(wendy.name()).isEqualTo("Wendy");
+    assertThat(wendy.owner().firstName()).isEqualTo("Valentino");
+  }
+
+  /**
+   * Tests that the CSV export starts with a header row and is compressed if the client accepts gzip.
+   *
+   * @throws Exception if the request fails
+   */
+  @Test
+  public void exportingCsvIsCompressedOnRequest() throws Exception {
+    byte[] body = mockMvc
+        .perform(MockMvcRequestBuilders.get("/export")
+            .queryParam("format", "csv")
+            .header(HttpHeaders.ACCEPT_ENCODING, "deflate, gzip;q=0.8"))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+        .andReturn().getResponse().getContentAsByteArray();
+
+    String csv;
+    try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+      csv = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+    List<String> lines = csv.lines().toList();
+    assertThat(lines.getFirst()).startsWith("id,name,description,dateOfBirth,sex,");
+    assertThat(lines).anyMatch(line -> line.startsWith("-1,Wendy,The famous one!,2012-12-12,FEMALE,"));
+
+    mockMvc
+        .perform(MockMvcRequestBuilders.get("/export").queryParam("format", "xml"))
+        .andExpect(status().isUnprocessableEntity());
+  }
+}
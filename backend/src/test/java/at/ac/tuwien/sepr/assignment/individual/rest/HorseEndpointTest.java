@@ -2,11 +2,14 @@ package at.ac.tuwien.sepr.assignment.individual.rest;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.tuple;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseListDto;
+import at.ac.tuwien.sepr.assignment.individual.type.Sex;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.util.List;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -67,6 +70,50 @@ public class HorseEndpointTest {
         .contains(tuple(-1L, "Wendy"));
   }
 
+  /**
+   * Tests that requesting newline-delimited JSON streams one horse per line.
+   *
+   * @throws Exception if the request fails
+   */
+  @Test
+  public void streamingHorsesAsNdjsonReturnsOneHorsePerLine() throws Exception {
+    String body = mockMvc
+        .perform(MockMvcRequestBuilders
+            .get("/horses")
+            .param("sex", "FEMALE")
+            .accept(MediaType.APPLICATION_NDJSON)
+        ).andExpect(status().isOk())
+        .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+        .andReturn().getResponse().getContentAsString();
+
+    List<HorseListDto> horseResult = body.lines()
+        .map(line -> Assertions.assertDoesNotThrow(() -> objectMapper.readValue(line, HorseListDto.class)))
+        .toList();
+
+    assertThat(horseResult).isNotEmpty();
+    assertThat(horseResult)
+        .extracting(HorseListDto::sex)
+        .containsOnly(Sex.FEMALE);
+    assertThat(horseResult)
+        .extracting(HorseListDto::id, HorseListDto::name)
+        .contains(tuple(-1L, "Wendy"));
+  }
+
+  /**
+   * Tests that an invalid cursor is rejected with a 422 status before streaming starts.
+   *
+   * @throws Exception if the request fails
+   */
+  @Test
+  public void streamingHorsesWithMalformedCursorReturns422() throws Exception {
+    mockMvc
+        .perform(MockMvcRequestBuilders
+            .get("/horses")
+            .param("cursor", "not a cursor")
+            .accept(MediaType.APPLICATION_NDJSON)
+        ).andExpect(status().isUnprocessableEntity());
+  }
+
   /**
    * Tests that accessing a nonexistent URL returns a 404 status.
    *
@@ -0,0 +1,192 @@
+package at.ac.tuwien.sepr.assignment.individual.rest;
+
+import at.ac.tuwien.sepr.assignment.individual.dto.ImageCreateDto;
+import at.ac.tuwien.sepr.assignment.individual.type.ImageSize;
+import at.ac.tuwien.sepr.assignment.individual.service.ImageService;
+import at.ac.tuwien.sepr.assignment.individual.service.impl.ImageContentCache;
+import at.ac.tuwien.sepr.assignment.individual.service.impl.ImageVariantGenerator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import javax.imageio.ImageIO;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ActiveProfiles({"test", "datagen"}) // enable "test" spring profile during test execution in order to pick up configuration from application-test.yml
+@SpringBootTest
+@EnableWebMvc
+@WebAppConfiguration
+public class ImageEndpointTest {
+
+  private static final byte[] CONTENT = "0123456789".getBytes(StandardCharsets.US_ASCII);
+
+  @Autowired
+  private WebApplicationContext webAppContext;
+  private MockMvc mockMvc;
+
+  @Autowired
+  ImageService imageService;
+
+  @Autowired
+  ImageVariantGenerator variantGenerator;
+
+  @Autowired
+  ImageContentCache contentCache;
+
+  @BeforeEach
+  public void setup() {
+    this.mockMvc = MockMvcBuilders.webAppContextSetup(webAppContext).build();
+  }
+
+  /**
+   * Tests that an image is returned completely, with its length and type, if no range is requested.
+   *
+   * @throws Exception if the request fails
+   */
+  @Test
+  public void gettingImageReturnsWholeContent() throws Exception {
+    long id = imageService.create(new ImageCreateDto("image/png", CONTENT)).id();
+
+    mockMvc
+        .perform(MockMvcRequestBuilders.get("/images/{id}", id))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "image/png"))
+        .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, CONTENT.length))
+        .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+        .andExpect(content().bytes(CONTENT));
+  }
+
+  /**
+   * Tests that a requested byte range is returned as partial content, and that unsatisfiable ranges are rejected.
+   *
+   * @throws Exception if the request fails
+   */
+  @Test
+  public void gettingImageRangeReturnsPartialContent() throws Exception {
+    long id = imageService.create(new ImageCreateDto("image/png", CONTENT)).id();
+
+    mockMvc
+        .perform(MockMvcRequestBuilders.get("/images/{id}", id).header(HttpHeaders.RANGE, "bytes=2-5"))
+        .andExpect(status().isPartialContent())
+        .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-5/10"))
+        .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 4))
+        .andExpect(content().bytes("2345".getBytes(StandardCharsets.US_ASCII)));
+
+    mockMvc
+        .perform(MockMvcRequestBuilders.get("/images/{id}", id).header(HttpHeaders.RANGE, "bytes=-3"))
+        .andExpect(status().isPartialContent())
+        .andExpect(content().bytes("789".getBytes(StandardCharsets.US_ASCII)));
+
+    mockMvc
+        .perform(MockMvcRequestBuilders.get("/images/{id}", id).header(HttpHeaders.RANGE, "bytes=10-"))
+        .andExpect(status().isRequestedRangeNotSatisfiable())
+        .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */10"));
+  }
+
+  /**
+   * Tests that images carry their content hash as ETag and are revalidated with 304 Not Modified.
+   *
+   * @throws Exception if the request fails
+   */
+  @Test
+  public void revalidatingImageWithEtagReturnsNotModified() throws Exception {
+    long id = imageService.create(new ImageCreateDto("image/png", CONTENT)).id();
+    String etag = "\"" + HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(CONTENT)) + "\"";
+
+    mockMvc
+        .perform(MockMvcRequestBuilders.get("/images/{id}", id))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.ETAG, etag))
+        .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, public, immutable"));
+
+    mockMvc
+        .perform(MockMvcRequestBuilders.get("/images/{id}", id).header(HttpHeaders.IF_NONE_MATCH, "\"other\", " + etag))
+        .andExpect(status().isNotModified())
+        .andExpect(header().string(HttpHeaders.ETAG, etag))
+        .andExpect(content().bytes(new byte[0]));
+
+    mockMvc
+        .perform(MockMvcRequestBuilders.get("/images/{id}", id)
+            .header(HttpHeaders.RANGE, "bytes=2-5")
+            .header(HttpHeaders.IF_RANGE, "\"other\""))
+        .andExpect(status().isOk())
+        .andExpect(content().bytes(CONTENT));
+  }
+
+  /**
+   * Tests that a thumbnail is served once it has been generated, downscaled with its aspect ratio kept,
+   * and that unknown sizes are rejected.
+   *
+   * @throws Exception if the request fails
+   */
+  @Test
+  public void gettingThumbnailReturnsDownscaledImage() throws Exception {
+    ByteArrayOutputStream png = new ByteArrayOutputStream();
+    ImageIO.write(new BufferedImage(400, 200, BufferedImage.TYPE_INT_RGB), "png", png);
+    long id = imageService.create(new ImageCreateDto("image/png", png.toByteArray())).id();
+    variantGenerator.submit(id, png.toByteArray()).join();
+
+    byte[] thumbnail = mockMvc
+        .perform(MockMvcRequestBuilders.get("/images/{id}", id).param("size", "thumb"))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "image/jpeg"))
+        .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, public, immutable"))
+        .andReturn().getResponse().getContentAsByteArray();
+    BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(thumbnail));
+    assertThat(decoded.getWidth()).isEqualTo(128);
+    assertThat(decoded.getHeight()).isEqualTo(64);
+
+    mockMvc
+        .perform(MockMvcRequestBuilders.get("/images/{id}", id).param("size", "huge"))
+        .andExpect(status().isUnprocessableEntity());
+  }
+
+  /**
+   * Tests that served images are kept in the content cache, and are no longer served once deleted.
+   *
+   * @throws Exception if the request fails
+   */
+  @Test
+  public void servedImageIsCachedUntilDeleted() throws Exception {
+    byte[] content = "cached image".getBytes(StandardCharsets.US_ASCII);
+    long id = imageService.create(new ImageCreateDto("image/png", content)).id();
+    assertThat(contentCache.getInfo(id, ImageSize.ORIGINAL)).isNull();
+
+    mockMvc
+        .perform(MockMvcRequestBuilders.get("/images/{id}", id))
+        .andExpect(status().isOk())
+        .andExpect(content().bytes(content));
+    assertThat(contentCache.getInfo(id, ImageSize.ORIGINAL).size()).isEqualTo(content.length);
+
+    mockMvc
+        .perform(MockMvcRequestBuilders.get("/images/{id}", id).header(HttpHeaders.RANGE, "bytes=7-"))
+        .andExpect(status().isPartialContent())
+        .andExpect(content().bytes("image".getBytes(StandardCharsets.US_ASCII)));
+
+    imageService.delete(id);
+    assertThat(contentCache.getInfo(id, ImageSize.ORIGINAL)).isNull();
+    mockMvc
+        .perform(MockMvcRequestBuilders.get("/images/{id}", id))
+        .andExpect(status().isNotFound());
+  }
+}
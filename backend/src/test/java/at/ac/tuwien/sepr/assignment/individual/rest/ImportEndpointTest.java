@@ -0,0 +1,182 @@
+package at.ac.tuwien.sepr.assignment.individual.rest;
+
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseDetailDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseListDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.ImportErrorDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.ImportProgressDto;
+import at.ac.tuwien.sepr.assignment.individual.persistence.impl.OwnerJdbcDao;
+import at.ac.tuwien.sepr.assignment.individual.service.HorseService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ActiveProfiles({"test", "datagen"}) // enable "test" spring profile during test execution in order to pick up configuration from application-test.yml
+@SpringBootTest
+@EnableWebMvc
+@WebAppConfiguration
+public class ImportEndpointTest {
+
+  @Autowired
+  private WebApplicationContext webAppContext;
+  private MockMvc mockMvc;
+
+  @Autowired
+  ObjectMapper objectMapper;
+
+  @Autowired
+  HorseService horseService;
+
+  @Autowired
+  OwnerJdbcDao ownerDao;
+
+  @Autowired
+  JdbcClient jdbcClient;
+
+  @BeforeEach
+  public void setup() {
+    this.mockMvc = MockMvcBuilders.webAppContextSetup(webAppContext).build();
+  }
+
+  /**
+   * Tests that a CSV import stores rows after the rows they refer to, whatever their order in the file,
+   * and rejects invalid rows together with the rows depending on them.
+   *
+   * @throws Exception if the request fails
+   */
+  @Test
+  public void importingCsvStoresRowsInDependencyOrder() throws Exception {
+    String csv = """
+        type,ref,firstName,lastName,name,dateOfBirth,sex,owner,mother,motherId,father
+        horse,foal,,,Import Foal,2020-04-01,female,breeder,mare,,stallion
+        owner,breeder,Ida,Importer,,,,,,,
+        horse,mare,,,Import Mare,2016-05-02,female,,,-1,
+        horse,stallion,,,Import Stallion,2015-06-03,male,breeder,,,
+        horse,wrong,,,Import Wrong,2019-07-04,male,,,,mare
+        horse,orphan,,,"Orphan, Junior",2021-08-05,male,,,,wrong
+        """;
+    List<ImportProgressDto> lines = importData(csv, "text/csv");
+    ImportProgressDto result = lines.getLast();
+    Map<String, Long> ids = result.createdIds();
+
+    try {
+      assertThat(lines.subList(0, lines.size() - 1)).isNotEmpty().noneMatch(ImportProgressDto::complete);
+      assertThat(result.complete()).isTrue();
+      assertThat(result.rows()).isEqualTo(6);
+      assertThat(result.ownersCreated()).isEqualTo(1);
+      assertThat(result.horsesCreated()).isEqualTo(3);
+      assertThat(result.failed()).isEqualTo(2);
+      assertThat(result.errors()).extracting(ImportErrorDto::row, ImportErrorDto::ref).containsExactly(
+          tuple(6, "wrong"),
+          tuple(7, "orphan"));
+      assertThat(result.errors().getFirst().errors()).containsExactly("Horse assigned as father must be male");
+      assertThat(result.errors().getLast().errors()).containsExactly("Father row 6 was not imported");
+      assertThat(ids).containsOnlyKeys("breeder", "mare", "stallion", "foal");
+
+      HorseDetailDto foal = horseService.getById(ids.get("foal"));
+      assertThat(foal.motherId()).isEqualTo(ids.get("mare"));
+      assertThat(foal.fatherId()).isEqualTo(ids.get("stallion"));
+      assertThat(foal.owner().id()).isEqualTo(ids.get("breeder"));
+      assertThat(horseService.getById(ids.get("mare")).motherId()).isEqualTo(-1L);
+      assertThat(horseService.searchHorses(new HorseSearchDto("Import", null, null, null, "Importer", null, null, null)))
+          .extracting(HorseListDto::name)
+          .containsExactlyInAnyOrder("Import Foal", "Import Stallion");
+    } finally {
+      for (String ref : List.of("foal", "mare", "stallion")) {
+        if (ids.containsKey(ref)) {
+          horseService.delete(ids.get(ref));
+        }
+      }
+      if (ids.containsKey("breeder")) {
+        jdbcClient.sql("DELETE FROM owner WHERE id = ?").param(ids.get("breeder")).update();
+        ownerDao.loadNameIndex();
+      }
+    }
+  }
+
+  /**
+   * Tests that an NDJSON import rejects malformed rows and cycles of parents without storing anything.
+   *
+   * @throws Exception if the request fails
+   */
+  @Test
+  public void importingNdjsonRejectsCycles() throws Exception {
+    String ndjson = """
+        {"type":"horse","ref":"a","name":"Cycle A","dateOfBirth":"2020-01-01","sex":"FEMALE","father":"b"}
+        {"type":"horse","ref":"b","name":"Cycle B","dateOfBirth":"2020-01-01","sex":"MALE","mother":"a"}
+        {"type":"horse","ref":"c","name":"Cycle C","dateOfBirth":"2021-01-01","sex":"MALE","mother":"a"}
+        {"type":"horse",
+        """;
+    ImportProgressDto result = importData(ndjson, MediaType.APPLICATION_NDJSON_VALUE).getLast();
+
+    assertThat(result.horsesCreated()).isZero();
+    assertThat(result.failed()).isEqualTo(4);
+    assertThat(result.errors()).extracting(ImportErrorDto::row).containsExactly(1, 2, 3, 4);
+    assertThat(result.errors().get(2).errors()).containsExactly("Horse is part of, or descends from, a cycle of parents");
+    assertThat(result.errors().get(3).errors().getFirst()).startsWith("Row is not a valid import object");
+  }
+
+  /**
+   * Tests that NDJSON rows holding a JSON value other than an object are rejected as rows instead of failing the import.
+   *
+   * @throws Exception if the request fails
+   */
+  @Test
+  public void importingNdjsonRejectsRowsThatAreNotObjects() throws Exception {
+    String ndjson = """
+        null
+        42
+        ["horse"]
+        """;
+    ImportProgressDto result = importData(ndjson, MediaType.APPLICATION_NDJSON_VALUE).getLast();
+
+    assertThat(result.complete()).isTrue();
+    assertThat(result.failed()).isEqualTo(3);
+    assertThat(result.errors()).extracting(ImportErrorDto::row).containsExactly(1, 2, 3);
+    assertThat(result.errors()).allSatisfy(error -> assertThat(error.errors()).containsExactly("Row is not a JSON object"));
+  }
+
+  /**
+   * Tests that a CSV header naming an unknown column rejects the whole import.
+   *
+   * @throws Exception if the request fails
+   */
+  @Test
+  public void importingCsvWithUnknownColumnIsRejected() throws Exception {
+    mockMvc
+        .perform(MockMvcRequestBuilders.post("/import")
+            .contentType("text/csv")
+            .content("type,color\nhorse,brown\n"))
+        .andExpect(status().isUnprocessableEntity());
+  }
+
+  private List<ImportProgressDto> importData(String body, String contentType) throws Exception {
+    byte[] response = mockMvc
+        .perform(MockMvcRequestBuilders.post("/import")
+            .contentType(contentType)
+            .accept(MediaType.APPLICATION_NDJSON)
+            .content(body.getBytes(StandardCharsets.UTF_8)))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getContentAsByteArray();
+    return objectMapper.readerFor(ImportProgressDto.class).<ImportProgressDto>readValues(response).readAll();
+  }
+}
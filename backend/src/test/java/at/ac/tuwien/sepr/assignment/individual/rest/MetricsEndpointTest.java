@@ -0,0 +1,78 @@
+package at.ac.tuwien.sepr.assignment.individual.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import jakarta.servlet.Filter;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+/**
+ * Integration test for the metrics exposed to Prometheus.
+ */
+@ActiveProfiles({"test", "datagen"}) // Enables "test" Spring profile during test execution
+@SpringBootTest
+@AutoConfigureObservability(tracing = false)
+@EnableWebMvc
+@WebAppConfiguration
+public class MetricsEndpointTest {
+
+  @Autowired
+  private WebApplicationContext webAppContext;
+  private MockMvc mockMvc;
+
+  @Autowired
+  private List<FilterRegistrationBean<? extends Filter>> filters;
+
+  /**
+   * Sets up the MockMvc instance with the servlet filters of the application, which record the request metrics.
+   */
+  @BeforeEach
+  public void setup() {
+    this.mockMvc = MockMvcBuilders.webAppContextSetup(webAppContext)
+        .addFilters(filters.stream().map(FilterRegistrationBean::getFilter).toArray(Filter[]::new))
+        .build();
+  }
+
+  /**
+   * Tests that a horse search is recorded in the route histogram and in the DAO timer, next to the connection pool gauges.
+   *
+   * @throws Exception if a request fails
+   */
+  @Test
+  public void searchingHorsesIsRecordedPerRouteAndDaoMethod() throws Exception {
+    mockMvc.perform(MockMvcRequestBuilders.get("/horses").param("name", "Wendy").accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk());
+
+    List<String> metrics = mockMvc.perform(MockMvcRequestBuilders.get("/actuator/prometheus"))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getContentAsString()
+        .lines()
+        .toList();
+
+    assertThat(metrics)
+        .anyMatch(line -> line.startsWith("http_server_requests_seconds_bucket{")
+            && line.contains("method=\"GET\"") && line.contains("uri=\"/horses\""));
+    assertThat(metrics)
+        .anyMatch(line -> line.startsWith("dao_query_seconds_bucket{")
+            && line.contains("class=\"at.ac.tuwien.sepr.assignment.individual.persistence.impl.HorseJdbcDao\"")
+            && line.contains("method=\"searchHorseList\""));
+    assertThat(metrics)
+        .anyMatch(line -> line.startsWith("hikaricp_connections_active{"))
+        .anyMatch(line -> line.startsWith("hikaricp_connections_idle{"))
+        .anyMatch(line -> line.startsWith("hikaricp_connections_pending{"));
+  }
+}
@@ -73,4 +73,33 @@ public class OwnerEndpointTest {
         ));
   }
 
+  /**
+   * Tests that searching owners ranks name prefixes before word prefixes before other matches, and respects the maximum amount.
+   *
+   * @throws Exception if the request fails
+   */
+  @Test
+  public void searchingOwnersRanksPrefixMatchesFirst() throws Exception {
+    assertThat(searchOwners("la", 3))
+        .extracting(OwnerDto::id)
+        .containsExactly(-2L, -9L, -8L);
+    assertThat(searchOwners("ma", 5))
+        .extracting(OwnerDto::id)
+        .containsExactly(-10L, -4L);
+    assertThat(searchOwners("iefin", 5))
+        .extracting(OwnerDto::id)
+        .containsExactly(-5L);
+  }
+
+  private List<OwnerDto> searchOwners(String name, int maxAmount) throws Exception {
+    byte[] body = mockMvc
+        .perform(MockMvcRequestBuilders
+            .get("/owners")
+            .queryParam("name", name)
+            .queryParam("maxAmount", String.valueOf(maxAmount))
+            .accept(MediaType.APPLICATION_JSON)
+        ).andExpect(status().isOk())
+        .andReturn().getResponse().getContentAsByteArray();
+    return objectMapper.readerFor(OwnerDto.class).<OwnerDto>readValues(body).readAll();
+  }
 }
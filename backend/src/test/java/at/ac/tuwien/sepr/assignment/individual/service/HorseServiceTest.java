@@ -4,12 +4,23 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.tuple;
 
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseCreateDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseDescendantDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseDetailDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseFamilyDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseInbreedingDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseListDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseOverviewDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseUpdateDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.ImageCreateDto;
 import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
+import at.ac.tuwien.sepr.assignment.individual.exception.ValidationException;
+import at.ac.tuwien.sepr.assignment.individual.service.impl.HorseFamilyCache;
+import at.ac.tuwien.sepr.assignment.individual.type.HorseSort;
+import at.ac.tuwien.sepr.assignment.individual.type.ImageSize;
 import at.ac.tuwien.sepr.assignment.individual.type.Sex;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -29,6 +40,12 @@ public class HorseServiceTest {
   @Autowired
   HorseService horseService;
 
+  @Autowired
+  ImageService imageService;
+
+  @Autowired
+  HorseFamilyCache familyCache;
+
   /**
    * Tests whether retrieving all stored horses returns the expected number and specific entries.
    */
@@ -56,6 +73,25 @@ public class HorseServiceTest {
     assertThat(horse.motherId() == null).isFalse();
   }
 
+  /**
+   * Tests that the overview of a horse contains its owner and the summaries of both parents with their owners.
+   */
+  @Test
+  public void getOverviewByIdReturnsHorseWithOwnerAndParents() throws Exception {
+    HorseOverviewDto lucas = horseService.getOverviewById(-9L);
+    assertThat(lucas.horse().name()).isEqualTo("Lucas");
+    assertThat(lucas.horse().owner().id()).isEqualTo(-3L);
+    assertThat(lucas.mother())
+        .extracting(HorseListDto::id, HorseListDto::name, parent -> parent.owner().id())
+        .containsExactly(-6L, "Linda", -3L);
+    assertThat(lucas.father())
+        .extracting(HorseListDto::id, HorseListDto::name)
+        .containsExactly(-8L, "Justin");
+    assertThat(lucas.image()).isNull();
+
+    Assertions.assertThrows(NotFoundException.class, () -> horseService.getOverviewById(-99L));
+  }
+
   /**
    * Tests that searching for horses without any filters returns all horses in the database.
    */
@@ -73,7 +109,7 @@ public class HorseServiceTest {
    * Includes tests for filtering by sex, name, date of birth, and limiting the result count.
    */
   @Test
-  public void searchHorsesWithFilterReturnsFilteredResults() {
+  public void searchHorsesWithFilterReturnsFilteredResults() throws ValidationException {
     HorseSearchDto femaleFilter = new HorseSearchDto(null, null, null, Sex.FEMALE, null, null);
     List<HorseListDto> femaleHorses = horseService.searchHorses(femaleFilter).toList();
 
@@ -102,6 +138,148 @@ public class HorseServiceTest {
     assertThat(limitedHorses).hasSizeLessThanOrEqualTo(2);
   }
 
+  /**
+   * Tests that a malformed cursor is rejected instead of silently returning the first page.
+   */
+  @Test
+  public void searchHorsesWithMalformedCursorThrowsValidationException() {
+    HorseSearchDto search = new HorseSearchDto(null, null, null, null, null, 2, HorseSort.NAME, "not a cursor");
+    Assertions.assertThrows(ValidationException.class, () -> horseService.searchHorses(search));
+  }
+
+  /**
+   * Tests that cached family trees are reused, and that updating a horse only invalidates the trees containing it.
+   */
+  @Test
+  public void updatingHorseInvalidatesOnlyFamilyTreesContainingIt() throws Exception {
+    HorseDetailDto mare = horseService.create(new HorseCreateDto("Mare", null, LocalDate.of(2010, 1, 1), Sex.FEMALE, null, null, null, null));
+    HorseDetailDto foal = horseService.create(new HorseCreateDto("Foal", null, LocalDate.of(2015, 1, 1), Sex.MALE, null, null, mare.id(), null));
+    try {
+      horseService.getHorseFamilyById(foal.id(), 2);
+      horseService.getHorseFamilyById(-5L, 2);
+      assertThat(familyCache.get(foal.id(), 2)).isNotNull();
+      assertThat(familyCache.get(-5L, 2)).isNotNull();
+
+      horseService.update(new HorseUpdateDto(mare.id(), "Old mare", null, LocalDate.of(2010, 1, 1), Sex.FEMALE, null, null, null, null));
+
+      assertThat(familyCache.get(foal.id(), 2)).isNull();
+      assertThat(familyCache.get(-5L, 2)).isNotNull();
+      assertThat(horseService.getHorseFamilyById(foal.id(), 2).mother.name).isEqualTo("Old mare");
+    } finally {
+      horseService.delete(foal.id());
+      horseService.delete(mare.id());
+    }
+  }
+
+  /**
+   * Tests that changing a family tree returned by the service does not change the cached tree.
+   */
+  @Test
+  public void changingReturnedFamilyTreeDoesNotChangeCachedTree() throws Exception {
+    HorseFamilyDto tree = horseService.getHorseFamilyById(-10L, 2);
+    tree.name = "Changed";
+    tree.mother = null;
+
+    HorseFamilyDto cached = horseService.getHorseFamilyById(-10L, 2);
+    assertThat(cached).isNotSameAs(tree);
+    assertThat(cached.name).isNotEqualTo("Changed");
+    assertThat(cached.mother).isNotNull();
+  }
+
+  /**
+   * Tests that a horse cannot get one of its descendants, or a horse born after it, as parent.
+   */
+  @Test
+  public void updatingHorseWithDescendantAsParentThrowsValidationException() {
+    // Linda (-6) is a daughter and Lucas (-9) a grandson of Wendy (-1)
+    HorseUpdateDto wendy = new HorseUpdateDto(-1L, "Wendy", "The famous one!", LocalDate.of(2012, 12, 12), Sex.FEMALE, -1L, null, -6L, -9L);
+    ValidationException e = Assertions.assertThrows(ValidationException.class, () -> horseService.update(wendy));
+    assertThat(e.errors()).containsExactly(
+        "Horse assigned as mother must be born before the horse",
+        "Horse assigned as mother is a descendant of the horse",
+        "Horse assigned as father must be born before the horse",
+        "Horse assigned as father is a descendant of the horse");
+
+    HorseUpdateDto lucas = new HorseUpdateDto(-9L, "Lucas", "The gentle one!", LocalDate.of(2016, 9, 19), Sex.MALE, -3L, null, -9L, -8L);
+    e = Assertions.assertThrows(ValidationException.class, () -> horseService.update(lucas));
+    assertThat(e.errors()).containsExactly("Horse cannot be its own mother");
+  }
+
+  /**
+   * Tests that descendants are returned generation by generation and cut off by depth and limit.
+   */
+  @Test
+  public void getDescendantsReturnsGenerationsUpToBounds() throws Exception {
+    assertThat(horseService.getDescendantsById(-1L, 2, null))
+        .extracting(HorseDescendantDto::id, HorseDescendantDto::generation)
+        .containsExactly(
+            tuple(-8L, 1), tuple(-7L, 1), tuple(-6L, 1),
+            tuple(-19L, 2), tuple(-10L, 2), tuple(-9L, 2));
+
+    assertThat(horseService.getDescendantsById(-1L, 10, 4))
+        .extracting(HorseDescendantDto::id)
+        .containsExactly(-8L, -7L, -6L, -19L);
+
+    Assertions.assertThrows(ValidationException.class, () -> horseService.getDescendantsById(-1L, 0, null));
+    Assertions.assertThrows(NotFoundException.class, () -> horseService.getDescendantsById(-99L, 1, null));
+  }
+
+  /**
+   * Tests inbreeding and coancestry on the full siblings Linda and Justin, and on their foal Lucas.
+   */
+  @Test
+  public void inbreedingAndCoancestryFollowPedigree() throws Exception {
+    assertThat(horseService.getInbreedingById(-1L).inbreedingCoefficient()).isZero();
+    assertThat(horseService.getInbreedingById(-9L).inbreedingCoefficient()).isEqualTo(0.25);
+    assertThat(horseService.getCoancestry(-6L, -8L).coancestry()).isEqualTo(0.25);
+    assertThat(horseService.getCoancestry(-9L, -10L).coancestry()).isEqualTo(0.3125);
+    assertThat(horseService.getCoancestry(-1L, -1L).coancestry()).isEqualTo(0.5);
+
+    assertThat(horseService.getAllInbreeding())
+        .filteredOn(dto -> dto.inbreedingCoefficient() > 0)
+        .extracting(HorseInbreedingDto::id)
+        .containsExactly(-10L, -9L);
+
+    Assertions.assertThrows(NotFoundException.class, () -> horseService.getCoancestry(-1L, -99L));
+  }
+
+  /**
+   * Tests that identical uploads share one image, which is only deleted with the last horse referencing it.
+   */
+  @Test
+  public void identicalImagesAreSharedUntilLastHorseIsDeleted() throws Exception {
+    byte[] photo = "shared stable photo".getBytes(StandardCharsets.US_ASCII);
+    long imageId = imageService.create(new ImageCreateDto("image/png", photo)).id();
+    assertThat(imageService.create(new ImageCreateDto("image/png", photo)).id()).isEqualTo(imageId);
+
+    HorseDetailDto first = horseService.create(new HorseCreateDto("First", null, LocalDate.of(2020, 1, 1), Sex.MALE, null, imageId, null, null));
+    HorseDetailDto second = horseService.create(new HorseCreateDto("Second", null, LocalDate.of(2020, 1, 1), Sex.MALE, null, imageId, null, null));
+
+    horseService.delete(first.id());
+    assertThat(imageService.getInfoById(imageId, ImageSize.ORIGINAL).size()).isEqualTo(photo.length);
+    horseService.delete(second.id());
+    Assertions.assertThrows(NotFoundException.class, () -> imageService.getInfoById(imageId, ImageSize.ORIGINAL));
+  }
+
+  /**
+   * Tests that updating a horse without changing its image keeps the image, while replacing it releases the previous one.
+   */
+  @Test
+  public void updatingHorseReleasesImageOnlyWhenReplaced() throws Exception {
+    long imageId = imageService.create(new ImageCreateDto("image/png", "kept photo".getBytes(StandardCharsets.US_ASCII))).id();
+    final long otherImageId = imageService.create(new ImageCreateDto("image/png", "new photo".getBytes(StandardCharsets.US_ASCII))).id();
+    HorseDetailDto horse = horseService.create(new HorseCreateDto("Edited", null, LocalDate.of(2020, 1, 1), Sex.MALE, null, imageId, null, null));
+
+    horseService.update(new HorseUpdateDto(horse.id(), "Edited twice", null, LocalDate.of(2020, 1, 1), Sex.MALE, null, imageId, null, null));
+    horseService.update(new HorseUpdateDto(horse.id(), "Edited thrice", null, LocalDate.of(2020, 1, 1), Sex.MALE, null, imageId, null, null));
+    assertThat(imageService.getInfoById(imageId, ImageSize.ORIGINAL).id()).isEqualTo(imageId);
+
+    horseService.update(new HorseUpdateDto(horse.id(), "Edited", null, LocalDate.of(2020, 1, 1), Sex.MALE, null, otherImageId, null, null));
+    Assertions.assertThrows(NotFoundException.class, () -> imageService.getInfoById(imageId, ImageSize.ORIGINAL));
+
+    horseService.delete(horse.id());
+  }
+
   /**
    * Tests that attempting to retrieve a non-existent horse by ID throws a NotFoundException.
    */
@@ -0,0 +1,97 @@
+package at.ac.tuwien.sepr.assignment.individual.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import at.ac.tuwien.sepr.assignment.individual.dto.OwnerCreateDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.OwnerDto;
+import at.ac.tuwien.sepr.assignment.individual.entity.Owner;
+import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
+import at.ac.tuwien.sepr.assignment.individual.persistence.impl.OwnerCache;
+import at.ac.tuwien.sepr.assignment.individual.persistence.impl.OwnerJdbcDao;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Integration test for {@link OwnerService}.
+ */
+@ActiveProfiles({"test", "datagen"}) // Enables "test" Spring profile during test execution
+@SpringBootTest
+public class OwnerServiceTest {
+
+  @Autowired
+  OwnerService ownerService;
+
+  @Autowired
+  OwnerJdbcDao ownerDao;
+
+  @Autowired
+  OwnerCache ownerCache;
+
+  @Autowired
+  JdbcClient jdbcClient;
+
+  @Autowired
+  MeterRegistry meterRegistry;
+
+  /**
+   * Tests that owners looked up by ID are cached, that only the missing owners of a batch are read,
+   * and that owners created one by one or in a batch are cached right away.
+   */
+  @Test
+  public void ownersAreServedFromCacheAndOnlyMissesAreRead() throws Exception {
+    ownerService.getById(-1L);
+    // stored behind the back of the DAO, so it is not cached
+    KeyHolder keyHolder = new GeneratedKeyHolder();
+    jdbcClient.sql("INSERT INTO owner (first_name, last_name) VALUES ('Uncached', 'Owner')").update(keyHolder, "id");
+    final long stored = keyHolder.getKeyAs(Long.class);
+    OwnerDto created = null;
+    List<Owner> batch = List.of();
+    try {
+      double hits = cacheGets("hit");
+      double misses = cacheGets("miss");
+      assertThat(ownerService.getAllById(List.of(-1L, stored, -1L))).containsOnlyKeys(-1L, stored);
+      assertThat(cacheGets("hit") - hits).isEqualTo(1);
+      assertThat(cacheGets("miss") - misses).isEqualTo(1);
+
+      assertThat(ownerService.getAllById(List.of(-1L, stored)).get(stored).firstName()).isEqualTo("Uncached");
+      assertThat(cacheGets("hit") - hits).isEqualTo(3);
+      assertThat(cacheGets("miss") - misses).isEqualTo(1);
+
+      created = ownerService.create(new OwnerCreateDto("Fresh", "Owner", null));
+      assertThat(ownerService.getById(created.id())).isEqualTo(created);
+      assertThat(cacheGets("hit") - hits).isEqualTo(4);
+      assertThat(cacheGets("miss") - misses).isEqualTo(1);
+
+      batch = ownerDao.createAll(List.of(new OwnerCreateDto("Imported", "Owner", null)));
+      assertThat(ownerService.getById(batch.getFirst().id()).firstName()).isEqualTo("Imported");
+      assertThat(cacheGets("hit") - hits).isEqualTo(5);
+      assertThat(cacheGets("miss") - misses).isEqualTo(1);
+
+      Assertions.assertThrows(NotFoundException.class, () -> ownerService.getAllById(List.of(-1L, -99L)));
+    } finally {
+      jdbcClient.sql("DELETE FROM owner WHERE id = ?").param(stored).update();
+      ownerCache.evict(stored);
+      if (created != null) {
+        jdbcClient.sql("DELETE FROM owner WHERE id = ?").param(created.id()).update();
+        ownerCache.evict(created.id());
+      }
+      for (Owner owner : batch) {
+        jdbcClient.sql("DELETE FROM owner WHERE id = ?").param(owner.id()).update();
+        ownerCache.evict(owner.id());
+      }
+      ownerDao.loadNameIndex();
+    }
+  }
+
+  private double cacheGets(String result) {
+    return meterRegistry.get("cache.gets").tags("cache", "owner", "result", result).functionCounter().count();
+  }
+}
@@ -66,7 +66,7 @@ export class HorseDetailComponent implements OnInit{
     if (!this.horse || !this.horse.imageId) {
       return '';
     } else {
-      return this.imageService.getImageUrl(this.horse.imageId);
+      return this.imageService.getImageUrl(this.horse.imageId, 'medium');
     }
   }
 
@@ -1,6 +1,7 @@
 import {Component, Input, OnInit} from '@angular/core';
 import {RouterLink} from "@angular/router";
 import {HorseFamily} from "../../../../dto/horse";
+import {ImageService} from "../../../../service/image.service";
 
 /** Component for an family-tree-node input, similar to a combo box,
  * that lets the user search a list of options by entering a search text.
@@ -27,7 +28,7 @@ export class FamilyTreeNode implements OnInit {
 
   collapsed: boolean = false;
 
-  constructor() {
+  constructor(private imageService: ImageService) {
 
   }
 
@@ -35,6 +36,13 @@ export class FamilyTreeNode implements OnInit {
 
   }
 
+  get thumbUrl() {
+    if (!this.data?.imageId) {
+      return '';
+    }
+    return this.imageService.getImageUrl(this.data.imageId, 'thumb');
+  }
+
   get formattedDateOfBirth() {
     if (!this.data?.dateOfBirth) {
       return '';
@@ -9,6 +9,7 @@ import { Owner } from 'src/app/dto/owner';
 import { ConfirmDeleteDialogComponent } from 'src/app/component/confirm-delete-dialog/confirm-delete-dialog.component';
 import {of} from "rxjs";
 import {OwnerService} from "../../service/owner.service";
+import {ImageService} from "../../service/image.service";
 
 
 @Component({
@@ -32,7 +33,8 @@ export class HorseComponent implements OnInit {
   constructor(
     private service: HorseService,
     private notification: ToastrService,
-    private ownerService: OwnerService
+    private ownerService: OwnerService,
+    private imageService: ImageService
   ) { }
 
   ownerSuggestions = (input: string) => (input === '')
@@ -43,6 +45,10 @@ export class HorseComponent implements OnInit {
     this.reloadHorses();
   }
 
+  thumbUrl(imageId: number): string {
+    return this.imageService.getImageUrl(imageId, 'thumb');
+  }
+
   reloadHorses() {
     this.service.searchHorses(this.searchParams)
       .subscribe({
@@ -40,6 +40,7 @@ export interface HorseFamily {
   id: number;
   name: string;
   dateOfBirth: string;
+  imageId?: number;
   mother: HorseFamily | null;
   father: HorseFamily | null;
 }
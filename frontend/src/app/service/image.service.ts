@@ -14,7 +14,7 @@ export class ImageService {
   ) {
   }
 
-  public getImageUrl(id: number) {
-    return baseUri + '/' + id;
+  public getImageUrl(id: number, size?: 'thumb' | 'medium') {
+    return baseUri + '/' + id + (size ? '?size=' + size : '');
   }
 }